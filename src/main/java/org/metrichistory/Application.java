@@ -28,6 +28,11 @@ public final class Application implements Runnable {
         commandLine.addSubcommand("filter", new FilterRefactoring());
         commandLine.addSubcommand("mongo", new Mongo());
         commandLine.addSubcommand("revision-history", new ReleaseHistory());
+        commandLine.addSubcommand("batch", new Batch());
+        commandLine.addSubcommand("serve", new Serve());
+        commandLine.addSubcommand("client", new Client());
+        // Everything after the command sent by the client is passed to the server as is.
+        commandLine.getSubcommands().get("client").setStopAtPositional(true);
         commandLine.setCaseInsensitiveEnumValuesAllowed(true);
 
         application.setCmd(commandLine);
@@ -38,7 +43,21 @@ public final class Application implements Runnable {
             final String message = String.format("An unexpected error occurred: '%s'\nSee the logs (./logs/) for more details.", e.getMessage());
             System.err.println(message);
             logger.error(message, e);
+            System.exit(1);
         }
+
+        if (hasFailed(commandLine)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the command which ran reported an error.
+     */
+    private static boolean hasFailed(CommandLine commandLine) {
+        return commandLine.getSubcommands().values().stream()
+                .map(CommandLine::getCommand)
+                .anyMatch(command -> command instanceof Command && ((Command) command).hasFailed());
     }
 
     private void setCmd(CommandLine commandLine) {
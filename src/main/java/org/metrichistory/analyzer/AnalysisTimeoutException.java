@@ -0,0 +1,17 @@
+package org.metrichistory.analyzer;
+
+/**
+ * Thrown when the analysis of a version exceeded its {@link TimeBudget} and has been stopped.
+ */
+public class AnalysisTimeoutException extends RuntimeException {
+    private final String revision;
+
+    public AnalysisTimeoutException(String revision, long budget) {
+        super(String.format("The analysis of %s has been stopped after %d ms", revision, budget));
+        this.revision = revision;
+    }
+
+    public String getRevision() {
+        return revision;
+    }
+}
@@ -14,7 +14,8 @@ public interface Analyzer {
      * Execute the analyzer for a given version of a project.
      * @param revision the version of the project to analyze
      * @param folder   the location of the project
-     * @param filter a non-null filter to apply to this folder.
+     * @param filter a non-null filter to apply to this folder. The files it rejects must not be parsed, rather than
+     *               being removed from the results.
      */
     void execute(String revision, String folder, FileFilter filter);
 
@@ -1,7 +1,10 @@
 package org.metrichistory.analyzer;
 
+import org.metrichistory.analyzer.ck.BlobMetricCache;
 import org.metrichistory.analyzer.ck.CKMetrics;
+import org.metrichistory.analyzer.sourcemeter.BackgroundConverter;
 import org.metrichistory.analyzer.sourcemeter.SourceMeter;
+import org.metrichistory.storage.ResultSink;
 
 import java.util.Objects;
 
@@ -14,6 +17,12 @@ public class AnalyzerBuilder {
     private String executable;
     private String projectName;
     private String inputDirectory;
+    private BlobMetricCache blobCache;
+    private ResultSink sink;
+    private ProcessPool processPool;
+    private TimeBudget timeBudget;
+    private String logDirectory;
+    private BackgroundConverter converter;
 
     public Analyzer build(Census analyzerId) {
         Objects.requireNonNull(analyzerId);
@@ -24,9 +33,19 @@ public class AnalyzerBuilder {
                 Objects.requireNonNull(outputDirectory);
                 Objects.requireNonNull(projectName);
 
-                return new SourceMeter(executable, outputDirectory, projectName, inputDirectory);
+                final SourceMeter sourceMeter = new SourceMeter(executable, outputDirectory, projectName, inputDirectory);
+                sourceMeter.setProcessPool(processPool);
+                sourceMeter.setTimeBudget(timeBudget);
+                sourceMeter.setConverter(converter);
+                if (logDirectory != null) {
+                    sourceMeter.setLogDirectory(logDirectory);
+                }
+                return sourceMeter;
             case CK:
-                return new CKMetrics();
+                final CKMetrics ck = new CKMetrics();
+                ck.setBlobCache(blobCache);
+                ck.setSink(sink);
+                return ck;
         }
         throw new IllegalArgumentException(String.format("'%s' is not a supported analyzer. Verify spelling.", analyzerId));
     }
@@ -47,5 +66,47 @@ public class AnalyzerBuilder {
         this.projectName = projectName;
     }
 
+    /**
+     * Sets the cache of the metrics per file shared by the CK analyzers built by this instance.
+     */
+    public void setBlobCache(BlobMetricCache blobCache) {
+        this.blobCache = blobCache;
+    }
+
+    /**
+     * Sets where the CK analyzers built by this instance write their results.
+     */
+    public void setResultSink(ResultSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Sets the pool shared by the SourceMeter analyzers built by this instance.
+     */
+    public void setProcessPool(ProcessPool processPool) {
+        this.processPool = processPool;
+    }
+
+    /**
+     * Sets the time budget shared by the SourceMeter analyzers built by this instance.
+     */
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the folder where the SourceMeter analyzers built by this instance write their output.
+     */
+    public void setLogDirectory(String logDirectory) {
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * Sets the converter shared by the SourceMeter analyzers built by this instance.
+     */
+    public void setConverter(BackgroundConverter converter) {
+        this.converter = converter;
+    }
+
     public enum Census {SOURCEMETER, CK}
 }
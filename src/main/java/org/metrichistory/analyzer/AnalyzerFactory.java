@@ -0,0 +1,16 @@
+package org.metrichistory.analyzer;
+
+/**
+ * Creates independent instances of an {@link Analyzer}, e.g. one per working copy of a project.
+ */
+@FunctionalInterface
+public interface AnalyzerFactory {
+
+    /**
+     * Creates a new analyzer.
+     * @param folder the location of the project the analyzer will run on
+     * @param outputDirectory the folder where the analyzer writes its results
+     * @return a new instance of {@link Analyzer}
+     */
+    Analyzer create(String folder, String outputDirectory);
+}
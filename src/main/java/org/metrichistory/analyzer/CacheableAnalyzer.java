@@ -0,0 +1,21 @@
+package org.metrichistory.analyzer;
+
+/**
+ * An {@link Analyzer} whose results for a version can be reused for another version with identical sources.
+ */
+public interface CacheableAnalyzer extends Analyzer {
+
+    /**
+     * Returns a description of the analyzer and its configuration. Two analyzers with the same description produce
+     * the same results for the same sources.
+     */
+    String getConfiguration();
+
+    /**
+     * Uses the results of a version as the results of another version.
+     * @param source the version already analyzed.
+     * @param target the version to which the results are copied.
+     * @return <code>true</code> if the results of <code>source</code> were available and have been copied.
+     */
+    boolean copyResults(String source, String target);
+}
@@ -0,0 +1,25 @@
+package org.metrichistory.analyzer;
+
+import org.metrichistory.mining.FileFilter;
+import org.metrichistory.versioncontrol.Vcs;
+
+import java.io.IOException;
+
+/**
+ * An {@link Analyzer} running inside this process. It can analyze a version read directly from the version control
+ * system, so the version doesn't need to be checked out.
+ */
+public interface InProcessAnalyzer extends Analyzer {
+
+    /**
+     * Execute the analyzer for a given version of a project, reading its files from <code>vcs</code>.
+     * The working directory of <code>vcs</code> is not used.
+     * @param revision the version of the project to analyze
+     * @param vcs the version control system containing the project
+     * @param folder the folder to analyze, relative to the root of the repository, or an empty string to analyze the
+     *               whole repository. The filter is given the paths relative to this folder.
+     * @param filter a non-null filter to apply to the files of the version.
+     * @throws IOException when the files of the version cannot be read.
+     */
+    void execute(String revision, Vcs vcs, String folder, FileFilter filter) throws IOException;
+}
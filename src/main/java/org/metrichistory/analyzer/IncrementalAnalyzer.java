@@ -0,0 +1,37 @@
+package org.metrichistory.analyzer;
+
+import org.metrichistory.mining.FileFilter;
+import org.metrichistory.versioncontrol.Vcs;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * An {@link Analyzer} able to derive the results of a version from the results of its parent by analyzing only the
+ * files changed between both versions.
+ */
+public interface IncrementalAnalyzer extends Analyzer {
+
+    /**
+     * Determines if the results of a version can be reused to analyze its children.
+     * @param parent the version.
+     * @return <code>true</code> if the results of the version are available.
+     */
+    boolean canAnalyzeIncrementally(String parent);
+
+    /**
+     * Execute the analyzer for a given version of a project, starting from the results of its parent.
+     * The changed files are read from <code>vcs</code>.
+     * @param revision the version of the project to analyze
+     * @param parent the parent of the version, for which {@link #canAnalyzeIncrementally(String)} is <code>true</code>
+     * @param vcs the version control system containing the project
+     * @param folder the folder to analyze, relative to the root of the repository, or an empty string to analyze the
+     *               whole repository. The changed files outside this folder are ignored.
+     * @param filter a non-null filter to apply to the files of the version, relative to <code>folder</code>.
+     * @param removed the files modified or deleted since the parent, relative to the root of the repository
+     * @param added the files added or modified since the parent, relative to the root of the repository
+     * @throws IOException when the files of the version cannot be read.
+     */
+    void execute(String revision, String parent, Vcs vcs, String folder, FileFilter filter, Collection<String> removed,
+                 Collection<String> added) throws IOException;
+}
@@ -0,0 +1,98 @@
+package org.metrichistory.analyzer;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.Watchdog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Stops a process and the processes it started once its time budget is exceeded. {@link ExecuteWatchdog} only
+ * destroys the process it watches, so the processes started by a script would keep running. On the systems providing
+ * <code>setsid</code>, the command runs in its own process group and the whole group is killed. Elsewhere, only the
+ * process itself is stopped.
+ */
+public class ProcessGroupWatchdog extends ExecuteWatchdog {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessGroupWatchdog.class);
+
+    private static final File SETSID = findSetsid();
+    // Records the identifier of the group, which is the one of the shell, then replaces the shell with the command.
+    private static final String RECORD_GROUP = "echo $$ > \"$0\"; exec \"$@\"";
+
+    private final File groupFile;
+    private boolean groupKilled;
+
+    /**
+     * @param timeout the time budget of the process, in milliseconds, or {@link ExecuteWatchdog#INFINITE_TIMEOUT}
+     * @param groupFile the file where the identifier of the process group is written
+     */
+    public ProcessGroupWatchdog(long timeout, File groupFile) {
+        super(timeout);
+        this.groupFile = groupFile;
+    }
+
+    private static File findSetsid() {
+        for (String path : new String[]{"/usr/bin/setsid", "/bin/setsid"}) {
+            final File setsid = new File(path);
+            if (setsid.canExecute()) {
+                return setsid;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wraps a command so it runs in its own process group.
+     * @return the command to execute instead, or <code>command</code> if process groups are not supported.
+     */
+    public CommandLine wrap(CommandLine command) {
+        if (SETSID == null) {
+            return command;
+        }
+
+        final CommandLine wrapped = new CommandLine(SETSID);
+        wrapped.addArgument("sh");
+        wrapped.addArgument("-c");
+        wrapped.addArgument(RECORD_GROUP, false);
+        wrapped.addArgument(groupFile.getAbsolutePath(), false);
+        wrapped.addArgument(command.getExecutable(), false);
+        wrapped.addArguments(command.getArguments(), false);
+        return wrapped;
+    }
+
+    @Override
+    public synchronized void timeoutOccured(Watchdog w) {
+        super.timeoutOccured(w);
+        if (killedProcess()) {
+            killGroup();
+        }
+    }
+
+    /**
+     * Kills the processes left in the group of a process stopped by this watchdog. Returns once they have been killed,
+     * so their resources are released.
+     */
+    public synchronized void killGroup() {
+        if (groupKilled || SETSID == null || !groupFile.isFile()) {
+            return;
+        }
+        groupKilled = true;
+
+        try {
+            final String group = new String(Files.readAllBytes(groupFile.toPath()), StandardCharsets.US_ASCII).trim();
+            final Process kill = new ProcessBuilder("kill", "-KILL", "--", "-" + Integer.parseInt(group))
+                    .redirectErrorStream(true)
+                    .start();
+            kill.waitFor();
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("The processes started by the stopped process could not be killed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
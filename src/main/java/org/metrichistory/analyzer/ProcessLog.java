@@ -0,0 +1,128 @@
+package org.metrichistory.analyzer;
+
+import org.apache.commons.exec.LogOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures the output of an external analyzer in a file. The lines are handed over to a background thread through a
+ * bounded queue, so the threads reading the output of the process never wait for the disk. When the queue is full,
+ * the lines are dropped and the number of dropped lines is written in the file. The last lines are also kept in
+ * memory to report errors.
+ */
+public class ProcessLog extends LogOutputStream {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessLog.class);
+
+    private static final int QUEUE_CAPACITY = 16_384;
+    private static final int DEFAULT_TAIL = 50;
+
+    // Marks the end of the output, compared by reference.
+    private static final String END = new String("");
+
+    private final File file;
+    private final BlockingQueue<String> queue;
+    private final Deque<String> tail;
+    private final int tailSize;
+    private final Thread writer;
+
+    private long dropped;
+
+    /**
+     * Starts capturing the output in <code>file</code>.
+     * @param file the file where the output is written
+     */
+    public ProcessLog(File file) {
+        this(file, DEFAULT_TAIL);
+    }
+
+    /**
+     * Starts capturing the output in <code>file</code>.
+     * @param file the file where the output is written
+     * @param tailSize the number of lines kept in memory
+     */
+    public ProcessLog(File file, int tailSize) {
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.tail = new ArrayDeque<>(tailSize);
+        this.tailSize = tailSize;
+
+        writer = new Thread(this::write, "metric-history-log-" + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    protected void processLine(String line, int logLevel) {
+        synchronized (tail) {
+            if (tail.size() == tailSize) {
+                tail.removeFirst();
+            }
+            tail.addLast(line);
+
+            if (!queue.offer(line)) {
+                dropped++;
+            }
+        }
+    }
+
+    private void write() {
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = queue.take()) != END) {
+                out.write(line);
+                out.newLine();
+            }
+
+            synchronized (tail) {
+                if (dropped > 0) {
+                    out.write(String.format("[%d lines dropped]", dropped));
+                    out.newLine();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write the output of the analyzer in {}", file, e);
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the last lines of the output.
+     */
+    public List<String> getTail() {
+        synchronized (tail) {
+            return new ArrayList<>(tail);
+        }
+    }
+
+    /**
+     * Flushes the last line and waits until all the lines have been written in the file.
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+
+        try {
+            while (writer.isAlive() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                // The writer is still draining the queue.
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.metrichistory.analyzer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of external analyzers running at the same time. A new process is admitted when there is a core
+ * and enough physical memory available for it. The first process is always admitted so the analysis can progress.
+ * On Linux, the available memory includes the page cache the kernel can reclaim (<code>MemAvailable</code> in
+ * <code>/proc/meminfo</code>), not only the unused memory. This class is thread safe.
+ */
+public class ProcessPool {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessPool.class);
+
+    private static final long POLL_INTERVAL = 1000;
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
+    private final int maxProcesses;
+    private final long memoryPerProcess;
+    private final long totalMemory;
+    private final LongSupplier freeMemory;
+
+    private int running;
+
+    /**
+     * @param maxProcesses the maximum number of processes running at the same time
+     * @param memoryPerProcess the physical memory needed by a process, in bytes
+     */
+    public ProcessPool(int maxProcesses, long memoryPerProcess) {
+        this(maxProcesses, memoryPerProcess, getTotalPhysicalMemory(),
+                () -> getAvailableMemory(MEMINFO, ProcessPool::getFreePhysicalMemory));
+    }
+
+    ProcessPool(int maxProcesses, long memoryPerProcess, long totalMemory, LongSupplier freeMemory) {
+        if (maxProcesses < 1) {
+            throw new IllegalArgumentException("At least one process must be allowed");
+        }
+
+        this.maxProcesses = maxProcesses;
+        this.memoryPerProcess = memoryPerProcess;
+        this.totalMemory = totalMemory;
+        this.freeMemory = freeMemory;
+    }
+
+    /**
+     * Creates a pool allowing one process per core.
+     */
+    public static ProcessPool perCore(long memoryPerProcess) {
+        return new ProcessPool(Runtime.getRuntime().availableProcessors(), memoryPerProcess);
+    }
+
+    /**
+     * Waits until a new process can be started. {@link #release()} must be called once the process ended.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        boolean waiting = false;
+        while (!tryAcquire()) {
+            if (!waiting) {
+                logger.info("Waiting for resources to start a new process ({} running)", running);
+                waiting = true;
+            }
+            // The free memory is not notified, so it is polled.
+            wait(POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * Reserves the resources for a new process if they are available.
+     * @return <code>true</code> if the process can be started.
+     */
+    public synchronized boolean tryAcquire() {
+        if (running > 0) {
+            // The processes started recently may not have allocated their memory yet, so the memory they will
+            // use is reserved upfront.
+            final boolean enoughCores = running < maxProcesses;
+            final boolean enoughMemory = (running + 1) * memoryPerProcess <= totalMemory
+                    && freeMemory.getAsLong() >= memoryPerProcess;
+            if (!enoughCores || !enoughMemory) {
+                return false;
+            }
+        }
+
+        running++;
+        return true;
+    }
+
+    /**
+     * Frees the resources of a process.
+     */
+    public synchronized void release() {
+        running--;
+        notifyAll();
+    }
+
+    private static long getTotalPhysicalMemory() {
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Reads the memory available for new processes from <code>meminfo</code>, in the format of
+     * <code>/proc/meminfo</code>.
+     * @param fallback gives the available memory when <code>meminfo</code> cannot be read or doesn't contain
+     *                 <code>MemAvailable</code> (before Linux 3.14).
+     * @return the available memory, in bytes.
+     */
+    static long getAvailableMemory(Path meminfo, LongSupplier fallback) {
+        if (!Files.isReadable(meminfo)) {
+            return fallback.getAsLong();
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(meminfo, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("MemAvailable:")) {
+                    // The values are in kB, e.g. "MemAvailable:   12345678 kB".
+                    final String[] fields = line.substring("MemAvailable:".length()).trim().split("\\s+");
+                    return Long.parseLong(fields[0]) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Unable to read the available memory from {}", meminfo, e);
+        }
+        return fallback.getAsLong();
+    }
+
+    private static long getFreePhysicalMemory() {
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getFreePhysicalMemorySize();
+        }
+        return Long.MAX_VALUE;
+    }
+}
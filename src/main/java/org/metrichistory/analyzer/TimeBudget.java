@@ -0,0 +1,107 @@
+package org.metrichistory.analyzer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides how long the analysis of a version may take. The budget is either fixed or derived from the durations of
+ * the last analyses: a multiple of their 90th percentile. A version which exceeded its budget gets a larger budget
+ * when it is analyzed again.
+ * This class is thread safe.
+ */
+public class TimeBudget {
+
+    /**
+     * The budget of an analysis which must not be interrupted.
+     */
+    public static final long UNLIMITED = -1;
+
+    private static final int WINDOW = 100;
+    private static final int MIN_SAMPLES = 10;
+    private static final double PERCENTILE = 0.9;
+    private static final int FACTOR = 4;
+    private static final long MINIMUM = 60_000;
+    private static final int RETRY_FACTOR = 4;
+
+    private final long fixed;
+    private final Deque<Long> durations;
+    private final Map<String, Integer> extensions;
+
+    private TimeBudget(long fixed) {
+        this.fixed = fixed;
+        this.durations = new ArrayDeque<>(WINDOW);
+        this.extensions = new HashMap<>();
+    }
+
+    /**
+     * Creates a budget derived from the duration of the previous analyses. The analyses are not interrupted until
+     * enough durations have been recorded.
+     */
+    public static TimeBudget adaptive() {
+        return new TimeBudget(0);
+    }
+
+    /**
+     * Creates a fixed budget.
+     * @param millis the budget of each analysis in milliseconds
+     */
+    public static TimeBudget fixed(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+        return new TimeBudget(millis);
+    }
+
+    /**
+     * Returns the time the analysis of a version may take.
+     * @param revision the version
+     * @return the budget in milliseconds or {@link #UNLIMITED}.
+     */
+    public synchronized long getBudget(String revision) {
+        final long base = fixed > 0 ? fixed : getAdaptiveBudget();
+        if (base == UNLIMITED) {
+            return UNLIMITED;
+        }
+
+        long budget = base;
+        for (int i = extensions.getOrDefault(revision, 0); i > 0 && budget < Long.MAX_VALUE / RETRY_FACTOR; i--) {
+            budget *= RETRY_FACTOR;
+        }
+        return budget;
+    }
+
+    private long getAdaptiveBudget() {
+        if (durations.size() < MIN_SAMPLES) {
+            return UNLIMITED;
+        }
+
+        final List<Long> sorted = new ArrayList<>(durations);
+        Collections.sort(sorted);
+        final long percentile = sorted.get((int) Math.ceil(PERCENTILE * sorted.size()) - 1);
+        return Math.max(MINIMUM, FACTOR * percentile);
+    }
+
+    /**
+     * Records the duration of an analysis which completed.
+     * @param millis the duration in milliseconds
+     */
+    public synchronized void record(long millis) {
+        if (durations.size() == WINDOW) {
+            durations.removeFirst();
+        }
+        durations.addLast(millis);
+    }
+
+    /**
+     * Increases the budget of a version which exceeded it.
+     * @param revision the version
+     */
+    public synchronized void extend(String revision) {
+        extensions.merge(revision, 1, Integer::sum);
+    }
+}
@@ -0,0 +1,192 @@
+package org.metrichistory.analyzer.ck;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.metrichistory.model.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Persistent cache of the metrics of the classes declared in a source file. A file is identified by the id of its
+ * blob, i.e. the hash of its content as computed by git, so a file is only parsed once across all the versions of a
+ * project. The cache only holds the results of one configuration of the analyzer. Once the cache holds
+ * <code>capacity</code> files, the least recently used ones are evicted.
+ * This class is thread safe.
+ */
+public class BlobMetricCache {
+    private static final Logger logger = LoggerFactory.getLogger(BlobMetricCache.class);
+
+    public static final int DEFAULT_CAPACITY = 200_000;
+
+    private static final String CONFIGURATION_RECORD = "configuration";
+
+    private final File file;
+    private final String configuration;
+    private final Map<String, Map<String, Metrics>> entries; // The key is the blob id, the value maps the classes to their metrics.
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Loads the cache stored in <code>file</code>. The content of the file is ignored if it was created for another
+     * configuration of the analyzer.
+     * @param file the path of the file storing the cache
+     * @param configuration the configuration of the analyzer
+     * @param capacity the maximum number of files kept in the cache
+     * @throws IOException when the file cannot be read
+     */
+    public BlobMetricCache(String file, String configuration, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+
+        this.file = new File(file);
+        this.configuration = configuration;
+        this.entries = new LinkedHashMap<String, Map<String, Metrics>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Metrics>> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        if (this.file.isFile()) {
+            load();
+        }
+    }
+
+    private void load() throws IOException {
+        try (CSVParser parser = getFormat().parse(new BufferedReader(new FileReader(file)))) {
+            final Iterator<CSVRecord> records = parser.iterator();
+            if (!records.hasNext()) {
+                return;
+            }
+
+            final CSVRecord header = records.next();
+            if (!CONFIGURATION_RECORD.equals(header.get(0)) || !configuration.equals(header.get(1))) {
+                logger.warn("The blob cache {} was created for another analyzer and is ignored", file);
+                return;
+            }
+
+            // The files are stored from the least to the most recently used.
+            while (records.hasNext()) {
+                final CSVRecord record = records.next();
+                final Map<String, Metrics> classes = entries.computeIfAbsent(record.get(0), blob -> new HashMap<>());
+                if (record.size() > 1) {
+                    classes.put(record.get(1), parseMetrics(record));
+                }
+            }
+        }
+        logger.info("Loaded {} files from the blob cache", entries.size());
+    }
+
+    private Metrics parseMetrics(CSVRecord record) {
+        final double[] metrics = new double[record.size() - 2];
+        for (int i = 2; i < record.size(); i++) {
+            metrics[i - 2] = Double.parseDouble(record.get(i));
+        }
+        return Metrics.wrap(metrics);
+    }
+
+    /**
+     * Returns the metrics of the classes declared in a file.
+     * @param blobId the id of the content of the file
+     * @return the metrics of each class (possibly none) or empty if the file is not in the cache.
+     */
+    public synchronized Optional<Map<String, Metrics>> get(String blobId) {
+        final Map<String, Metrics> classes = entries.get(blobId);
+        if (classes == null) {
+            misses++;
+            return Optional.empty();
+        }
+
+        hits++;
+        return Optional.of(classes);
+    }
+
+    /**
+     * Adds the metrics of the classes declared in a file.
+     * @param blobId the id of the content of the file
+     * @param classes the metrics of each class of the file
+     */
+    public synchronized void put(String blobId, Map<String, Metrics> classes) {
+        entries.put(blobId, classes);
+    }
+
+    /**
+     * Writes the cache on the disk. The previous content of the file is replaced at once, so the file is never left
+     * partially written.
+     * @throws IOException when the file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        final Path temporary = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+
+        try (CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8), getFormat())) {
+            printer.printRecord(CONFIGURATION_RECORD, configuration);
+            for (Map.Entry<String, Map<String, Metrics>> entry : entries.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    printer.printRecord(entry.getKey());
+                }
+                for (Map.Entry<String, Metrics> metrics : entry.getValue().entrySet()) {
+                    final List<Object> record = new ArrayList<>();
+                    record.add(entry.getKey());
+                    record.add(metrics.getKey());
+                    record.addAll(metrics.getValue().get());
+                    printer.printRecord(record);
+                }
+            }
+        }
+
+        Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Computes the id of the blob of a file, like <code>git hash-object</code> does.
+     * @param file the file
+     * @return the id in hexadecimal
+     * @throws IOException when the file cannot be read
+     */
+    public static String hash(Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+        }
+
+        digest.update(("blob " + Files.size(file) + "\0").getBytes(StandardCharsets.US_ASCII));
+        try (InputStream content = Files.newInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return String.format("%040x", new BigInteger(1, digest.digest()));
+    }
+
+    private static CSVFormat getFormat() {
+        return CSVFormat.RFC4180.withDelimiter(';');
+    }
+}
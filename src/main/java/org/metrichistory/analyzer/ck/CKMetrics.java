@@ -3,50 +3,324 @@ package org.metrichistory.analyzer.ck;
 import com.github.mauricioaniche.ck.CK;
 import com.github.mauricioaniche.ck.CKNumber;
 import com.github.mauricioaniche.ck.CKReport;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.metrichistory.analyzer.Analyzer;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.analyzer.InProcessAnalyzer;
+import org.metrichistory.analyzer.IncrementalAnalyzer;
 import org.metrichistory.mining.FileFilter;
 import org.metrichistory.model.MetricDump;
 import org.metrichistory.model.Metrics;
+import org.metrichistory.storage.ResultSink;
+import org.metrichistory.versioncontrol.BlobVisitor;
+import org.metrichistory.versioncontrol.Vcs;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
  * Collects metrics using the CKMetrics library.
  * https://github.com/mauricioaniche/ck
  */
-public class CKMetrics implements Analyzer {
+public class CKMetrics implements InProcessAnalyzer, IncrementalAnalyzer, CacheableAnalyzer {
+
+    /**
+     * Identifies the version of the CK library, which is the only parameter of this analyzer.
+     */
+    public static final String CONFIGURATION = "CK " + CK.class.getPackage().getImplementationVersion();
+
+    /**
+     * The labels of the metrics, in the order they are stored.
+     */
+    public static final String[] LABELS = {"CBO", "DIT", "NOC", "NOF", "NOM", "RFC", "WMC", "LOC"};
+
+    private static final String SOURCE_EXTENSION = ".java";
+
+    /**
+     * Number of versions kept in memory once their results have been written in the sink. They are kept to analyze
+     * their children incrementally.
+     */
+    private static final int RETAINED_RESULTS = 4;
 
     private final Map<String, MetricDump> results;
 
+    private BlobMetricCache blobCache;
+    private ResultSink sink;
+
     public CKMetrics() {
-        results = new HashMap<>();
+        results = new LinkedHashMap<String, MetricDump>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MetricDump> eldest) {
+                return sink != null && size() > RETAINED_RESULTS;
+            }
+        };
+    }
+
+    /**
+     * Sets where the results of each version are written once it has been analyzed. The results are then released
+     * from memory, except for the last versions.
+     * @param sink the sink or <code>null</code> to keep all the results in memory.
+     */
+    public void setSink(ResultSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Sets the cache used to skip the files already parsed in other versions. Like the incremental analysis, the
+     * types declared in the files read from the cache cannot be resolved by the parser. The metrics depending on
+     * other files (CBO, DIT, NOC and RFC) therefore differ from a full analysis, and the cached files keep the values
+     * computed in the version in which they were parsed. NOF, NOM, WMC and LOC only depend on the file itself.
+     * @param blobCache the cache or <code>null</code> to parse every file.
+     */
+    public void setBlobCache(BlobMetricCache blobCache) {
+        this.blobCache = blobCache;
     }
 
+    /**
+     * {@inheritDoc}
+     * When some files are rejected by the filter or a blob cache is set, the accepted sources are exported in a
+     * temporary folder, so the rejected files are never parsed.
+     */
     @Override
     public void execute(String revision, String folder, FileFilter filter) {
+        if (blobCache == null && filter.isEmpty()) {
+            results.put(revision, analyze(folder));
+            return;
+        }
+
+        try {
+            results.put(revision, analyzeSources(visitor -> walkFolder(folder, filter, visitor)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The CK library only reads files from the disk, so the selected sources are exported in a temporary folder.
+     */
+    @Override
+    public void execute(String revision, Vcs vcs, String folder, FileFilter filter) throws IOException {
+        final String prefix = toPrefix(folder);
+        results.put(revision, analyzeSources(visitor -> vcs.walkTree(revision,
+                path -> path.startsWith(prefix) && isSource(path) && filter.accept(path.substring(prefix.length())),
+                (path, blobId, content) -> visitor.visit(path.substring(prefix.length()), blobId, content))));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the added or modified files are parsed. Since the unchanged files are not part of the analysis, the types
+     * they declare cannot be resolved by the parser.
+     */
+    @Override
+    public void execute(String revision, String parent, Vcs vcs, String folder, FileFilter filter,
+                        Collection<String> removed, Collection<String> added) throws IOException {
+        final String prefix = toPrefix(folder);
+        final List<String> removedFiles = relativize(prefix, removed);
+        final List<String> addedFiles = relativize(prefix, added);
+
+        final MetricDump dump = getRetainedResult(parent).copy();
+        dump.removeFiles(removedFiles);
+        dump.removeFiles(addedFiles);
+
+        final List<String> sources = addedFiles.stream()
+                .filter(path -> isSource(path) && filter.accept(path))
+                .map(path -> prefix + path)
+                .collect(Collectors.toList());
+
+        if (!sources.isEmpty()) {
+            final MetricDump changes = analyzeSources(visitor -> vcs.readFiles(revision, sources,
+                    (path, blobId, content) -> visitor.visit(path.substring(prefix.length()), blobId, content)));
+            changes.getClasses().forEach(className ->
+                    dump.add(className, changes.getFile(className), changes.getMetric(className)));
+        }
+
+        results.put(revision, dump);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The results of the parent are read from the sink when they are no longer in memory, for instance when the
+     * parent was analyzed by another worker or in a previous run.
+     */
+    @Override
+    public boolean canAnalyzeIncrementally(String parent) {
+        final MetricDump dump = getRetainedResult(parent);
+        return dump != null && dump.getClasses().stream().allMatch(className -> dump.getFile(className) != null);
+    }
+
+    /**
+     * Returns the results of a version, reading them from the sink when they are no longer in memory.
+     * @return the results or <code>null</code> if the version hasn't been analyzed.
+     * @throws UncheckedIOException when the results cannot be read from the sink.
+     */
+    private MetricDump getRetainedResult(String version) {
+        final MetricDump retained = results.get(version);
+        if (retained != null || sink == null) {
+            return retained;
+        }
+
+        try {
+            final MetricDump dump = sink.read(version);
+            if (dump != null) {
+                results.put(version, dump);
+            }
+            return dump;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the results of " + version, e);
+        }
+    }
+
+    /**
+     * Exports the sources given by the walker in a temporary folder and analyzes them. The files found in the blob
+     * cache are not exported.
+     */
+    private MetricDump analyzeSources(SourceWalker walker) throws IOException {
+        final Path sources = Files.createTempDirectory("metric-history-ck");
+        final MetricDump dump = new MetricDump();
+        final Map<String, String> exported = new HashMap<>(); // The key is the path, the value is the blob id.
+
+        try {
+            walker.walk((path, blobId, content) -> {
+                final Optional<Map<String, Metrics>> cached = blobCache == null ? Optional.empty() : blobCache.get(blobId);
+                if (cached.isPresent()) {
+                    cached.get().forEach((className, metrics) -> dump.add(className, path, metrics));
+                    return;
+                }
+
+                final Path file = sources.resolve(path);
+                Files.createDirectories(file.getParent());
+                Files.copy(content, file);
+                exported.put(path, blobId);
+            });
+
+            if (!exported.isEmpty()) {
+                final MetricDump analyzed = analyze(sources.toString());
+                analyzed.getClasses().forEach(className ->
+                        dump.add(className, analyzed.getFile(className), analyzed.getMetric(className)));
+                cacheResults(analyzed, exported);
+            }
+            return dump;
+        } finally {
+            FileUtils.deleteDirectory(sources.toFile());
+        }
+    }
+
+    /**
+     * Adds the results of each file to the blob cache, including the files declaring no class.
+     */
+    private void cacheResults(MetricDump analyzed, Map<String, String> exported) {
+        if (blobCache == null) {
+            return;
+        }
+
+        final Map<String, Map<String, Metrics>> classesPerFile = new HashMap<>();
+        exported.keySet().forEach(path -> classesPerFile.put(path, new HashMap<>()));
+        for (String className : analyzed.getClasses()) {
+            final Map<String, Metrics> classes = classesPerFile.get(analyzed.getFile(className));
+            if (classes != null) {
+                classes.put(className, analyzed.getMetric(className));
+            }
+        }
+
+        classesPerFile.forEach((path, classes) -> blobCache.put(exported.get(path), classes));
+    }
+
+    /**
+     * Visits the sources of a folder accepted by the filter. The filter is given the paths relative to the folder, like
+     * the paths read from the version control system. The ids of the blobs are only computed when a blob cache is set.
+     */
+    void walkFolder(String folder, FileFilter filter, BlobVisitor visitor) throws IOException {
+        final Path root = Paths.get(folder).toAbsolutePath();
+
+        final List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(file -> isSource(file.toString()) && filter.accept(relativize(root, file.toString())))
+                    .collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            try (InputStream content = Files.newInputStream(file)) {
+                final String blobId = blobCache == null ? null : BlobMetricCache.hash(file);
+                visitor.visit(relativize(root, file.toString()), blobId, content);
+            }
+        }
+    }
+
+    private MetricDump analyze(String folder) {
         final CKReport report = new CK().calculate(folder);
+        final Path root = Paths.get(folder).toAbsolutePath();
 
         final MetricDump dump = new MetricDump();
 
-        report.all().stream()
-                .filter(ckNumber -> filter.accept(FilenameUtils.normalize(ckNumber.getFile())))
-                .forEach(ckNumber -> dump.add(ckNumber.getClassName(), convertToMetric(ckNumber)));
+        report.all().forEach(ckNumber -> dump.add(ckNumber.getClassName(), relativize(root, ckNumber.getFile()),
+                convertToMetric(ckNumber)));
 
-        results.put(revision, dump);
+        return dump;
+    }
+
+    /**
+     * Returns the path of a file relative to the root of the project, as written by the version control system.
+     */
+    private String relativize(Path root, String file) {
+        return FilenameUtils.separatorsToUnix(root.relativize(Paths.get(file).toAbsolutePath()).toString());
+    }
+
+    /**
+     * Returns the prefix of the paths of the repository inside a folder.
+     */
+    private static String toPrefix(String folder) {
+        return folder.isEmpty() ? "" : folder + "/";
+    }
+
+    /**
+     * Returns the paths starting with the prefix, without it.
+     */
+    private static List<String> relativize(String prefix, Collection<String> paths) {
+        return paths.stream()
+                .filter(path -> path.startsWith(prefix))
+                .map(path -> path.substring(prefix.length()))
+                .collect(Collectors.toList());
+    }
+
+    private boolean isSource(String path) {
+        return path.endsWith(SOURCE_EXTENSION);
     }
 
     @Override
     public void postExecute(String version) {
-        // Nothing needs to be done
+        save(version);
+    }
+
+    private void save(String version) {
+        if (sink == null) {
+            return;
+        }
+
+        try {
+            sink.write(version, results.get(version));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to save the results of " + version, e);
+        }
     }
 
     @Override
     public boolean hasInCache(String version) {
-        return results.get(version) != null;
+        return results.get(version) != null || (sink != null && sink.contains(version));
     }
 
     @Override
@@ -54,6 +328,28 @@ public class CKMetrics implements Analyzer {
         return Optional.empty();
     }
 
+    @Override
+    public String getConfiguration() {
+        return CONFIGURATION;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The results are shared between both versions since they are never modified. They are read from the sink when
+     * they are no longer in memory.
+     */
+    @Override
+    public boolean copyResults(String source, String target) {
+        final MetricDump dump = getRetainedResult(source);
+        if (dump == null) {
+            return false;
+        }
+
+        results.put(target, dump);
+        save(target);
+        return true;
+    }
+
     public MetricDump getResult(String version) {
         return results.get(version);
     }
@@ -63,4 +359,9 @@ public class CKMetrics implements Analyzer {
                 (double) metric.getCbo(), (double) metric.getDit(), (double) metric.getNoc(), (double) metric.getNof(),
                 (double) metric.getNom(), (double) metric.getRfc(), (double) metric.getWmc(), (double) metric.getLoc());
     }
+
+    @FunctionalInterface
+    private interface SourceWalker {
+        void walk(BlobVisitor visitor) throws IOException;
+    }
 }
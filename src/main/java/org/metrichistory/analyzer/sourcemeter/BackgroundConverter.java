@@ -0,0 +1,194 @@
+package org.metrichistory.analyzer.sourcemeter;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
+import org.metrichistory.storage.Stores;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Converts the results of SourceMeter to the RAW format on a background thread while the next versions are analyzed,
+ * then deletes them. The results waiting for their conversion are moved to a staging folder, so they are converted
+ * at the next start if the analysis is interrupted. When the conversion falls behind, the analysis converts the
+ * results itself, which bounds the results kept on the disk.
+ */
+public class BackgroundConverter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundConverter.class);
+
+    private static final int MAX_PENDING = 2;
+    private static final String EXTENSION = ".csv";
+
+    private final File folder;
+    private final File staging;
+    private final boolean compress;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger failures;
+
+    /**
+     * @param folder the folder where the RAW files are written, one per version
+     * @param compress <code>true</code> to compress the RAW files with gzip
+     * @throws IOException when the folders cannot be created
+     */
+    public BackgroundConverter(String folder, boolean compress) throws IOException {
+        this.folder = new File(folder);
+        this.staging = new File(folder, ".staging");
+        this.compress = compress;
+        this.failures = new AtomicInteger();
+
+        Files.createDirectories(staging.toPath());
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING),
+                BackgroundConverter::createThread, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        recover();
+    }
+
+    /**
+     * The conversions interrupted by the end of the program are resumed at the next start.
+     */
+    private static Thread createThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, "metric-history-converter");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Converts the results left in the staging folder by a previous run.
+     */
+    private void recover() {
+        final File[] pending = staging.listFiles(File::isDirectory);
+        if (pending == null) {
+            return;
+        }
+
+        for (File results : pending) {
+            logger.info("Converting the results of {} left by a previous run", results.getName());
+            executor.execute(() -> convert(results.getName(), results));
+        }
+    }
+
+    /**
+     * Schedules the conversion of the results of a version. The results are moved out of <code>results</code>
+     * immediately.
+     * @param revision the version
+     * @param results the folder containing the results of SourceMeter for the version
+     * @throws IOException when the results cannot be moved
+     */
+    public void submit(String revision, File results) throws IOException {
+        final File staged = new File(staging, revision);
+        FileUtils.deleteDirectory(staged);
+        FileUtils.moveDirectory(results, staged);
+
+        executor.execute(() -> convert(revision, staged));
+    }
+
+    private void convert(String revision, File results) {
+        try {
+            SourceMeterConverter.convertRevision(results.getPath(), revision, getFile(revision), compress);
+            FileUtils.deleteDirectory(results);
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            logger.error("Failed to convert the results of {}, they are kept in {}", revision, results, e);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the results of the version have been converted.
+     */
+    public boolean isConverted(String revision) {
+        return findFile(revision) != null;
+    }
+
+    /**
+     * Uses the converted results of a version as the results of another version.
+     * @return <code>true</code> if the results of <code>source</code> have been converted and copied.
+     */
+    public boolean copy(String source, String target) {
+        final File sourceFile = findFile(source);
+        if (sourceFile == null) {
+            return false;
+        }
+
+        final File temporary = new File(folder, target + ".tmp");
+        try (CSVParser parser = CSVFormat.RFC4180.withDelimiter(';').withFirstRecordAsHeader()
+                    .parse(Stores.openReader(sourceFile.getPath()));
+             CSVPrinter printer = new CSVPrinter(openWriter(temporary), CSVFormat.DEFAULT.withRecordSeparator('\n')
+                    .withDelimiter(';').withHeader(parser.getHeaderMap().keySet().toArray(new String[0])))) {
+            for (CSVRecord record : parser) {
+                final List<String> values = new ArrayList<>(record.size());
+                record.forEach(values::add);
+                values.set(0, target);
+                printer.printRecord(values);
+            }
+        } catch (IOException e) {
+            logger.error("The results of {} could not be copied to {}", source, target, e);
+            temporary.delete();
+            return false;
+        }
+
+        try {
+            Files.move(temporary.toPath(), getFile(target).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.error("The results of {} could not be copied to {}", source, target, e);
+            return false;
+        }
+    }
+
+    private Writer openWriter(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (compress) {
+            out = new GZIPOutputStream(out);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private File getFile(String revision) {
+        return new File(folder, revision + EXTENSION + (compress ? Stores.COMPRESSED_EXTENSION : ""));
+    }
+
+    /**
+     * Finds the converted results of a version, compressed or not.
+     */
+    private File findFile(String revision) {
+        final File plain = new File(folder, revision + EXTENSION);
+        if (plain.isFile()) {
+            return plain;
+        }
+
+        final File compressed = new File(folder, revision + EXTENSION + Stores.COMPRESSED_EXTENSION);
+        return compressed.isFile() ? compressed : null;
+    }
+
+    /**
+     * Waits for the pending conversions.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failures.get() > 0) {
+            logger.error("The results of {} version(s) could not be converted", failures.get());
+        }
+    }
+}
@@ -1,48 +1,108 @@
 package org.metrichistory.analyzer.sourcemeter;
 
 import org.apache.commons.exec.*;
+import org.apache.commons.exec.environment.EnvironmentUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.metrichistory.analyzer.Analyzer;
+import org.metrichistory.analyzer.AnalysisTimeoutException;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.analyzer.ProcessGroupWatchdog;
+import org.metrichistory.analyzer.ProcessLog;
+import org.metrichistory.analyzer.ProcessPool;
+import org.metrichistory.analyzer.TimeBudget;
 import org.metrichistory.mining.FileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
- * Collects metrics from the command line.
+ * Collects metrics from the command line. Each execution runs in its own results and temporary folders, so the
+ * same instance can be used by several threads.
  */
-public class SourceMeter implements Analyzer {
+public class SourceMeter implements CacheableAnalyzer {
     private static final Logger logger = LoggerFactory.getLogger(SourceMeter.class);
 
     private final String projectName;
+    private final String resultDir;
+    private final String projectDir;
     private final File rootOutputDirectory;
-    private final CommandLine commandLine;
-    private final Map<String, Object> map = new HashMap<>();
+    private final String executable;
+
+    private ProcessPool processPool;
+    private TimeBudget timeBudget;
+    private File logDirectory;
+    private BackgroundConverter converter;
 
     public SourceMeter(String executable, String resultDir, String projectName, String projectDir) {
         this.projectName = projectName;
-        resultDir = FilenameUtils.normalize(resultDir);
+        this.executable = executable;
+        this.projectDir = projectDir;
+        this.resultDir = FilenameUtils.normalize(resultDir);
+
+        rootOutputDirectory = new File(this.resultDir, projectName + File.separatorChar + "java");
+        logDirectory = rootOutputDirectory;
+    }
+
+    /**
+     * Sets the folder where the output of SourceMeter is written, one file per version. By default, the files are
+     * written next to the results of each version.
+     */
+    public void setLogDirectory(String logDirectory) {
+        this.logDirectory = new File(logDirectory);
+    }
+
+    /**
+     * Sets the pool limiting the number of SourceMeter processes running at once.
+     * @param processPool the pool or <code>null</code> to start the processes without waiting.
+     */
+    public void setProcessPool(ProcessPool processPool) {
+        this.processPool = processPool;
+    }
 
-        commandLine = new CommandLine(executable);
-        enableOnlyMetrics();
+    /**
+     * Sets how long SourceMeter may run for a version before being stopped. When the budget is exceeded,
+     * {@link #execute(String, String, FileFilter)} throws an {@link AnalysisTimeoutException}. The processes started
+     * by SourceMeter are also killed, except on the systems without <code>setsid</code>
+     * (see {@link ProcessGroupWatchdog}).
+     * @param timeBudget the budget or <code>null</code> to wait until SourceMeter ends.
+     */
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the converter turning the results of each version into a RAW file. The results are handed over to the
+     * converter once a version has been analyzed, and no longer kept in the output folder.
+     * @param converter the converter or <code>null</code> to keep the results of SourceMeter.
+     */
+    public void setConverter(BackgroundConverter converter) {
+        this.converter = converter;
+    }
+
+    private CommandLine buildCommandLine(String revision, File runResultDir, File filterFile) {
+        final CommandLine commandLine = new CommandLine(executable);
+        enableOnlyMetrics(commandLine);
         commandLine.addArgument("-projectName=" + projectName);
         commandLine.addArgument("-projectBaseDir=" + projectDir);
         commandLine.addArgument("-cleanProject=" + true);
-        commandLine.addArgument("-resultsDir=" + resultDir);
-        commandLine.addArgument("${currentDate}");
-        commandLine.setSubstitutionMap(map);
-
-        rootOutputDirectory = new File(resultDir, projectName + File.separatorChar + "java");
+        commandLine.addArgument("-resultsDir=" + runResultDir.getAbsolutePath());
+        commandLine.addArgument("-currentDate=" + revision);
+        if (filterFile != null) {
+            commandLine.addArgument("-externalHardFilter=" + filterFile.getAbsolutePath());
+        }
+        return commandLine;
     }
 
-    private void enableOnlyMetrics() {
+    private void enableOnlyMetrics(CommandLine commandLine) {
         commandLine.addArgument("-runAndroidHunter=false");
         commandLine.addArgument("-runMetricHunter=false");
         commandLine.addArgument("-runVulnerabilityHunter=false");
@@ -53,24 +113,119 @@ public class SourceMeter implements Analyzer {
         commandLine.addArgument("-runPMD=false");
     }
 
+    /**
+     * {@inheritDoc}
+     * SourceMeter writes its results and temporary files in a folder dedicated to this execution. The results are
+     * then moved to the output folder of the version. The files rejected by the filter are excluded through a filter
+     * file, so SourceMeter never parses them.
+     * @throws AnalysisTimeoutException when SourceMeter exceeded its time budget.
+     * @throws IllegalStateException when SourceMeter failed or produced no results.
+     */
     @Override
     public void execute(String revision, String folder, FileFilter filter) {
-        final DefaultExecutor executor = new DefaultExecutor();
-        executor.setStreamHandler(new PumpStreamHandler(new LogOutputStream() {
-            @Override
-            protected void processLine(String line, int logLevel) {
-                System.out.println(line);
+        try {
+            Files.createDirectories(Paths.get(resultDir));
+            final File runDirectory = Files.createTempDirectory(Paths.get(resultDir), "sourcemeter-").toFile();
+            try {
+                run(revision, runDirectory, filter);
+                moveResults(revision, runDirectory);
+            } finally {
+                FileUtils.deleteDirectory(runDirectory);
             }
-        }));
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void run(String revision, File runDirectory, FileFilter filter) throws IOException, InterruptedException {
+        final File runResultDir = new File(runDirectory, "results");
+        final File filterFile = writeFilter(runDirectory, filter);
+        final File temporaryDir = new File(runDirectory, "tmp");
+        Files.createDirectories(temporaryDir.toPath());
+
+        final Map<String, String> environment = EnvironmentUtils.getProcEnvironment();
+        environment.put("TMP", temporaryDir.getAbsolutePath());
+        environment.put("TEMP", temporaryDir.getAbsolutePath());
+        environment.put("TMPDIR", temporaryDir.getAbsolutePath());
+
+        Files.createDirectories(logDirectory.toPath());
+        final ProcessLog log = new ProcessLog(getLogFile(revision));
+
+        final DefaultExecutor executor = new DefaultExecutor();
+        executor.setStreamHandler(new PumpStreamHandler(log));
         final DefaultExecuteResultHandler resultHandler = new DefaultExecuteResultHandler();
-        map.put("currentDate", "-currentDate=" + revision);
 
+        if (processPool != null) {
+            processPool.acquire();
+        }
         try {
-            executor.execute(commandLine, resultHandler);
+            final long budget = timeBudget == null ? TimeBudget.UNLIMITED : timeBudget.getBudget(revision);
+            final ProcessGroupWatchdog watchdog = new ProcessGroupWatchdog(budget, new File(runDirectory, "process-group"));
+            executor.setWatchdog(watchdog);
+
+            final long beginning = System.nanoTime();
+            executor.execute(watchdog.wrap(buildCommandLine(revision, runResultDir, filterFile)), environment, resultHandler);
             resultHandler.waitFor();
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+            log.close();
+
+            if (watchdog.killedProcess()) {
+                // The slot of the pool is only released once the whole analysis stopped.
+                watchdog.killGroup();
+                logger.error("SourceMeter has been stopped after {} ms while analyzing version {}. Last lines:\n{}",
+                        budget, revision, String.join("\n", log.getTail()));
+                timeBudget.extend(revision);
+                throw new AnalysisTimeoutException(revision, budget);
+            }
+            if (resultHandler.getException() != null) {
+                throw new IllegalStateException(String.format("SourceMeter failed with exit code %d while analyzing version %s. Last lines:%n%s",
+                        resultHandler.getExitValue(), revision, String.join("\n", log.getTail())), resultHandler.getException());
+            }
+            if (timeBudget != null) {
+                timeBudget.record((System.nanoTime() - beginning) / 1_000_000);
+            }
+        } finally {
+            log.close();
+            if (processPool != null) {
+                processPool.release();
+            }
+        }
+    }
+
+    /**
+     * Writes the exclusion patterns of the filter in the format of SourceMeter: one regular expression per line,
+     * preceded by <code>-</code> to exclude the matching files.
+     * @return the filter file or <code>null</code> if every file is accepted.
+     */
+    private File writeFilter(File runDirectory, FileFilter filter) throws IOException {
+        if (filter.isEmpty()) {
+            return null;
         }
+
+        final File filterFile = new File(runDirectory, "filter.txt");
+        final List<String> lines = filter.toRegularExpressions(new File(projectDir).getAbsolutePath()).stream()
+                .map(expression -> "-" + expression)
+                .collect(Collectors.toList());
+        Files.write(filterFile.toPath(), lines, StandardCharsets.UTF_8);
+        return filterFile;
+    }
+
+    /**
+     * Returns the file containing the output of SourceMeter for a version.
+     */
+    public File getLogFile(String revision) {
+        return new File(logDirectory, revision + ".log");
+    }
+
+    private void moveResults(String revision, File runDirectory) throws IOException {
+        final File results = FileUtils.getFile(runDirectory, "results", projectName, "java", revision);
+        if (!results.isDirectory()) {
+            throw new IllegalStateException(String.format("SourceMeter produced no results for version %s, see %s",
+                    revision, getLogFile(revision)));
+        }
+
+        final File output = new File(rootOutputDirectory, revision);
+        FileUtils.deleteDirectory(output);
+        FileUtils.moveDirectory(results, output);
     }
 
     @Override
@@ -84,12 +239,20 @@ public class SourceMeter implements Analyzer {
         } catch (IOException e) {
             logger.error("An error occurred while cleaning up version " + version, e);
         }
+
+        if (converter != null && output.isDirectory()) {
+            try {
+                converter.submit(version, output);
+            } catch (IOException e) {
+                logger.error("The results of version " + version + " could not be handed over for conversion", e);
+            }
+        }
     }
 
     @Override
     public boolean hasInCache(String version) {
         final File output = new File(rootOutputDirectory, version);
-        return output.exists();
+        return output.exists() || (converter != null && converter.isConverted(version));
     }
 
     @Override
@@ -97,6 +260,31 @@ public class SourceMeter implements Analyzer {
         return Optional.of(FileUtils.getFile(rootOutputDirectory, version).getAbsolutePath());
     }
 
+    @Override
+    public String getConfiguration() {
+        return "SourceMeter " + executable + " " + projectName;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The folder containing the results of <code>source</code> is copied.
+     */
+    @Override
+    public boolean copyResults(String source, String target) {
+        final File sourceOutput = new File(rootOutputDirectory, source);
+        if (!sourceOutput.isDirectory()) {
+            return converter != null && converter.copy(source, target);
+        }
+
+        try {
+            FileUtils.copyDirectory(sourceOutput, new File(rootOutputDirectory, target));
+            return true;
+        } catch (IOException e) {
+            logger.error("The results of " + source + " could not be copied to " + target, e);
+            return false;
+        }
+    }
+
     private void deleteFile(File baseDir, String file) throws IOException {
         final File currentFile = new File(baseDir, file);
         final boolean result = Files.deleteIfExists(currentFile.toPath());
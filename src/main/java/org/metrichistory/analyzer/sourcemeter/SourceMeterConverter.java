@@ -14,11 +14,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 public class SourceMeterConverter {
 
@@ -57,6 +60,39 @@ public class SourceMeterConverter {
         }
     }
 
+    /**
+     * Converts the sourcemeter results of one version to a RAW file. The file is written at once, so it is either
+     * complete or absent.
+     * @param revisionFolder the folder containing the results of the version
+     * @param revision the version
+     * @param outputFile the file where to write the results
+     * @param compress <code>true</code> to compress the file with gzip
+     * @throws IOException when an read or write error occurred.
+     */
+    public static void convertRevision(String revisionFolder, String revision, File outputFile, boolean compress)
+            throws IOException {
+        final SourceMeterConverter converter = new SourceMeterConverter();
+        final File classResults = converter.getClassResultsFile(revisionFolder);
+
+        final File folder = outputFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(folder.toPath());
+        final File temporary = File.createTempFile(revision, ".tmp", folder);
+
+        try {
+            OutputStream out = new FileOutputStream(temporary);
+            if (compress) {
+                out = new GZIPOutputStream(out);
+            }
+            try (CSVPrinter printer = converter.getPrinter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+                converter.convertClassResult(classResults, revision, printer);
+            }
+            Files.move(temporary.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
     private String[] resolveInputFolders(String inputPath) throws FormatException {
         // If the input path contains directly the results of a version,
         // we analyze only this folder. Otherwise, all the versions inside
@@ -89,7 +125,10 @@ public class SourceMeterConverter {
      * @return a new instance of {@link CSVPrinter}
      */
     CSVPrinter getPrinter(File outputFile) throws IOException {
-        final BufferedWriter out = new BufferedWriter(new FileWriter(outputFile));
+        return getPrinter(new BufferedWriter(new FileWriter(outputFile)));
+    }
+
+    private CSVPrinter getPrinter(Writer out) throws IOException {
         return new CSVPrinter(out, getOutputFormat());
     }
 
@@ -6,6 +6,7 @@ import org.metrichistory.storage.RevisionFile;
 import org.metrichistory.storage.SimpleCommitReader;
 import org.metrichistory.versioncontrol.Vcs;
 import org.metrichistory.versioncontrol.VcsBuilder;
+import org.metrichistory.versioncontrol.VcsCleanupException;
 import org.metrichistory.versioncontrol.VcsNotFound;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +30,7 @@ public class Ancestry extends Command {
 
     private static final Logger logger = LoggerFactory.getLogger(Ancestry.class);
 
-    @CommandLine.Parameters(index = "0", description = "Path to the file containing the revisions.")
+    @CommandLine.Parameters(index = "0", description = "Path to the file containing the revisions, or the branch with --whole-branch.")
     private String revisionsFile;
 
     @CommandLine.Parameters(index = "1", description = "Path to the root folder of the version controlled project.")
@@ -38,39 +39,69 @@ public class Ancestry extends Command {
     @CommandLine.Parameters(index = "2", description = "Path of the file where the results will be stored.")
     private String outputFile;
 
+    @CommandLine.Option(names = {"-w", "--whole-branch"}, description = "Exports the parent of every revision in the history of the branch given instead of the file.")
+    private boolean wholeBranch;
+
+    @CommandLine.Option(names = {"-t", "--threads"}, paramLabel = "N", description = "Number of threads retrieving the parents.", defaultValue = "1", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int threads;
+
     @Override
     public void run() {
-        revisionsFile = normalizePath(revisionsFile);
         outputFile = normalizePath(outputFile);
 
+        if(wholeBranch) {
+            exportBranch();
+            return;
+        }
+
+        revisionsFile = normalizePath(revisionsFile);
+
 
         final RevisionFile revisionSource = new RevisionFile(new SimpleCommitReader());
         final List<String> revisions = new ArrayList<>();
         try {
             revisions.addAll(revisionSource.load(revisionsFile));
         } catch (FileNotFoundException e) {
-            System.err.println(String.format("File '%s' cannot be found.", revisionsFile));
-            System.exit(-1);
+            fail(String.format("File '%s' cannot be found.", revisionsFile));
+            return;
         } catch (IOException e) {
-            System.err.println(String.format("File '%s' cannot be parsed", revisionsFile));
-            System.exit(-1);
+            fail(String.format("File '%s' cannot be parsed", revisionsFile));
+            return;
         }
 
         try {
             final Vcs repository = VcsBuilder.create(normalizePath(repositoryPath));
 
             final Genealogy genealogy = new Genealogy(repository);
+            genealogy.setThreads(threads);
             final GenealogyRepo genealogyRepo = new GenealogyRepo();
             genealogy.addRevisions(revisions);
             genealogyRepo.export(genealogy, outputFile);
         } catch (VcsNotFound e) {
             final String message = String.format("Cannot find repository at '%s'.", repositoryPath);
-            System.err.println(message);
+            fail(message);
             logger.error(message, e);
         } catch (IOException e) {
             final String message = String.format("Couldn't write results on file (%s)", outputFile);
-            System.err.println(message);
+            fail(message);
+            logger.error(message, e);
+        }
+    }
+
+    private void exportBranch() {
+        try (Vcs repository = VcsBuilder.create(normalizePath(repositoryPath))) {
+            final long count = new GenealogyRepo().exportHistory(repository, revisionsFile, outputFile);
+            logger.info("Exported the parents of {} revisions", count);
+        } catch (VcsNotFound e) {
+            final String message = String.format("Cannot find repository at '%s'.", repositoryPath);
+            fail(message);
+            logger.error(message, e);
+        } catch (IOException e) {
+            final String message = String.format("Couldn't export the history of %s to %s", revisionsFile, outputFile);
+            fail(message);
             logger.error(message, e);
+        } catch (VcsCleanupException e) {
+            logger.error("Failed to cleanup the repository", e);
         }
     }
 }
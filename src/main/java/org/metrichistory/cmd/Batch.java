@@ -0,0 +1,106 @@
+package org.metrichistory.cmd;
+
+import org.metrichistory.cmd.util.Manifest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the steps of several projects in a single process. The projects are processed in parallel by a shared pool
+ * of threads: a thread takes the next project of the manifest as soon as it's free, so the small projects don't wait
+ * for the large ones. The steps of a project run in order, and the remaining steps are skipped when one fails.
+ */
+@CommandLine.Command(
+        name = "batch",
+        description = "Runs the steps of several projects listed in a manifest in a single process.")
+public class Batch extends Command {
+    private static final Logger logger = LoggerFactory.getLogger(Batch.class);
+
+    @CommandLine.Parameters(index = "0", description = "Path to the manifest. Each line contains the name of a project, a step (ancestry, collect, convert, diff or revision-history) and the arguments of the step, as on the command line.")
+    private String manifestPath;
+
+    @CommandLine.Option(names = {"-t", "--threads"}, paramLabel = "N", description = "Number of projects processed in parallel.", defaultValue = "1", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int threads;
+
+    @Override
+    public void run() {
+        manifestPath = normalizePath(manifestPath);
+
+        final Manifest manifest;
+        try {
+            manifest = Manifest.read(manifestPath);
+        } catch (IOException e) {
+            final String message = String.format("The manifest '%s' cannot be read: %s", manifestPath, e.getMessage());
+            fail(message);
+            logger.error(message, e);
+            return;
+        }
+
+        final Map<String, List<Manifest.Step>> projects = manifest.getProjects();
+        final AtomicInteger done = new AtomicInteger();
+        final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, projects.size())));
+        for (Map.Entry<String, List<Manifest.Step>> project : projects.entrySet()) {
+            executor.execute(() -> {
+                if (!runProject(project.getKey(), project.getValue())) {
+                    failed.add(project.getKey());
+                }
+                logger.info("{}/{} projects done", done.incrementAndGet(), projects.size());
+            });
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            return;
+        }
+
+        if (!failed.isEmpty()) {
+            fail(String.format("The steps of %d project(s) failed: %s", failed.size(), String.join(", ", failed)));
+        }
+    }
+
+    /**
+     * Runs the steps of a project, stopping at the first failure.
+     * @return <code>true</code> if every step succeeded.
+     */
+    private boolean runProject(String project, List<Manifest.Step> steps) {
+        for (int i = 0; i < steps.size(); i++) {
+            final Manifest.Step step = steps.get(i);
+            logger.info("[{}] Step {}/{}: {}", project, i + 1, steps.size(), step);
+
+            final long beginning = System.currentTimeMillis();
+            try {
+                final Command command = Steps.create(step.getName(), step.getArguments());
+                command.run();
+                if (command.hasFailed()) {
+                    final String message = String.format("[%s] Step '%s' failed, see the errors above", project, step.getName());
+                    System.err.println(message);
+                    logger.error(message);
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                final String message = String.format("[%s] Step '%s' failed: %s", project, step.getName(), e.getMessage());
+                System.err.println(message);
+                logger.error(message, e);
+                return false;
+            }
+            logger.info("[{}] Step {}/{} done in {} s", project, i + 1, steps.size(), (System.currentTimeMillis() - beginning) / 1000);
+        }
+        return true;
+    }
+}
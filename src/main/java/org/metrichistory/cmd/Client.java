@@ -0,0 +1,83 @@
+package org.metrichistory.cmd;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends a command to a server started with {@link Serve} and prints its output. Relative paths in the arguments are
+ * resolved from the folder where the server was started. The request carries the token the server wrote for the
+ * current user.
+ */
+@CommandLine.Command(
+        name = "client",
+        description = "Sends a command to a server started with 'serve' and prints its output.")
+public class Client extends Command {
+    private static final Logger logger = LoggerFactory.getLogger(Client.class);
+
+    @CommandLine.Option(names = {"-p", "--port"}, paramLabel = "PORT", description = "Port of the server.", defaultValue = "" + Serve.DEFAULT_PORT, showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int port;
+
+    @CommandLine.Parameters(index = "0", description = "Command run by the server (collect, diff, snapshot, ...) or 'stop' to stop the server.")
+    private String command;
+
+    @CommandLine.Parameters(index = "1..*", description = "Arguments of the command.")
+    private List<String> arguments = new ArrayList<>();
+
+    private final Path tokenFolder;
+
+    public Client() {
+        this(Serve.TOKEN_FOLDER);
+    }
+
+    Client(Path tokenFolder) {
+        this.tokenFolder = tokenFolder;
+    }
+
+    @Override
+    public void run() {
+        try {
+            final String token = new String(Files.readAllBytes(Serve.tokenFile(tokenFolder, port)), StandardCharsets.UTF_8).trim();
+            final URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), port, "/" + command);
+            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty(Serve.TOKEN_HEADER, token);
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(String.join("\n", arguments).getBytes(StandardCharsets.UTF_8));
+            }
+
+            final int status = connection.getResponseCode();
+            final boolean success = status < 400;
+            try (InputStream in = success ? connection.getInputStream() : connection.getErrorStream()) {
+                if(in != null) {
+                    IOUtils.copy(in, success ? System.out : System.err);
+                }
+            }
+            if(!success) {
+                fail(String.format("The command '%s' failed on the server (HTTP status %d).", command, status));
+            }
+        } catch (NoSuchFileException | ConnectException e) {
+            fail(String.format("No server is listening on port %d, start one with 'serve'.", port));
+        } catch (IOException e) {
+            final String message = String.format("The command cannot be sent to the server: %s", e.getMessage());
+            fail(message);
+            logger.error(message, e);
+        }
+    }
+}
@@ -2,14 +2,32 @@ package org.metrichistory.cmd;
 
 import org.metrichistory.analyzer.Analyzer;
 import org.metrichistory.analyzer.AnalyzerBuilder;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.analyzer.InProcessAnalyzer;
+import org.metrichistory.analyzer.IncrementalAnalyzer;
+import org.metrichistory.analyzer.ProcessPool;
+import org.metrichistory.analyzer.TimeBudget;
+import org.metrichistory.analyzer.ck.BlobMetricCache;
+import org.metrichistory.analyzer.ck.CKMetrics;
+import org.metrichistory.analyzer.sourcemeter.BackgroundConverter;
 import org.metrichistory.analyzer.sourcemeter.SourceMeterConverter;
 import org.metrichistory.cmd.util.ProjectNameResolver;
+import org.metrichistory.mining.AnalysisCache;
 import org.metrichistory.mining.Collector;
+import org.metrichistory.mining.FileFilter;
+import org.metrichistory.mining.LeaseManager;
+import org.metrichistory.mining.ParallelCollector;
+import org.metrichistory.mining.PipelinedCollector;
+import org.metrichistory.mining.ProgressJournal;
+import org.metrichistory.mining.RevisionScheduler;
 import org.metrichistory.mining.Snapshot;
 import org.metrichistory.model.FormatException;
 import org.metrichistory.model.Genealogy;
 import org.metrichistory.storage.CommitReader;
+import org.metrichistory.storage.RawFolderSink;
+import org.metrichistory.storage.ResultSink;
 import org.metrichistory.storage.SimpleCommitReader;
+import org.metrichistory.util.ResidentCache;
 import org.metrichistory.versioncontrol.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,8 +36,10 @@ import picocli.CommandLine;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -55,6 +75,77 @@ public class Collect extends Command {
     @CommandLine.Option(names = {"-f", "--folder"}, arity = "0..1", description = "Specifies the folder on which the analyzer will run (by default, it will run in <repositoryPath>).")
     private String folderOption;
 
+    @CommandLine.Option(names = {"-w", "--workers"}, paramLabel = "N", description = "Number of versions analyzed in parallel, each in its own working copy of the repository.", defaultValue = "1", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int workers;
+
+    @CommandLine.Option(names = {"--workspace"}, paramLabel = "WORKSPACE", description = "Folder where the working copies of the workers are created (by default, a temporary folder).")
+    private String workspaceOption;
+
+    @CommandLine.Option(names = {"--pipeline"}, paramLabel = "N", description = "Checks out the next N versions in separate working copies while a version is analyzed (by default, versions are checked out and analyzed one after the other).", defaultValue = "0")
+    private int pipeline;
+
+    @CommandLine.Option(names = {"--process-memory"}, paramLabel = "MB", description = "Physical memory needed by one SourceMeter process. With several workers, a new process only starts when this amount of memory and a core are free.", defaultValue = "4096", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private long processMemory;
+
+    @CommandLine.Option(names = {"--timeout"}, paramLabel = "SECONDS", description = "Maximum duration of SourceMeter for one version. By default, it is four times the 90th percentile of the durations of the last versions. A negative value disables the timeout. The processes started by SourceMeter are only stopped with it on the systems providing setsid (e.g. Linux).", defaultValue = "0")
+    private long timeout;
+
+    @CommandLine.Option(names = {"--timeout-retries"}, paramLabel = "N", description = "Number of times a version which timed out is analyzed again, with a larger time budget, after the other versions.", defaultValue = "0", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int timeoutRetries;
+
+    @CommandLine.Option(names = {"--production"}, description = "Only analyzes production code: the files in src/test, javatests or examples folders are never parsed.")
+    private boolean production;
+
+    @CommandLine.Option(names = {"-x", "--exclude"}, paramLabel = "PATTERN", description = "Excludes the files whose path contains PATTERN, or matches PATTERN if it contains * or ?. Can be repeated.")
+    private List<String> exclusions = new ArrayList<>();
+
+    @CommandLine.Option(names = {"--sparse"}, description = "Only writes the files matching --sparse-include and accepted by the exclusions in the working directory when checking out a version. The working directory is restored at the end.")
+    private boolean sparse;
+
+    @CommandLine.Option(names = {"--sparse-include"}, paramLabel = "GLOB", description = "Files written in the working directory with --sparse.", defaultValue = "**/*.java", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private String sparseInclude;
+
+    @CommandLine.Option(names = {"--no-checkout"}, description = "Reads the versions directly from the repository instead of checking them out. The working directory is never modified and bare repositories are supported. Only available for analyzers running in-process (CK).")
+    private boolean noCheckout;
+
+    @CommandLine.Option(names = {"--incremental"}, description = "Derives the results of a version from the results of its parent when available, analyzing only the files changed in the version. Like with --blob-cache, the metrics depending on other files (CBO, DIT, NOC, RFC) differ from a full analysis. Only available for the CK analyzer.")
+    private boolean incremental;
+
+    @CommandLine.Option(names = {"-s", "--schedule"}, description = "Orders the versions to minimize the number of files rewritten between consecutive checkouts.")
+    private boolean schedule;
+
+    @CommandLine.Option(names = {"-c", "--content-cache"}, description = "Reuses the results of an analyzed version for the versions with identical Java sources. The cache is kept in OUTPUT/<project>/<analyzer> across runs.")
+    private boolean contentCache;
+
+    @CommandLine.Option(names = {"--blob-cache"}, paramLabel = "FILE", description = "File caching the metrics of each source file across versions and runs, so identical files are parsed only once. The metrics depending on other files (CBO, DIT, NOC, RFC) differ from a full analysis: they are computed without the cached files, and the cached files keep the values of the version in which they were parsed. Only available for the CK analyzer.")
+    private String blobCacheOption;
+
+    @CommandLine.Option(names = {"--blob-cache-size"}, paramLabel = "FILES", description = "Maximum number of source files kept in the blob cache. The least recently used files are evicted first.", defaultValue = "" + BlobMetricCache.DEFAULT_CAPACITY, showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int blobCacheSize;
+
+    @CommandLine.Option(names = {"--retry-failed"}, description = "Analyzes again the versions whose analysis failed in a previous run. The progress of each run is recorded in OUTPUT/<project>/<analyzer>/" + ProgressJournal.FILE_NAME + " and the versions analyzed in a previous run are skipped while their results remain.")
+    private boolean retryFailed;
+
+    @CommandLine.Option(names = {"--convert"}, description = "Converts the results of each version to a RAW file in OUTPUT/<project>/raw while the next versions are analyzed, and deletes the results of SourceMeter. Only available for the SourceMeter analyzer.")
+    private boolean convert;
+
+    @CommandLine.Option(names = {"--gzip"}, description = "Compresses the RAW files written with --convert.")
+    private boolean gzip;
+
+    @CommandLine.Option(names = {"--shard"}, description = "Shares the versions with the other processes running with --shard on the same OUTPUT, possibly on other machines. Each version is leased to one process through a file in OUTPUT/<project>/<analyzer>/" + LeaseManager.FOLDER_NAME + ", and marked as done once analyzed. Replaces the journal.")
+    private boolean shard;
+
+    @CommandLine.Option(names = {"--lease-expiry"}, paramLabel = "SECONDS", description = "Duration after which the lease of a process which stopped renewing it, for instance because it crashed, is recovered by another process with --shard.", defaultValue = "600", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int leaseExpiry;
+
+    private BlobMetricCache blobCache;
+    private ResultSink sink;
+    private ProcessPool processPool;
+    private TimeBudget timeBudget;
+    private String logDirectory;
+    private BackgroundConverter converter;
+    private FileFilter filter;
+
     @Override
     public void run() {
         final Set<String> versions = retrieveVersions(versionsParam);
@@ -68,6 +159,7 @@ public class Collect extends Command {
         executable = normalizePath(executable);
         final String folder = Optional.ofNullable(folderOption).orElse(repositoryPath);
         final String projectName = Optional.ofNullable(projectNameOption).orElseGet(new ProjectNameResolver(repositoryPath));
+        filter = buildFilter();
 
         // Snapshot mode is only activated by specifying one version inline.
         if(isSingleVersion(versionsParam)) {
@@ -76,23 +168,159 @@ public class Collect extends Command {
         }
 
         try {
-            final List<String> versionsToAnalyze = retrieveVersionsToAnalyze(versions, repositoryPath, includeParents);
-            final Analyzer analyzer = buildAnalyzer(projectName, folder);
-            final Collector collector = new Collector(analyzer);
+            List<String> versionsToAnalyze = retrieveVersionsToAnalyze(versions, repositoryPath, includeParents);
+            if(schedule) {
+                versionsToAnalyze = scheduleVersions(versionsToAnalyze);
+            }
 
-            collector.analyzeVersions(versionsToAnalyze, repositoryPath);
+            if(blobCacheOption != null) {
+                if(this.analyzer != AnalyzerBuilder.Census.CK) {
+                    fail(String.format("The analyzer %s cannot use a blob cache", this.analyzer));
+                    return;
+                }
+                final String blobCacheFile = normalizePath(blobCacheOption);
+                blobCache = ResidentCache.get(String.join(":", "blob-cache", blobCacheFile, "" + blobCacheSize),
+                        () -> new BlobMetricCache(blobCacheFile, CKMetrics.CONFIGURATION, blobCacheSize));
+            }
+
+            if(convert && this.analyzer != AnalyzerBuilder.Census.SOURCEMETER) {
+                fail(String.format("The results of the analyzer %s cannot be converted", this.analyzer));
+                return;
+            }
+
+            if(this.analyzer == AnalyzerBuilder.Census.SOURCEMETER) {
+                processPool = ProcessPool.perCore(processMemory * 1024 * 1024);
+                // The workers write their results in their own folder, but their output goes next to the final results.
+                logDirectory = String.join(File.separator, outputPath, projectName, "java");
+                if(timeout >= 0) {
+                    timeBudget = timeout == 0 ? TimeBudget.adaptive() : TimeBudget.fixed(timeout * 1000);
+                }
+                if(convert) {
+                    final String rawFolder = String.join(File.separator, outputPath, projectName, "raw");
+                    logger.info("Converting the results to {}", rawFolder);
+                    converter = new BackgroundConverter(rawFolder, gzip);
+                }
+            }
+            if(this.analyzer == AnalyzerBuilder.Census.CK) {
+                final String resultsFolder = String.join(File.separator, outputPath, projectName, "ck");
+                logger.info("Saving the results to {}", resultsFolder);
+                sink = new RawFolderSink(resultsFolder, CKMetrics.LABELS);
+            }
+
+            final Analyzer analyzer = buildAnalyzer(projectName, folder, outputPath);
+            if(noCheckout && !(analyzer instanceof InProcessAnalyzer)) {
+                fail(String.format("The analyzer %s cannot be used without checkout", this.analyzer));
+                return;
+            }
+            if(incremental && !(analyzer instanceof IncrementalAnalyzer)) {
+                fail(String.format("The analyzer %s cannot analyze versions incrementally", this.analyzer));
+                return;
+            }
+            if((noCheckout || incremental) && !new File(normalizePath(folder)).toPath().startsWith(repositoryPath)) {
+                fail("The folder must be inside the repository with --no-checkout or --incremental");
+                return;
+            }
+            if(contentCache && !(analyzer instanceof CacheableAnalyzer)) {
+                fail(String.format("The analyzer %s cannot reuse its results", this.analyzer));
+                return;
+            }
+            if(pipeline > 0 && (workers > 1 || noCheckout || incremental || timeoutRetries > 0)) {
+                fail("The pipeline cannot be combined with --workers, --no-checkout, --incremental or --timeout-retries");
+                return;
+            }
+            if(shard && (workers > 1 || pipeline > 0 || retryFailed)) {
+                fail("--shard cannot be combined with --workers, --pipeline or --retry-failed: run several processes instead, and delete OUTPUT/<project>/<analyzer>/" + LeaseManager.FOLDER_NAME + "/<version>.done to analyze a version again");
+                return;
+            }
+            // Each project and analyzer has its own progress, leases and cache, so analyzing the same versions with
+            // another analyzer into the same OUTPUT doesn't skip them.
+            final String progressFolder = String.join(File.separator, outputPath, projectName, this.analyzer.name().toLowerCase());
+            final AnalysisCache cache = contentCache ? createCache(progressFolder) : null;
+            final Predicate<String> sparseFiles = sparse ? FileFilter.matching(sparseInclude).and(filter::accept) : null;
+
+            try (ProgressJournal journal = shard ? null : new ProgressJournal(progressFolder);
+                 LeaseManager leases = shard ? new LeaseManager(progressFolder, leaseExpiry * 1000L) : null;
+                 BackgroundConverter ignored = converter) {
+                if(workers > 1) {
+                    final String workspace = workspaceOption == null ? createWorkspace() : normalizePath(workspaceOption);
+                    final ParallelCollector collector = new ParallelCollector(analyzer,
+                            (workerFolder, workerOutput) -> buildAnalyzer(projectName, workerFolder, workerOutput),
+                            workers, workspace);
+                    collector.setFilter(filter);
+                    collector.setSparse(sparseFiles);
+                    collector.setCheckoutFree(noCheckout);
+                    collector.setIncremental(incremental);
+                    collector.setCache(cache);
+                    collector.setJournal(journal, retryFailed);
+                    collector.setTimeoutRetries(timeoutRetries);
+
+                    collector.analyzeVersions(versionsToAnalyze, repositoryPath, normalizePath(folder));
+                } else if(pipeline > 0) {
+                    final String workspace = workspaceOption == null ? createWorkspace() : normalizePath(workspaceOption);
+                    final PipelinedCollector collector = new PipelinedCollector(analyzer,
+                            (slotFolder, slotOutput) -> buildAnalyzer(projectName, slotFolder, slotOutput),
+                            pipeline, workspace);
+                    collector.setFilter(filter);
+                    collector.setSparse(sparseFiles);
+                    collector.setCache(cache);
+                    collector.setJournal(journal, retryFailed);
+
+                    collector.analyzeVersions(versionsToAnalyze, repositoryPath, normalizePath(folder));
+                } else {
+                    final Collector collector = new Collector(analyzer);
+                    collector.setFilter(filter);
+                    collector.setSparse(sparseFiles);
+                    collector.setCheckoutFree(noCheckout);
+                    collector.setIncremental(incremental);
+                    collector.setCache(cache);
+                    collector.setJournal(journal, retryFailed);
+                    collector.setTimeoutRetries(timeoutRetries);
+                    collector.setLeases(leases);
+                    collector.analyzeVersions(versionsToAnalyze, repositoryPath, normalizePath(folder));
+                }
+            }
+
+            if(blobCache != null) {
+                logger.info("Blob cache: {} hits, {} misses", blobCache.getHits(), blobCache.getMisses());
+                blobCache.save();
+            }
         } catch (VcsNotFound e) {
-            System.err.println(String.format("The repository at '%s' cannot be found", repositoryPath));
+            fail(String.format("The repository at '%s' cannot be found", repositoryPath));
             logger.error("Failed to access the repository {}", repositoryPath);
         } catch (VcsCleanupException e) {
-            e.printStackTrace();
+            fail(String.format("The repository could not be cleaned up: %s", e.getMessage()));
             logger.error("Failed to cleanup the repository", e);
         } catch (VcsOperationException e) {
-            e.printStackTrace();
-            logger.error("The version control system encountered an error {}", e.getMessage());
+            fail(String.format("The version control system encountered an error: %s", e.getMessage()));
+            logger.error("The version control system encountered an error", e);
+        } catch (IOException e) {
+            fail(String.format("An error occurred while preparing the analysis: %s", e.getMessage()));
+            logger.error("Failed to prepare the analysis", e);
+        }
+    }
+
+    private FileFilter buildFilter() {
+        final FileFilter fileFilter = production ? FileFilter.production() : new FileFilter();
+        exclusions.forEach(fileFilter::addExclusionPattern);
+        return fileFilter;
+    }
+
+    private List<String> scheduleVersions(List<String> versions) throws IOException, VcsCleanupException {
+        logger.info("Scheduling {} revisions", versions.size());
+        try (Vcs vcs = VcsBuilder.create(repositoryPath)) {
+            return new RevisionScheduler(vcs).schedule(versions);
         }
     }
 
+    private AnalysisCache createCache(String folder) throws IOException {
+        Files.createDirectories(new File(folder).toPath());
+        return new AnalysisCache(folder + File.separator + "analysis-cache.csv");
+    }
+
+    private String createWorkspace() throws IOException {
+        return Files.createTempDirectory("metric-history").toString();
+    }
+
     private List<String> retrieveVersionsToAnalyze(Set<String> versions, String repositoryPath, boolean includeParents) throws VcsNotFound {
         final List<String> result = new ArrayList<>();
 
@@ -112,33 +340,40 @@ public class Collect extends Command {
         } else {
             versionsParam = normalizePath(versionsParam);
             logger.info("Loading {}", versionsParam);
-            final Set<String> versions = new HashSet<>();
+            final Set<String> versions = new LinkedHashSet<>();
             try {
                 final CommitReader reader = new SimpleCommitReader();
                 versions.addAll(reader.make(versionsParam));
             } catch (FileNotFoundException e) {
-                System.err.println(String.format("File '%s' cannot be found.", versionsParam));
-                System.exit(0);
+                fail(String.format("File '%s' cannot be found.", versionsParam));
+                return Collections.emptySet();
             } catch (IOException e) {
-                System.err.println(String.format("File '%s' cannot be parsed", versionsParam));
-                System.exit(0);
+                fail(String.format("File '%s' cannot be parsed", versionsParam));
+                return Collections.emptySet();
             }
             return versions;
         }
     }
 
-    private Analyzer buildAnalyzer(String projectName, String folder) {
+    private Analyzer buildAnalyzer(String projectName, String folder, String outputDirectory) {
         final AnalyzerBuilder analyzerBuilder = new AnalyzerBuilder();
         analyzerBuilder.setProjectName(projectName);
         analyzerBuilder.setInputDirectory(folder);
-        analyzerBuilder.setOutputDirectory(outputPath);
+        analyzerBuilder.setOutputDirectory(outputDirectory);
         analyzerBuilder.setExecutable(executable);
+        analyzerBuilder.setBlobCache(blobCache);
+        analyzerBuilder.setResultSink(sink);
+        analyzerBuilder.setProcessPool(processPool);
+        analyzerBuilder.setTimeBudget(timeBudget);
+        analyzerBuilder.setLogDirectory(logDirectory);
+        analyzerBuilder.setConverter(converter);
         return analyzerBuilder.build(analyzer);
     }
 
     private void doASnapshot(String projectName, String folder) {
-        final Analyzer analyzer = buildAnalyzer(projectName, folder);
+        final Analyzer analyzer = buildAnalyzer(projectName, folder, outputPath);
         final Collector collector = new Collector(analyzer);
+        collector.setFilter(filter);
         final String outputFilePath = outputPath + File.separator + versionsParam + ".csv";
 
         logger.info("Output file: {}", outputFilePath);
@@ -150,13 +385,13 @@ public class Collect extends Command {
         try {
             snapshot.execute(versionsParam, folder, outputFilePath);
         } catch (VcsCleanupException e) {
-            e.printStackTrace();
+            fail(String.format("The repository could not be cleaned up: %s", e.getMessage()));
             logger.error("Failed to cleanup the repository", e);
         } catch (VcsNotFound e) {
-            System.err.println(String.format("The repository at '%s' cannot be found", repositoryPath));
+            fail(String.format("The repository at '%s' cannot be found", repositoryPath));
             logger.error("Failed to access the repository {}", repositoryPath);
         } catch (FormatException | IOException e) {
-            e.printStackTrace();
+            fail(String.format("A disk error occurred while converting the results: %s", e.getMessage()));
             logger.error("A disk error occurred while converting the results", e);
         } finally {
             final long elapsed = System.nanoTime() - beginning;
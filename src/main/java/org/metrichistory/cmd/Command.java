@@ -2,11 +2,30 @@ package org.metrichistory.cmd;
 
 import org.metrichistory.storage.DiskUtils;
 
-abstract class Command implements Runnable {
+/**
+ * Base class of the commands of the application.
+ */
+public abstract class Command implements Runnable {
+    private volatile boolean failed;
 
     String normalizePath(String arg) {
         if(arg == null)
             return null;
         return DiskUtils.normalizePath(arg);
     }
+
+    /**
+     * Prints an error and records that the command failed, for the commands running it on their behalf.
+     */
+    void fail(String message) {
+        System.err.println(message);
+        failed = true;
+    }
+
+    /**
+     * @return <code>true</code> if the command reported an error while it ran.
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
 }
@@ -32,13 +32,13 @@ public class Convert extends Command {
         try {
             SourceMeterConverter.convert(inputPath, output);
         } catch (DirectoryCreationException e) {
-            System.err.println(String.format("The output directory '%s' cannot be created", output));
+            fail(String.format("The output directory '%s' cannot be created", output));
             logger.error(e.getMessage(), e);
         } catch (FormatException e) {
-            System.err.println(String.format("'%s' is not a valid Source Meter directory", inputPath));
+            fail(String.format("'%s' is not a valid Source Meter directory", inputPath));
             logger.error(e.getMessage(), e);
         } catch (IOException e) {
-            System.err.println(String.format("An writing or reading error on a file occurred: %s", e.getMessage()));
+            fail(String.format("An writing or reading error on a file occurred: %s", e.getMessage()));
             logger.error(e.getMessage(), e);
         }
     }
@@ -4,6 +4,7 @@ import org.metrichistory.cmd.util.ProgressIndicator;
 import org.metrichistory.fluctuation.*;
 import org.metrichistory.mining.VersionComparator;
 import org.metrichistory.model.MeasureStore;
+import org.metrichistory.model.RevisionId;
 import org.metrichistory.storage.GenealogyRepo;
 import org.metrichistory.storage.MeasureRepository;
 import org.metrichistory.storage.SaveTarget;
@@ -12,11 +13,10 @@ import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 /**
  * Computes the metric fluctuations from file(s) in RAW format.
@@ -46,6 +46,10 @@ public class Difference extends Command {
             defaultValue = "ABSOLUTE", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
     private How howOption;
 
+    @CommandLine.Option(names = {"--memory-budget"}, paramLabel = "MB",
+            description = "Keeps the measures in memory-mapped files instead of the heap, with at most this memory mapped at once, so files of any size can be processed.")
+    private long memoryBudget;
+
     @Override
     public void run() {
         ancestryFile = normalizePath(ancestryFile);
@@ -57,14 +61,14 @@ public class Difference extends Command {
             execute(changesComparator);
         } catch (IOException e) {
             final String errorMessage = String.format("The ancestry file (%s) cannot be read", ancestryFile);
-            System.err.println(errorMessage);
+            fail(errorMessage);
             logger.error(errorMessage, e);
         }
     }
 
     private void execute(ChangesComparator comparator) throws IOException {
         final GenealogyRepo repo = new GenealogyRepo();
-        final HashMap<String, String> ancestry = repo.load(ancestryFile);
+        final Map<RevisionId, RevisionId> ancestry = repo.load(ancestryFile);
         if (ancestry.isEmpty()) {
             return;
         }
@@ -74,16 +78,22 @@ public class Difference extends Command {
             return;
         }
 
-        final MeasureRepository measureRepository = MeasureRepository.build(input);
+        try (MeasureRepository measureRepository = MeasureRepository.build(input, memoryBudget)) {
+            compare(ancestry, measureRepository, comparator, outputSink);
+        }
+    }
+
+    private void compare(Map<RevisionId, RevisionId> ancestry, MeasureRepository measureRepository,
+                         ChangesComparator comparator, SaveTarget outputSink) {
         final VersionComparator versionComparator = new VersionComparator(comparator);
 
-        final LinkedList<Map.Entry<String, String>> entries = new LinkedList<>(ancestry.entrySet());
+        final LinkedList<Map.Entry<RevisionId, RevisionId>> entries = new LinkedList<>(ancestry.entrySet());
         final ProgressIndicator progressIndicator = new ProgressIndicator(entries.size(), 5);
         final LinkedList<Error> errors = new LinkedList<>();
 
         entries.forEach(entry -> {
-            final String version = entry.getKey();
-            final String parent = entry.getValue();
+            final String version = entry.getKey().toString();
+            final String parent = entry.getValue().toString();
 
             try {
                 final MeasureStore measures = measureRepository.get(version, parent);
@@ -97,7 +107,7 @@ public class Difference extends Command {
         });
 
         if(errors.size() > 0) {
-            System.err.println(String.format("The command terminated with %d error%s, see the logs for more details.", errors.size(), errors.size() > 1 ? "s" : ""));
+            fail(String.format("The command terminated with %d error%s, see the logs for more details.", errors.size(), errors.size() > 1 ? "s" : ""));
             logger.error("{} errors occurred during processing:", errors.size());
             errors.forEach(Error::display);
         }
@@ -106,7 +116,7 @@ public class Difference extends Command {
     private ChangesComparator buildComparator(On onOption, How howOption) {
         Objects.requireNonNull(onOption);
 
-        final BiFunction<Double, Double, Double> computeDifference = buildComputationMethod(howOption);
+        final DoubleBinaryOperator computeDifference = buildComputationMethod(howOption);
 
         switch (onOption){
             case ALL:
@@ -118,7 +128,7 @@ public class Difference extends Command {
         }
     }
 
-    private BiFunction<Double, Double, Double> buildComputationMethod(How howOption) {
+    private DoubleBinaryOperator buildComputationMethod(How howOption) {
         switch (howOption) {
             case RELATIVE:
                 return new RelativeChange();
@@ -39,17 +39,26 @@ public class FilterRefactoring extends Command {
             "results in the standard output if omitted.")
     private String outputFile;
 
+    @CommandLine.Option(names = {"--memory-budget"}, paramLabel = "MB",
+            description = "Keeps the measures in memory-mapped files instead of the heap, with at most this memory mapped at once, so files of any size can be processed.")
+    private long memoryBudget;
+
     @Override
     public void run() {
         refactoringsFile = normalizePath(refactoringsFile);
         changesFile = normalizePath(changesFile);
 
         try {
-            final MeasureStore model = Stores.loadClasses(changesFile);
-            final HashMap<String, RefactoringDetail> detailedRefactorings = loadRefactorings(refactoringsFile);
-
-            final HashMap<String, List<String>> changeSet = aggregateClassesForEachRevision(detailedRefactorings);
-            final MeasureStore results = filter(model, changeSet);
+            final MeasureStore model = Stores.loadClasses(changesFile, memoryBudget);
+            final MeasureStore results;
+            try {
+                final HashMap<String, RefactoringDetail> detailedRefactorings = loadRefactorings(refactoringsFile);
+
+                final HashMap<String, List<String>> changeSet = aggregateClassesForEachRevision(detailedRefactorings);
+                results = filter(model, changeSet);
+            } finally {
+                Stores.release(model);
+            }
 
             final StoreOutput output = OutputBuilder.create(outputFile);
             output.export(results);
@@ -1,6 +1,7 @@
 package org.metrichistory.cmd;
 
 import org.metrichistory.model.MeasureStore;
+import org.metrichistory.model.RevisionId;
 import org.metrichistory.storage.Database;
 import org.metrichistory.storage.DatabaseBuilder;
 import org.metrichistory.storage.GenealogyRepo;
@@ -9,7 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Map;
 
 import picocli.CommandLine;
 
@@ -35,6 +36,10 @@ public class Mongo extends Command {
     @CommandLine.Parameters(index = "3", arity = "0..1", description = "URI of the database")
     private String connectionString;
 
+    @CommandLine.Option(names = {"--memory-budget"}, paramLabel = "MB",
+            description = "Keeps the measures in memory-mapped files instead of the heap, with at most this memory mapped at once, so files of any size can be processed.")
+    private long memoryBudget;
+
     @Override
     public void run() {
         file = normalizePath(file);
@@ -44,19 +49,27 @@ public class Mongo extends Command {
         try {
             switch (action) {
                 case "raw":
-                    final MeasureStore raw = Stores.loadClasses(file);
-                    database.setRaw(raw);
+                    final MeasureStore raw = Stores.loadClasses(file, memoryBudget);
+                    try {
+                        database.setRaw(raw);
+                    } finally {
+                        Stores.release(raw);
+                    }
                     break;
 
                 case "diff":
-                    final MeasureStore diff = Stores.loadClasses(file);
-                    database.setDiff(diff);
+                    final MeasureStore diff = Stores.loadClasses(file, memoryBudget);
+                    try {
+                        database.setDiff(diff);
+                    } finally {
+                        Stores.release(diff);
+                    }
                     break;
 
                 case "ancestry":
 
                     final GenealogyRepo repo = new GenealogyRepo();
-                    final HashMap<String, String> ancestry = repo.load(file);
+                    final Map<RevisionId, RevisionId> ancestry = repo.load(file);
 
                     if (ancestry.isEmpty()) {
                         logger.warn("No ancestry was found...");
@@ -52,7 +52,7 @@ public class ReleaseHistory extends Command {
             tagList = getTags(tagListFile);
         } catch (IOException e) {
             final String message = String.format("Failed to read tags in file '%s'", tagListFile);
-            System.err.println(message);
+            fail(message);
             logger.error(message, e);
             return;
         }
@@ -97,7 +97,8 @@ public class ReleaseHistory extends Command {
                         try {
                             reporter.report(lineItems);
                         } catch (IOException e) {
-                            e.printStackTrace();
+                            fail(String.format("Couldn't write on output file (%s)", outputFile));
+                            logger.error("Failed to report the releases", e);
                         }
                     });
 
@@ -109,14 +110,14 @@ public class ReleaseHistory extends Command {
 
         } catch (VcsNotFound e) {
             final String message = String.format("Directory '%s' cannot be interpreted as a version control project", repositoryPath);
-            System.err.println(message);
+            fail(message);
             logger.error(message, repositoryPath);
         } catch (IOException e) {
             final String message = String.format("Couldn't write on output file (%s)", outputFile);
-            System.err.println(message);
+            fail(message);
             logger.error(message, e);
         } catch (Exception e) {
-            e.printStackTrace();
+            fail(String.format("An unknown error occurred while accessing the repository: %s", e.getMessage()));
             logger.error("An unknown error occurred while accessing the repository", e);
         }
     }
@@ -0,0 +1,231 @@
+package org.metrichistory.cmd;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.metrichistory.util.ResidentCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the commands sent by {@link Client} in a long-running process. The repositories, the results loaded from the
+ * RAW files and the blob caches stay in memory between the commands (see {@link ResidentCache}), and the code is
+ * already compiled by the JIT.
+ * A command is sent with <code>POST /&lt;command&gt;</code>, with one argument per line in the body. The response
+ * contains the output of the command. <code>snapshot</code> is a <code>collect</code> of a single version.
+ * Each request must carry the token written by the server in a file only readable by its user (see
+ * {@link #tokenFile(Path, int)}). Requests from web pages (with an <code>Origin</code> header) or sent to another host
+ * name than the loopback address are rejected, so a page cannot reach the server through DNS rebinding.
+ * The commands write on the standard output, which is redirected to the response while they run: the requests are
+ * served one at a time, and anything written on the standard output or error by other threads of the server during a
+ * command is part of its response.
+ */
+@CommandLine.Command(
+        name = "serve",
+        description = "Runs the commands sent with 'client' in a long-running process, keeping the repositories and the results in memory.")
+public class Serve extends Command {
+    private static final Logger logger = LoggerFactory.getLogger(Serve.class);
+
+    static final int DEFAULT_PORT = 7341;
+    static final String TOKEN_HEADER = "X-Metric-History-Token";
+    static final Path TOKEN_FOLDER = Paths.get(System.getProperty("user.home"), ".metric-history");
+
+    @CommandLine.Option(names = {"-p", "--port"}, paramLabel = "PORT", description = "Port listened on the loopback interface.", defaultValue = "" + DEFAULT_PORT, showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int port;
+
+    private final Path tokenFolder;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private byte[] token;
+
+    public Serve() {
+        this(DEFAULT_PORT, TOKEN_FOLDER);
+    }
+
+    Serve(int port, Path tokenFolder) {
+        this.port = port;
+        this.tokenFolder = tokenFolder;
+    }
+
+    /**
+     * @return the file containing the token of the server listening on <code>port</code>.
+     */
+    static Path tokenFile(Path tokenFolder, int port) {
+        return tokenFolder.resolve("serve-" + port + ".token");
+    }
+
+    @Override
+    public void run() {
+        ResidentCache.enable();
+
+        final HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            final String message = String.format("Cannot listen on port %d: %s", port, e.getMessage());
+            fail(message);
+            logger.error(message, e);
+            return;
+        }
+
+        final Path tokenFile = tokenFile(tokenFolder, port);
+        try {
+            token = writeToken(tokenFile);
+        } catch (IOException e) {
+            server.stop(0);
+            fail(String.format("Cannot write the token of the server in %s: %s", tokenFile, e.getMessage()));
+            logger.error("Cannot write the token of the server in {}", tokenFile, e);
+            return;
+        }
+
+        // The commands write on the standard output, which is redirected to the response: they run one at a time.
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        logger.info("Listening on {}", server.getAddress());
+
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+            try {
+                Files.deleteIfExists(tokenFile);
+            } catch (IOException e) {
+                logger.warn("The token {} could not be deleted", tokenFile, e);
+            }
+        }
+    }
+
+    /**
+     * Writes a new random token in a file only readable by the current user. The file is written through a temporary
+     * file, so the token is never readable by other users, even briefly.
+     */
+    private static byte[] writeToken(Path tokenFile) throws IOException {
+        final byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        final StringBuilder token = new StringBuilder();
+        for (byte b : random) {
+            token.append(String.format("%02x", b));
+        }
+
+        Files.createDirectories(tokenFile.getParent());
+        final Path temporary = FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+                ? Files.createTempFile(tokenFile.getParent(), "serve", ".tmp",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(tokenFile.getParent(), "serve", ".tmp");
+        Files.write(temporary, token.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return token.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks that a request comes from a client of the current user: it carries the token and was sent to the loopback
+     * address by something else than a web page.
+     */
+    private boolean isAuthorized(HttpExchange exchange) {
+        if(exchange.getRequestHeaders().containsKey("Origin")) {
+            return false;
+        }
+
+        final List<String> hosts = Arrays.asList("127.0.0.1:" + port, "localhost:" + port, "[::1]:" + port);
+        final String host = exchange.getRequestHeaders().getFirst("Host");
+        if(host == null || !hosts.contains(host.toLowerCase())) {
+            return false;
+        }
+
+        final String received = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        return received != null && MessageDigest.isEqual(token, received.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String command = exchange.getRequestURI().getPath().substring(1);
+        if(!isAuthorized(exchange)) {
+            logger.warn("Rejected a request for {} from {}", command, exchange.getRemoteAddress());
+            respond(exchange, 403, "Forbidden\n");
+            return;
+        }
+        if(!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Only POST is supported\n");
+            return;
+        }
+        if("stop".equals(command)) {
+            respond(exchange, 200, "Stopped\n");
+            stopped.countDown();
+            return;
+        }
+
+        final String[] arguments = readArguments(exchange);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final PrintStream standardOutput = System.out;
+        final PrintStream standardError = System.err;
+        int status = 200;
+
+        final long beginning = System.nanoTime();
+        try (PrintStream capture = new PrintStream(output, true, StandardCharsets.UTF_8.name())) {
+            System.setOut(capture);
+            System.setErr(capture);
+            final Command step = Steps.create("snapshot".equals(command) ? "collect" : command, arguments);
+            step.run();
+            if (step.hasFailed()) {
+                status = 500;
+            }
+        } catch (IllegalArgumentException | CommandLine.ParameterException e) {
+            status = 400;
+            output.write((e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            status = 500;
+            logger.error("The command {} failed", command, e);
+            output.write(String.format("An unexpected error occurred: '%s'\n", e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            System.setOut(standardOutput);
+            System.setErr(standardError);
+        }
+        logger.info("{} done in {} ms", command, (System.nanoTime() - beginning) / 1_000_000);
+
+        respond(exchange, status, output.toByteArray());
+    }
+
+    private String[] readArguments(HttpExchange exchange) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isEmpty()).toArray(String[]::new);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
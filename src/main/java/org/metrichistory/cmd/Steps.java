@@ -0,0 +1,45 @@
+package org.metrichistory.cmd;
+
+import picocli.CommandLine;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Creates the commands run on behalf of another command, such as <code>batch</code> or <code>serve</code>.
+ */
+final class Steps {
+    private static final Map<String, Supplier<Command>> STEPS = new TreeMap<>();
+
+    static {
+        STEPS.put("ancestry", Ancestry::new);
+        STEPS.put("collect", Collect::new);
+        STEPS.put("convert", Convert::new);
+        STEPS.put("diff", Difference::new);
+        STEPS.put("revision-history", ReleaseHistory::new);
+    }
+
+    private Steps() {
+    }
+
+    /**
+     * Creates a new instance of a command, so the commands running in parallel don't share their options.
+     * @param name the name of the command
+     * @param arguments the arguments of the command, as on the command line
+     * @return the command, ready to run. {@link Command#hasFailed()} tells whether it succeeded once it ran.
+     * @throws IllegalArgumentException when the command is unknown
+     * @throws CommandLine.ParameterException when the arguments are not valid
+     */
+    static Command create(String name, String[] arguments) {
+        final Supplier<Command> command = STEPS.get(name);
+        if (command == null) {
+            throw new IllegalArgumentException(String.format("Unknown step '%s', expected one of %s", name, STEPS.keySet()));
+        }
+
+        final CommandLine commandLine = new CommandLine(command.get());
+        commandLine.setCaseInsensitiveEnumValuesAllowed(true);
+        commandLine.parse(arguments);
+        return commandLine.getCommand();
+    }
+}
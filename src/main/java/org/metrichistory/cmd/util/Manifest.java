@@ -0,0 +1,107 @@
+package org.metrichistory.cmd.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lists the steps to run for several projects. Each line contains the name of a project, the name of a step and its
+ * arguments, separated by spaces. Arguments containing spaces are written between double quotes. Empty lines and
+ * lines starting with <code>#</code> are ignored.
+ * <pre>
+ * ant  ancestry versions/ant.txt repositories/ant output/ant-parents.csv
+ * ant  collect  versions/ant.txt repositories/ant output CK
+ * </pre>
+ */
+public final class Manifest {
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    private final Map<String, List<Step>> projects = new LinkedHashMap<>();
+
+    private Manifest() {
+    }
+
+    public static Manifest read(String path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static Manifest parse(Reader reader) throws IOException {
+        final Manifest manifest = new Manifest();
+        final BufferedReader lines = new BufferedReader(reader);
+
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final List<String> tokens = tokenize(line);
+            if (tokens.size() < 2) {
+                throw new IOException(String.format("Line %d: a project and a step are expected", number));
+            }
+            final Step step = new Step(tokens.get(0), tokens.get(1), tokens.subList(2, tokens.size()));
+            manifest.projects.computeIfAbsent(step.getProject(), project -> new ArrayList<>()).add(step);
+        }
+        return manifest;
+    }
+
+    private static List<String> tokenize(String line) {
+        final List<String> tokens = new ArrayList<>();
+        final Matcher matcher = TOKEN.matcher(line);
+        while (matcher.find()) {
+            tokens.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the steps of each project, in the order of the manifest.
+     */
+    public Map<String, List<Step>> getProjects() {
+        return Collections.unmodifiableMap(projects);
+    }
+
+    public static final class Step {
+        private final String project;
+        private final String name;
+        private final List<String> arguments;
+
+        Step(String project, String name, List<String> arguments) {
+            this.project = project;
+            this.name = name;
+            this.arguments = new ArrayList<>(arguments);
+        }
+
+        public String getProject() {
+            return project;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String[] getArguments() {
+            return arguments.toArray(new String[0]);
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + String.join(" ", arguments);
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package org.metrichistory.fluctuation;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
-public class AbsoluteChange implements BiFunction<Double, Double, Double> {
+public class AbsoluteChange implements BiFunction<Double, Double, Double>, DoubleBinaryOperator {
     @Override
     public Double apply(Double d1, Double d2) {
+        return applyAsDouble(d1, d2);
+    }
+
+    @Override
+    public double applyAsDouble(double d1, double d2) {
         return d2 - d1;
     }
 }
@@ -2,14 +2,13 @@ package org.metrichistory.fluctuation;
 
 import org.metrichistory.model.Metrics;
 
-import java.util.List;
-import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 public class AllChanges implements ChangesComparator {
 
-    private final BiFunction<Double, Double, Double> calculateDifference;
+    private final DoubleBinaryOperator calculateDifference;
 
-    public AllChanges(BiFunction<Double, Double, Double> calculateDifference) {
+    public AllChanges(DoubleBinaryOperator calculateDifference) {
         this.calculateDifference = calculateDifference;
     }
 
@@ -21,24 +20,16 @@ public class AllChanges implements ChangesComparator {
             return reference.copy();
         }
 
-        final List<Double> references;
-        if(reference == null) {
-            references = new Metrics(other.size()).get();
-        } else {
-            references = reference.get();
-        }
-
-        final List<Double> others = other.get();
-
-        if (references.size() != others.size()) {
+        if (reference != null && reference.size() != other.size()) {
             throw new IllegalArgumentException("These metrics are not from the same source!");
         }
 
-        final Metrics result = new Metrics();
-        for (int i = 0; i < references.size(); i++) {
-            result.add(calculateDifference.apply(others.get(i), references.get(i)));
+        // A missing reference counts as zeros.
+        final double[] result = new double[other.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = calculateDifference.applyAsDouble(other.getDouble(i), reference == null ? 0 : reference.getDouble(i));
         }
 
-        return result;
+        return Metrics.wrap(result);
     }
 }
@@ -1,14 +1,20 @@
 package org.metrichistory.fluctuation;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
-public class RelativeChange implements BiFunction<Double, Double, Double> {
+public class RelativeChange implements BiFunction<Double, Double, Double>, DoubleBinaryOperator {
+
+    @Override
+    public Double apply(Double d1, Double d2) {
+        return applyAsDouble(d1, d2);
+    }
 
     /**
      * Computes the change from d1 to d2.
      */
     @Override
-    public Double apply(Double d1, Double d2) {
+    public double applyAsDouble(double d1, double d2) {
         if(d1 < 0 || d2 < 0) {
             throw new IllegalArgumentException("Negative numbers are not supported");
         }
@@ -2,8 +2,7 @@ package org.metrichistory.fluctuation;
 
 import org.metrichistory.model.Metrics;
 
-import java.util.List;
-import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 /**
  * Specifies a computation between two suites of metrics where we only return a value if both metrics are presents.
@@ -12,9 +11,9 @@ import java.util.function.BiFunction;
  */
 public class UpdateChanges implements ChangesComparator {
 
-    private final BiFunction<Double, Double, Double> calculateDifference;
+    private final DoubleBinaryOperator calculateDifference;
 
-    public UpdateChanges(BiFunction<Double, Double, Double> calculateDifference) {
+    public UpdateChanges(DoubleBinaryOperator calculateDifference) {
         this.calculateDifference = calculateDifference;
     }
 
@@ -23,17 +22,15 @@ public class UpdateChanges implements ChangesComparator {
         Metrics result = null;
 
         if (other != null && reference != null) {
-            final List<Double> others = other.get();
-            final List<Double> references = reference.get();
-
-            if (others.size() != references.size()) {
+            if (other.size() != reference.size()) {
                 throw new IllegalArgumentException("These metrics are not from the same source!");
             }
 
-            result = new Metrics();
-            for (int i = 0; i < others.size(); i++) {
-                result.add(calculateDifference.apply(others.get(i), references.get(i)));
+            final double[] differences = new double[other.size()];
+            for (int i = 0; i < differences.length; i++) {
+                differences[i] = calculateDifference.applyAsDouble(other.getDouble(i), reference.getDouble(i));
             }
+            result = Metrics.wrap(differences);
         }
 
         return result;
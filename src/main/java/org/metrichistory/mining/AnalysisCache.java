@@ -0,0 +1,124 @@
+package org.metrichistory.mining;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.versioncontrol.Vcs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers which version has been analyzed for a given content of the source files, so its results can be reused
+ * for other versions with the same sources. Versions changing only documentation, build files or files excluded by
+ * the {@link FileFilter} are not analyzed again. The entries are persisted in a CSV file to be reused across runs; when
+ * a key appears several times, the last entry wins. The file must only be shared by the analyses writing their results
+ * in the same place. This class is thread safe.
+ */
+public class AnalysisCache {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCache.class);
+
+    private static final String SOURCE_EXTENSION = ".java";
+
+    private final File file;
+    private final Map<String, String> entries; // The key identifies the sources and the analyzer, the value is the version.
+
+    /**
+     * Loads the cache stored in <code>file</code> or creates it if it doesn't exist.
+     * @param file the path of the file storing the cache
+     * @throws IOException when the file cannot be read
+     */
+    public AnalysisCache(String file) throws IOException {
+        this.file = new File(file);
+        this.entries = new HashMap<>();
+
+        if (this.file.isFile()) {
+            try (CSVParser parser = getFormat().withFirstRecordAsHeader().parse(new FileReader(this.file))) {
+                for (CSVRecord record : parser) {
+                    entries.put(record.get(0), record.get(1));
+                }
+            }
+            logger.info("Loaded {} cached analyses", entries.size());
+        }
+    }
+
+    /**
+     * Computes the key of a version: a hash of the accepted Java sources of the version and of the configuration
+     * of the analyzer.
+     * @param vcs the version control system containing the version
+     * @param version the version
+     * @param analyzer the analyzer
+     * @param filter the filter applied to the sources of the version
+     * @return the key
+     * @throws IOException when the version cannot be read
+     */
+    public String computeKey(Vcs vcs, String version, CacheableAnalyzer analyzer, FileFilter filter)
+            throws IOException {
+        final String sources = vcs.hashFiles(version, path -> path.endsWith(SOURCE_EXTENSION) && filter.accept(path));
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(analyzer.getConfiguration().getBytes(StandardCharsets.UTF_8));
+            digest.update(filter.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(sources.getBytes(StandardCharsets.UTF_8));
+            return String.format("%040x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Reuses the results of a version previously analyzed with the same key.
+     * @param key the key of the version
+     * @param version the version without results
+     * @param analyzer the analyzer holding the results
+     * @return <code>true</code> if results have been reused.
+     */
+    public synchronized boolean reuse(String key, String version, CacheableAnalyzer analyzer) {
+        final String source = entries.get(key);
+
+        if (source == null || source.equals(version) || !analyzer.copyResults(source, version)) {
+            return false;
+        }
+
+        logger.info("Reused the results of {} for {}", source, version);
+        return true;
+    }
+
+    /**
+     * Records that the results of a version are available for its key. An entry whose results are no longer available,
+     * for instance because they were deleted, is replaced.
+     * @param key the key of the version
+     * @param version the version
+     * @param analyzer the analyzer holding the results
+     * @throws IOException when the cache cannot be written on disk
+     */
+    public synchronized void put(String key, String version, CacheableAnalyzer analyzer) throws IOException {
+        final String existing = entries.get(key);
+        if (existing != null && (existing.equals(version) || analyzer.hasInCache(existing))) {
+            return;
+        }
+
+        final boolean header = !file.exists();
+        try (CSVPrinter printer = new CSVPrinter(new BufferedWriter(new FileWriter(file, true)), getFormat())) {
+            if (header) {
+                printer.printRecord("key", "revision");
+            }
+            printer.printRecord(key, version);
+        }
+        entries.put(key, version);
+    }
+
+    private static CSVFormat getFormat() {
+        return CSVFormat.RFC4180.withDelimiter(';');
+    }
+}
@@ -1,14 +1,33 @@
 package org.metrichistory.mining;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.metrichistory.analyzer.AnalysisTimeoutException;
 import org.metrichistory.analyzer.Analyzer;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.analyzer.InProcessAnalyzer;
+import org.metrichistory.analyzer.IncrementalAnalyzer;
 import org.metrichistory.versioncontrol.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Uses an {@link Analyzer} to analyze a project.
@@ -18,12 +37,127 @@ public class Collector {
 
     private final Analyzer analyzer;
 
-    private final FileFilter filter;
+    private FileFilter filter;
+    private Predicate<String> sparse;
+    private boolean checkoutFree;
+    private boolean incremental;
+    private String folder;
+    private AnalysisCache cache;
+    private ProgressJournal journal;
+    private boolean retryFailed;
+    private int timeoutRetries;
+    private LeaseManager leases;
 
     public Collector(Analyzer analyzer) {
         this.analyzer = analyzer;
 
         filter = FileFilter.noFilter();
+        checkoutFree = false;
+        incremental = false;
+        folder = "";
+    }
+
+    /**
+     * Sets the filter selecting the files analyzed in each version.
+     * @param filter the filter or {@link FileFilter#noFilter()} to analyze every file.
+     */
+    public void setFilter(FileFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Sets the files written in the working directory when a version is checked out. The other files of the
+     * repository are not checked out, which saves the time spent writing files never analyzed.
+     * @param sparse selects the files using their path relative to the root of the repository, or <code>null</code>
+     *               to check out every file.
+     * @see Vcs#setSparse(Predicate)
+     */
+    public void setSparse(Predicate<String> sparse) {
+        this.sparse = sparse;
+    }
+
+    /**
+     * Sets whether the versions are read directly from the version control system instead of being checked out.
+     * Requires an {@link InProcessAnalyzer}.
+     * @param checkoutFree <code>true</code> to never touch the working directory.
+     * @throws IllegalStateException if the analyzer cannot read the versions from the version control system.
+     */
+    public void setCheckoutFree(boolean checkoutFree) {
+        if (checkoutFree && !(analyzer instanceof InProcessAnalyzer)) {
+            throw new IllegalStateException("The analyzer needs a checkout of each version");
+        }
+        this.checkoutFree = checkoutFree;
+    }
+
+    /**
+     * Sets whether a version is analyzed from the results of its parent when they are available. Only the files
+     * changed since the parent are then analyzed. Requires an {@link IncrementalAnalyzer}.
+     * @param incremental <code>true</code> to reuse the results of the parents.
+     * @throws IllegalStateException if the analyzer cannot reuse previous results.
+     */
+    public void setIncremental(boolean incremental) {
+        if (incremental && !(analyzer instanceof IncrementalAnalyzer)) {
+            throw new IllegalStateException("The analyzer cannot reuse the results of previous versions");
+        }
+        this.incremental = incremental;
+    }
+
+    /**
+     * Sets the folder analyzed when the versions are read from the version control system instead of being checked
+     * out, for instance with {@link #setCheckoutFree(boolean)} or {@link #setIncremental(boolean)}.
+     * @param folder the folder, relative to the root of the repository, or an empty string for the whole repository.
+     * @throws IllegalArgumentException if the folder is outside the repository.
+     */
+    public void setFolder(String folder) {
+        final String unixFolder = FilenameUtils.separatorsToUnix(folder);
+        if (unixFolder.equals("..") || unixFolder.startsWith("../") || Paths.get(folder).isAbsolute()) {
+            throw new IllegalArgumentException("The folder " + folder + " is outside the repository");
+        }
+        this.folder = unixFolder.endsWith("/") ? unixFolder.substring(0, unixFolder.length() - 1) : unixFolder;
+    }
+
+    /**
+     * Sets the cache used to reuse the results of a version whose sources are identical to those of a version
+     * already analyzed. Requires a {@link CacheableAnalyzer}.
+     * @param cache the cache or <code>null</code> to analyze every version.
+     * @throws IllegalStateException if the analyzer cannot reuse previous results.
+     */
+    public void setCache(AnalysisCache cache) {
+        if (cache != null && !(analyzer instanceof CacheableAnalyzer)) {
+            throw new IllegalStateException("The analyzer cannot reuse the results of previous versions");
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the journal recording the progress of the analysis. The versions analyzed in a previous run according to
+     * the journal are skipped and the results left by an interrupted analysis are discarded. When a journal is set,
+     * a version whose analysis fails is recorded and the analysis continues with the next version.
+     * @param journal the journal or <code>null</code> to analyze every version.
+     * @param retryFailed <code>true</code> to analyze again the versions which failed in a previous run.
+     */
+    public void setJournal(ProgressJournal journal, boolean retryFailed) {
+        this.journal = journal;
+        this.retryFailed = retryFailed;
+    }
+
+    /**
+     * Sets the leases sharing the versions with other processes. A version is only analyzed by this instance if it
+     * can be leased, and the outcome is recorded with the leases instead of the journal. Once every other version is
+     * processed, the versions leased by other processes are awaited, and recovered if their leases expire.
+     * @param leases the leases or <code>null</code> to analyze every version.
+     */
+    public void setLeases(LeaseManager leases) {
+        this.leases = leases;
+    }
+
+    /**
+     * Sets how many times a version whose analysis exceeded its time budget is analyzed again. The versions are
+     * analyzed again after the other versions, with a larger budget.
+     * @param timeoutRetries the number of attempts after the first one.
+     */
+    public void setTimeoutRetries(int timeoutRetries) {
+        this.timeoutRetries = timeoutRetries;
     }
 
     /**
@@ -40,6 +174,112 @@ public class Collector {
         analyzer.postExecute(version);
     }
 
+    /**
+     * Analyze one version of a repository if it hasn't been cached. Depending on the configuration of this instance,
+     * the version is checked out, read directly from the version control system or derived from its parent.
+     * @param version the version to analyze.
+     * @param vcs the version control system containing the version.
+     * @param projectDir the directory to analyze when the version is checked out.
+     * @throws VcsOperationException when the version cannot be loaded.
+     */
+    public void analyzeVersion(String version, Vcs vcs, String projectDir) throws VcsOperationException {
+        if (analyzer.hasInCache(version)) {
+            return;
+        }
+
+        final String key = cache == null ? null : computeKey(version, vcs);
+        if (key != null && cache.reuse(key, version, (CacheableAnalyzer) analyzer)) {
+            return;
+        }
+
+        if (checkoutFree) {
+            analyzeVersion(version, vcs);
+        } else if (!incremental || !analyzeIncrementally(version, vcs)) {
+            vcs.clean();
+            vcs.checkout(version);
+            analyzeVersion(version, projectDir);
+        }
+
+        if (key != null) {
+            try {
+                cache.put(key, version, (CacheableAnalyzer) analyzer);
+            } catch (IOException e) {
+                logger.error("Failed to add version {} to the cache", version, e);
+            }
+        }
+    }
+
+    private String computeKey(String version, Vcs vcs) throws VcsOperationException {
+        try {
+            return cache.computeKey(vcs, version, (CacheableAnalyzer) analyzer, filter);
+        } catch (IOException e) {
+            throw new VcsOperationException("Unable to read the sources of version " + version, e);
+        }
+    }
+
+    /**
+     * Analyze one version read from the version control system if it hasn't been cached.
+     * @param version the version to analyze.
+     * @param vcs the version control system containing the version.
+     * @throws VcsOperationException when the version cannot be read.
+     */
+    public void analyzeVersion(String version, Vcs vcs) throws VcsOperationException {
+        if(analyzer.hasInCache(version)){
+            return;
+        }
+
+        if (incremental && analyzeIncrementally(version, vcs)) {
+            return;
+        }
+
+        try {
+            ((InProcessAnalyzer) analyzer).execute(version, vcs, folder, filter);
+        } catch (IOException e) {
+            throw new VcsOperationException("Unable to read version " + version, e);
+        }
+        analyzer.postExecute(version);
+    }
+
+    /**
+     * Analyze the files changed in a version if the results of its parent are available.
+     * @param version the version to analyze.
+     * @param vcs the version control system containing the version.
+     * @return <code>true</code> if the version has been analyzed.
+     * @throws VcsOperationException when the changes of the version cannot be read.
+     */
+    private boolean analyzeIncrementally(String version, Vcs vcs) throws VcsOperationException {
+        final IncrementalAnalyzer incrementalAnalyzer = (IncrementalAnalyzer) analyzer;
+
+        try {
+            final String parent = vcs.getParent(version);
+            if (parent == null || !incrementalAnalyzer.canAnalyzeIncrementally(parent)) {
+                return false;
+            }
+
+            final List<File> before = new ArrayList<>();
+            final List<File> after = new ArrayList<>();
+            vcs.getChangedFiles(version, before, after);
+
+            final Path root = Paths.get(vcs.getDirectory());
+            incrementalAnalyzer.execute(version, parent, vcs, folder, filter, toPaths(root, before),
+                    toPaths(root, after));
+        } catch (IOException e) {
+            throw new VcsOperationException("Unable to read the changes of version " + version, e);
+        }
+
+        analyzer.postExecute(version);
+        return true;
+    }
+
+    /**
+     * Converts files to paths relative to <code>root</code>, as written by the version control system.
+     */
+    private List<String> toPaths(Path root, List<File> files) {
+        return files.stream()
+                .map(file -> FilenameUtils.separatorsToUnix(root.relativize(file.toPath()).toString()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Run the {@link Analyzer} in each of the versions contained in <code>versionsToAnalyze</code> using the
      * version control system in <code>repositoryPath</code>.
@@ -49,21 +289,228 @@ public class Collector {
      * @throws VcsCleanupException when the VCS failed to cleanup resources.
      */
     public void analyzeVersions(List<String> versionsToAnalyze, String repositoryPath) throws VcsNotFound, VcsCleanupException, VcsOperationException {
+        analyzeVersions(versionsToAnalyze, repositoryPath, repositoryPath);
+    }
+
+    /**
+     * Run the {@link Analyzer} on a folder of the repository in each of the versions contained in
+     * <code>versionsToAnalyze</code>.
+     * @param versionsToAnalyze The list of versions to analyze.
+     * @param repositoryPath The root of the directory under version control.
+     * @param projectDir The folder to analyze, inside <code>repositoryPath</code>.
+     * @throws VcsNotFound when <code>repositoryPath</code> cannot be resolved to VCS system.
+     * @throws VcsCleanupException when the VCS failed to cleanup resources.
+     * @throws IllegalArgumentException when the folder is outside the repository.
+     */
+    public void analyzeVersions(List<String> versionsToAnalyze, String repositoryPath, String projectDir) throws VcsNotFound, VcsCleanupException, VcsOperationException {
         final long beginning = System.nanoTime();
+        if (checkoutFree || incremental) {
+            setFolder(Paths.get(repositoryPath).relativize(Paths.get(projectDir)).toString());
+        }
 
         try (Vcs vcs = VcsBuilder.create(repositoryPath)) {
+            if (!checkoutFree) {
+                vcs.setSparse(sparse);
+            }
+
+            final Deque<String> queue = new ArrayDeque<>(versionsToAnalyze);
+            final Map<String, Integer> timeouts = new HashMap<>();
+            final Set<String> busy = new LinkedHashSet<>();
+
             int i = 0;
-            for (String version : versionsToAnalyze) {
+            while (!queue.isEmpty() || !busy.isEmpty()) {
+                if (queue.isEmpty()) {
+                    awaitLeases(busy, queue);
+                    continue;
+                }
+
+                final String version = queue.removeFirst();
+                // The versions retried in this run are marked as failed in the journal.
+                if (!timeouts.containsKey(version) && !isPending(journal, retryFailed, analyzer, version)) {
+                    continue;
+                }
+                if (leases != null && !claim(version, busy)) {
+                    continue;
+                }
+
                 logger.info("Processing {} ({})", version, ++i);
-                vcs.clean();
-                vcs.checkout(version);
-                analyzeVersion(version, repositoryPath);
+                try {
+                    if (leases != null) {
+                        analyzeLeased(version, vcs, projectDir);
+                    } else if (journal == null) {
+                        analyzeVersion(version, vcs, projectDir);
+                    } else {
+                        analyzeRecorded(version, vcs, projectDir);
+                    }
+                } catch (AnalysisTimeoutException e) {
+                    if (retryLater(timeouts, version)) {
+                        queue.addLast(version);
+                    } else if (leases != null) {
+                        recordLeased(version, e);
+                    }
+                }
             }
 
             final long elapsed = System.nanoTime() - beginning;
             logger.info("Analysis completed in {}", Duration.ofNanos(elapsed));
 
-            vcs.restoreVersion();
+            if (!checkoutFree) {
+                vcs.restoreVersion();
+            }
+        }
+    }
+
+    /**
+     * Leases a version to this process. The results left by a process whose lease expired are discarded.
+     * @param busy the versions leased by other processes, updated by this method.
+     * @return <code>true</code> if the version is leased to this process.
+     */
+    private boolean claim(String version, Set<String> busy) {
+        final LeaseManager.Claim claim;
+        try {
+            claim = leases.claim(version);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to lease " + version, e);
+        }
+
+        if (claim == LeaseManager.Claim.BUSY) {
+            busy.add(version);
+            return false;
+        }
+        busy.remove(version);
+        if (claim == LeaseManager.Claim.RECOVERED) {
+            discardPartialResults(analyzer, version);
+        }
+        return claim != LeaseManager.Claim.DONE;
+    }
+
+    /**
+     * Waits for the leases of other processes to be renewed or to expire, then tries to lease their versions again.
+     */
+    private void awaitLeases(Set<String> busy, Deque<String> queue) {
+        logger.info("Waiting for {} version(s) leased by other processes", busy.size());
+        try {
+            Thread.sleep(leases.getRetryInterval());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the leases", e);
+        }
+        queue.addAll(busy);
+    }
+
+    /**
+     * Analyze one leased version and records the outcome with the leases. A version which timed out is released, so
+     * it can be analyzed again. The outcome is dropped if the lease was recovered by another process during the
+     * analysis, since that process analyzes the version again.
+     */
+    private void analyzeLeased(String version, Vcs vcs, String projectDir) {
+        try {
+            analyzeVersion(version, vcs, projectDir);
+            if (!leases.isHeld(version)) {
+                logger.warn("The lease of {} was lost during the analysis, the outcome is left to its new owner", version);
+                return;
+            }
+            leases.finished(version);
+        } catch (AnalysisTimeoutException e) {
+            release(version);
+            throw e;
+        } catch (VcsOperationException | RuntimeException e) {
+            logger.error("Failed to analyze version {}", version, e);
+            recordLeased(version, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to record the analysis of " + version, e);
+        }
+    }
+
+    private void recordLeased(String version, Exception failure) {
+        try {
+            if (!leases.isHeld(version)) {
+                logger.warn("The lease of {} was lost during the analysis, the outcome is left to its new owner", version);
+                return;
+            }
+            leases.failed(version, failure.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to record the failure of " + version, e);
+        }
+    }
+
+    private void release(String version) {
+        try {
+            leases.release(version);
+        } catch (IOException e) {
+            logger.error("Failed to release the lease of {}", version, e);
+        }
+    }
+
+    /**
+     * Analyze one version and records the outcome in the journal.
+     */
+    private void analyzeRecorded(String version, Vcs vcs, String projectDir) {
+        journal.started(version);
+        final long beginning = System.nanoTime();
+
+        try {
+            analyzeVersion(version, vcs, projectDir);
+            journal.finished(version, System.nanoTime() - beginning);
+        } catch (VcsOperationException | RuntimeException e) {
+            journal.failed(version, System.nanoTime() - beginning, e.toString());
+            if (e instanceof AnalysisTimeoutException) {
+                throw (AnalysisTimeoutException) e;
+            }
+            logger.error("Failed to analyze version {}", version, e);
+        }
+    }
+
+    /**
+     * Counts the timeouts of a version.
+     * @return <code>true</code> if the version can be analyzed again.
+     */
+    private boolean retryLater(Map<String, Integer> timeouts, String version) {
+        final int count = timeouts.merge(version, 1, Integer::sum);
+        if (count > timeoutRetries) {
+            logger.error("Version {} timed out {} time(s) and is skipped", version, count);
+            return false;
+        }
+
+        logger.warn("Version {} timed out and will be analyzed again at the end", version);
+        return true;
+    }
+
+    /**
+     * Checks in the journal whether a version still needs to be analyzed. A finished version is analyzed again if its
+     * results were deleted since. The results left by an interrupted or a failed analysis of the version are deleted.
+     * @param journal the journal or <code>null</code> if the progress is not recorded.
+     * @throws UncheckedIOException when the previous results cannot be deleted.
+     */
+    static boolean isPending(ProgressJournal journal, boolean retryFailed, Analyzer analyzer, String version) {
+        final ProgressJournal.State state = journal == null ? null : journal.getState(version);
+        if (state == null) {
+            return true;
+        }
+
+        if (state == ProgressJournal.State.FINISHED && analyzer.hasInCache(version)) {
+            return false;
+        }
+        if (state == ProgressJournal.State.FAILED && !retryFailed) {
+            return false;
+        }
+
+        discardPartialResults(analyzer, version);
+        return true;
+    }
+
+    /**
+     * Deletes the results left by an analysis which did not complete.
+     * @throws UncheckedIOException when the results cannot be deleted.
+     */
+    private static void discardPartialResults(Analyzer analyzer, String version) {
+        final Optional<String> output = analyzer.getOutputPath(version);
+        if (output.isPresent()) {
+            try {
+                FileUtils.deleteDirectory(new File(output.get()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to discard the partial results of " + version, e);
+            }
         }
     }
 
@@ -1,10 +1,20 @@
 package org.metrichistory.mining;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
- * Filters file paths.
+ * Filters file paths. A path is rejected when it contains one of the exclusion patterns or, for the patterns
+ * containing <code>*</code> or <code>?</code>, when it matches the pattern as a glob. The patterns are compiled, so
+ * a path is only scanned once whatever the number of patterns.
  */
 public class FileFilter {
 
@@ -12,6 +22,9 @@ public class FileFilter {
 
     private final List<String> exclusionPatterns = new ArrayList<>();
 
+    private volatile SubstringMatcher substrings = new SubstringMatcher(Collections.emptyList());
+    private volatile Pattern globs;
+
     /**
      * Creates a filter that only let through production code. (no tests or examples)
      *
@@ -29,8 +42,31 @@ public class FileFilter {
         return NO_FILTER;
     }
 
-    public void addExclusionPattern(String pattern) {
+    /**
+     * Adds a pattern to reject. In a glob, <code>*</code> matches any characters except <code>/</code>,
+     * <code>**</code> matches any characters and <code>?</code> matches one character except <code>/</code>. A glob
+     * must match the whole path, but <code>**&#47;</code> also matches no folder at all.
+     * @param pattern a substring of the paths to reject or a glob.
+     */
+    public synchronized void addExclusionPattern(String pattern) {
         exclusionPatterns.add(pattern);
+
+        substrings = new SubstringMatcher(exclusionPatterns.stream()
+                .filter(p -> !isGlob(p))
+                .collect(Collectors.toList()));
+
+        final String expression = exclusionPatterns.stream()
+                .filter(FileFilter::isGlob)
+                .map(FileFilter::globToRegularExpression)
+                .collect(Collectors.joining("|"));
+        globs = expression.isEmpty() ? null : Pattern.compile(expression);
+    }
+
+    /**
+     * @return <code>true</code> if every path is accepted.
+     */
+    public boolean isEmpty() {
+        return exclusionPatterns.isEmpty();
     }
 
     /**
@@ -44,11 +80,150 @@ public class FileFilter {
             return true;
         }
 
-        for (String pattern : exclusionPatterns) {
-            if (path.contains(pattern)) {
-                return false;
+        final String unixPath = path.replace('\\', '/');
+        final Pattern globs = this.globs;
+        return !substrings.matches(unixPath) && (globs == null || !globs.matcher(unixPath).matches());
+    }
+
+    /**
+     * Returns the exclusion patterns as regular expressions matching the whole absolute path, for the analyzers
+     * filtering the files themselves. Like {@link #accept(String)}, the patterns only apply to the part of the path
+     * below the root, so a glob is anchored at the root and the root itself never matches a substring.
+     * @param root the folder the paths are relative to
+     */
+    public synchronized List<String> toRegularExpressions(String root) {
+        String prefix = root.replace('\\', '/');
+        if (!prefix.endsWith("/")) {
+            prefix += "/";
+        }
+        final String escapedPrefix = escape(prefix);
+
+        return exclusionPatterns.stream()
+                .map(pattern -> escapedPrefix + (isGlob(pattern) ? globToRegularExpression(pattern)
+                        : ".*" + escape(pattern) + ".*"))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Compiles a glob selecting paths, with the syntax of the exclusion patterns.
+     * @see #addExclusionPattern(String)
+     */
+    public static Predicate<String> matching(String glob) {
+        final Pattern pattern = Pattern.compile(globToRegularExpression(glob));
+        return path -> pattern.matcher(path.replace('\\', '/')).matches();
+    }
+
+    private static boolean isGlob(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+
+    private static String globToRegularExpression(String glob) {
+        final StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (glob.startsWith("**/", i)) {
+                // Also matches the files at the root.
+                expression.append("(.*/)?");
+                i += 2;
+            } else if (glob.startsWith("**", i)) {
+                expression.append(".*");
+                i++;
+            } else if (c == '*') {
+                expression.append("[^/]*");
+            } else if (c == '?') {
+                expression.append("[^/]");
+            } else {
+                expression.append(escape(String.valueOf(c)));
+            }
+        }
+        return expression.toString();
+    }
+
+    /**
+     * Escapes the special characters one by one, since not every regular expression engine supports quoting.
+     */
+    private static String escape(String text) {
+        final StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if ("\\.[]{}()<>+-=^$|!?*".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "FileFilter" + exclusionPatterns;
+    }
+
+    /**
+     * Finds whether a text contains any of several substrings with the Aho-Corasick automaton: the text is read once
+     * instead of once per substring.
+     */
+    private static final class SubstringMatcher {
+        private final Node root = new Node();
+
+        SubstringMatcher(List<String> substrings) {
+            for (String substring : substrings) {
+                Node node = root;
+                for (char c : substring.toCharArray()) {
+                    node = node.children.computeIfAbsent(c, key -> new Node());
+                }
+                node.terminal = true;
             }
+            link();
         }
-        return true;
+
+        /**
+         * Links each node to the longest proper suffix of its prefix which is also a prefix of a substring.
+         */
+        private void link() {
+            final Deque<Node> queue = new ArrayDeque<>();
+            for (Node child : root.children.values()) {
+                child.failure = root;
+                queue.add(child);
+            }
+
+            while (!queue.isEmpty()) {
+                final Node node = queue.removeFirst();
+                for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                    final Node child = entry.getValue();
+                    Node failure = node.failure;
+                    while (failure != root && !failure.children.containsKey(entry.getKey())) {
+                        failure = failure.failure;
+                    }
+                    child.failure = failure.children.getOrDefault(entry.getKey(), root);
+                    child.terminal |= child.failure.terminal;
+                    queue.add(child);
+                }
+            }
+        }
+
+        boolean matches(String text) {
+            if (root.terminal) {
+                return true;
+            }
+
+            Node node = root;
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                while (node != root && !node.children.containsKey(c)) {
+                    node = node.failure;
+                }
+                node = node.children.getOrDefault(c, root);
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node failure;
+        private boolean terminal;
     }
 }
@@ -0,0 +1,272 @@
+package org.metrichistory.mining;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributes the versions between several processes sharing the same output folder, possibly on different machines,
+ * without any coordinator. A process claims a version by creating its lease file <code>&lt;version&gt;.lease</code>,
+ * which only succeeds for one process, and keeps it alive by updating its modification time. When the analysis ends,
+ * the lease is replaced by a marker <code>&lt;version&gt;.done</code> containing the outcome. The lease of a process
+ * which stopped updating it for longer than the expiry, because it crashed, can be recovered by another process.
+ * A process whose lease was recovered notices it with {@link #isHeld(String)} and must not record the outcome.
+ * The expiry must be much longer than the heartbeat and than the clock skew between the machines.
+ * This class is thread safe.
+ */
+public class LeaseManager implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseManager.class);
+
+    public static final String FOLDER_NAME = "leases";
+
+    private static final String LEASE_EXTENSION = ".lease";
+    private static final String DONE_EXTENSION = ".done";
+
+    public enum Claim {
+        /**
+         * The version was free and is now leased by this process.
+         */
+        ACQUIRED,
+        /**
+         * The lease of another process expired and is now held by this process. The partial results of the other
+         * process must be discarded.
+         */
+        RECOVERED,
+        /**
+         * Another process holds the lease.
+         */
+        BUSY,
+        /**
+         * The version has already been analyzed, successfully or not.
+         */
+        DONE
+    }
+
+    private final Path folder;
+    private final long expiry;
+    private final long period;
+    private final String owner;
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeat;
+
+    /**
+     * @param outputFolder the folder shared by the processes, specific to the project and the analyzer
+     * @param expiry the duration after which a lease which is not renewed can be recovered, in milliseconds
+     * @throws IOException when the folder of the leases cannot be created
+     */
+    public LeaseManager(String outputFolder, long expiry) throws IOException {
+        this.folder = Files.createDirectories(Paths.get(outputFolder, FOLDER_NAME));
+        this.expiry = expiry;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+
+        this.period = Math.max(1, expiry / 3);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metric-history-leases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tries to lease a version to this process.
+     * @throws IOException when the leases cannot be accessed
+     */
+    public Claim claim(String version) throws IOException {
+        if (isDone(version)) {
+            return Claim.DONE;
+        }
+
+        final Path lease = getLease(version);
+        if (create(lease)) {
+            return acquired(version, Claim.ACQUIRED);
+        }
+
+        final FileTime modified;
+        final String previousOwner;
+        try {
+            modified = Files.getLastModifiedTime(lease);
+            previousOwner = read(lease);
+        } catch (NoSuchFileException e) {
+            // Released in the meantime.
+            return create(lease) ? acquired(version, Claim.ACQUIRED) : Claim.BUSY;
+        }
+        if (System.currentTimeMillis() - modified.toMillis() < expiry) {
+            return Claim.BUSY;
+        }
+
+        // Only one process can move the lease away under a name of its own, the others get an exception.
+        final Path expired = folder.resolve(version + LEASE_EXTENSION + "." + owner + "." + UUID.randomUUID());
+        try {
+            Files.move(lease, expired, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return Claim.BUSY;
+        }
+        if (!previousOwner.equals(read(expired))
+                || System.currentTimeMillis() - Files.getLastModifiedTime(expired).toMillis() < expiry) {
+            // Another process recovered the lease since it was checked: the lease moved away is its new lease.
+            try {
+                Files.move(expired, lease);
+            } catch (FileAlreadyExistsException e) {
+                // Yet another process leased the version in the meantime. The owner of the lease moved away notices
+                // that it lost it and doesn't record its outcome.
+                Files.delete(expired);
+            }
+            return Claim.BUSY;
+        }
+        logger.warn("Recovering the expired lease of {} held by {}", version, read(expired));
+        Files.delete(expired);
+
+        return create(lease) ? acquired(version, Claim.RECOVERED) : Claim.BUSY;
+    }
+
+    private Claim acquired(String version, Claim claim) throws IOException {
+        // The version may have been finished by the previous owner between the two checks.
+        if (isDone(version)) {
+            Files.deleteIfExists(getLease(version));
+            return Claim.DONE;
+        }
+        held.add(version);
+        return claim;
+    }
+
+    /**
+     * Creates a lease file, which fails if it already exists.
+     */
+    private boolean create(Path lease) throws IOException {
+        try {
+            Files.write(lease, owner.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the interval between two renewals of the leases, in milliseconds, which is also a sensible interval
+     * to check the leases of the other processes.
+     */
+    public long getRetryInterval() {
+        return period;
+    }
+
+    /**
+     * Checks that this process still holds the lease of a version. The lease is lost when it expired because it
+     * couldn't be renewed in time, and another process recovered it.
+     * @throws IOException when the lease cannot be read
+     */
+    public boolean isHeld(String version) throws IOException {
+        if (held.contains(version) && isOwner(version)) {
+            return true;
+        }
+        held.remove(version);
+        return false;
+    }
+
+    public boolean isDone(String version) {
+        return Files.exists(getDone(version));
+    }
+
+    /**
+     * Records that a version has been analyzed and releases its lease.
+     * @throws IOException when the marker cannot be written
+     */
+    public void finished(String version) throws IOException {
+        done(version, "FINISHED");
+    }
+
+    /**
+     * Records that the analysis of a version failed and releases its lease. The version is not analyzed again.
+     * @param reason a description of the failure
+     * @throws IOException when the marker cannot be written
+     */
+    public void failed(String version, String reason) throws IOException {
+        done(version, "FAILED;" + String.valueOf(reason).replaceAll("[\\r\\n]+", " "));
+    }
+
+    private void done(String version, String outcome) throws IOException {
+        final Path temporary = folder.resolve(version + DONE_EXTENSION + "." + owner);
+        Files.write(temporary, outcome.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, getDone(version), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        release(version);
+    }
+
+    /**
+     * Releases the lease of a version without marking it as done, so any process can analyze it.
+     * @throws IOException when the lease cannot be deleted
+     */
+    public void release(String version) throws IOException {
+        if (held.remove(version) && isOwner(version)) {
+            Files.deleteIfExists(getLease(version));
+        }
+    }
+
+    /**
+     * Updates the modification time of the leases held by this process.
+     */
+    private void renew() {
+        final FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (String version : held) {
+            try {
+                if (isOwner(version)) {
+                    Files.setLastModifiedTime(getLease(version), now);
+                } else {
+                    logger.warn("The lease of {} has been recovered by another process", version);
+                    held.remove(version);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to renew the lease of {}", version, e);
+            }
+        }
+    }
+
+    private boolean isOwner(String version) throws IOException {
+        try {
+            return owner.equals(read(getLease(version)));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private Path getLease(String version) {
+        return folder.resolve(version + LEASE_EXTENSION);
+    }
+
+    private Path getDone(String version) {
+        return folder.resolve(version + DONE_EXTENSION);
+    }
+
+    /**
+     * Stops renewing the leases and releases those still held.
+     */
+    @Override
+    public void close() throws IOException {
+        heartbeat.shutdownNow();
+        for (String version : held) {
+            release(version);
+        }
+    }
+}
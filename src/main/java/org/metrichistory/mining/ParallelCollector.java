@@ -0,0 +1,307 @@
+package org.metrichistory.mining;
+
+import org.apache.commons.io.FileUtils;
+import org.metrichistory.analyzer.AnalysisTimeoutException;
+import org.metrichistory.analyzer.Analyzer;
+import org.metrichistory.analyzer.AnalyzerFactory;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.versioncontrol.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Analyzes versions of a project with several workers at once. Each worker checks out the versions in its own
+ * working copy of the repository and runs its own {@link Analyzer}. The versions are distributed through a shared
+ * queue and the results of each worker are moved to the location the single threaded {@link Collector} uses.
+ */
+public class ParallelCollector {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelCollector.class);
+
+    private final Analyzer analyzer;
+    private final AnalyzerFactory factory;
+    private final int workers;
+    private final File workspace;
+
+    private boolean checkoutFree;
+    private boolean incremental;
+    private FileFilter filter = FileFilter.noFilter();
+    private Predicate<String> sparse;
+    private AnalysisCache cache;
+    private ProgressJournal journal;
+    private boolean retryFailed;
+    private int timeoutRetries;
+    private final Map<String, Integer> timeouts = new ConcurrentHashMap<>(); // Number of timeouts per version.
+
+    /**
+     * @param analyzer the analyzer defining which versions are cached and where the results are stored
+     * @param factory creates the analyzer of each worker
+     * @param workers the number of versions analyzed at the same time
+     * @param workspace the folder where the working copies and the intermediate results of the workers are stored
+     */
+    public ParallelCollector(Analyzer analyzer, AnalyzerFactory factory, int workers, String workspace) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+
+        this.analyzer = analyzer;
+        this.factory = factory;
+        this.workers = workers;
+        this.workspace = new File(workspace);
+        checkoutFree = false;
+        incremental = false;
+    }
+
+    /**
+     * Sets whether the workers read the versions directly from the version control system. In this case, no working
+     * copy is created.
+     * @see Collector#setCheckoutFree(boolean)
+     */
+    public void setCheckoutFree(boolean checkoutFree) {
+        this.checkoutFree = checkoutFree;
+    }
+
+    /**
+     * Sets whether the workers derive the results of a version from its parent. A worker can only reuse the results
+     * of the versions it analyzed itself.
+     * @see Collector#setIncremental(boolean)
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * @see Collector#setSparse(Predicate)
+     */
+    public void setSparse(Predicate<String> sparse) {
+        this.sparse = sparse;
+    }
+
+    /**
+     * @see Collector#setFilter(FileFilter)
+     */
+    public void setFilter(FileFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Sets the cache used to reuse the results of versions with identical sources. The results are reused from the
+     * primary analyzer, so versions analyzed by any worker can be reused once published.
+     * @see Collector#setCache(AnalysisCache)
+     */
+    public void setCache(AnalysisCache cache) {
+        if (cache != null && !(analyzer instanceof CacheableAnalyzer)) {
+            throw new IllegalStateException("The analyzer cannot reuse the results of previous versions");
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the journal recording the progress of the analysis, shared by all the workers.
+     * @see Collector#setJournal(ProgressJournal, boolean)
+     */
+    public void setJournal(ProgressJournal journal, boolean retryFailed) {
+        this.journal = journal;
+        this.retryFailed = retryFailed;
+    }
+
+    /**
+     * @see Collector#setTimeoutRetries(int)
+     */
+    public void setTimeoutRetries(int timeoutRetries) {
+        this.timeoutRetries = timeoutRetries;
+    }
+
+    /**
+     * Runs the analysis on each of the versions contained in <code>versionsToAnalyze</code>.
+     * @param versionsToAnalyze the list of versions to analyze.
+     * @param repositoryPath the root of the directory under version control.
+     * @param folder the folder to analyze, inside <code>repositoryPath</code>.
+     * @throws VcsNotFound when <code>repositoryPath</code> cannot be resolved to VCS system.
+     * @throws VcsOperationException when a working copy cannot be created.
+     */
+    public void analyzeVersions(List<String> versionsToAnalyze, String repositoryPath, String folder)
+            throws VcsNotFound, VcsOperationException {
+        final long beginning = System.nanoTime();
+        final Path relativeFolder = Paths.get(repositoryPath).relativize(Paths.get(folder));
+
+        final Queue<String> queue = new ConcurrentLinkedQueue<>(versionsToAnalyze);
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+
+        final List<Worker> pool = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                pool.add(createWorker(i, repositoryPath, relativeFolder));
+            }
+
+            final ExecutorService executor = Executors.newFixedThreadPool(workers);
+            final List<Future<?>> futures = new ArrayList<>(workers);
+            for (Worker worker : pool) {
+                futures.add(executor.submit(() -> worker.run(queue, processed, failures)));
+            }
+            executor.shutdown();
+
+            for (Future<?> future : futures) {
+                awaitWorker(future);
+            }
+        } finally {
+            pool.forEach(Worker::close);
+            deleteWorkspace();
+        }
+
+        if (failures.get() > 0) {
+            logger.error("{} version{} could not be analyzed", failures.get(), failures.get() > 1 ? "s" : "");
+        }
+
+        final long elapsed = System.nanoTime() - beginning;
+        logger.info("Analysis completed in {} with {} workers", Duration.ofNanos(elapsed), workers);
+    }
+
+    private Worker createWorker(int id, String repositoryPath, Path relativeFolder) throws VcsNotFound,
+            VcsOperationException {
+        final File directory = new File(workspace, "worker-" + id);
+        final File results = new File(workspace, "results-" + id);
+
+        final Vcs vcs = checkoutFree ? VcsBuilder.create(repositoryPath)
+                : VcsBuilder.createWorkingCopy(repositoryPath, directory.getAbsolutePath());
+        if (!checkoutFree) {
+            vcs.setSparse(sparse);
+        }
+        final String folder = directory.toPath().resolve(relativeFolder).toString();
+        final Collector collector = new Collector(factory.create(folder, results.getAbsolutePath()));
+        collector.setFilter(filter);
+        collector.setCheckoutFree(checkoutFree);
+        collector.setIncremental(incremental);
+        if (checkoutFree || incremental) {
+            collector.setFolder(relativeFolder.toString());
+        }
+
+        return new Worker(id, vcs, collector, folder);
+    }
+
+    private void awaitWorker(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("A worker stopped unexpectedly", e.getCause());
+        }
+    }
+
+    /**
+     * Moves the results of a worker to the location expected by the primary analyzer.
+     */
+    static void publish(Analyzer analyzer, Collector worker, String version) throws IOException {
+        final Optional<String> source = worker.getOutputDirectory(version);
+        final Optional<String> target = analyzer.getOutputPath(version);
+
+        if (!source.isPresent() || !target.isPresent()) {
+            return;
+        }
+
+        final File sourceDirectory = new File(source.get());
+        if (!sourceDirectory.exists()) {
+            return;
+        }
+
+        final File targetDirectory = new File(target.get());
+        FileUtils.deleteDirectory(targetDirectory);
+        FileUtils.moveDirectory(sourceDirectory, targetDirectory);
+    }
+
+    /**
+     * Deletes the working copies and intermediate results. The workspace itself is only deleted if it's empty.
+     */
+    private void deleteWorkspace() {
+        for (int i = 0; i < workers; i++) {
+            try {
+                FileUtils.deleteDirectory(new File(workspace, "worker-" + i));
+                FileUtils.deleteDirectory(new File(workspace, "results-" + i));
+            } catch (IOException e) {
+                logger.warn("The workspace of worker {} could not be deleted", i, e);
+            }
+        }
+        workspace.delete();
+    }
+
+    private final class Worker {
+        private final int id;
+        private final Vcs vcs;
+        private final Collector collector;
+        private final String folder;
+
+        Worker(int id, Vcs vcs, Collector collector, String folder) {
+            this.id = id;
+            this.vcs = vcs;
+            this.collector = collector;
+            this.folder = folder;
+        }
+
+        void run(Queue<String> queue, AtomicInteger processed, AtomicInteger failures) {
+            String version;
+            while ((version = queue.poll()) != null) {
+                // The versions retried in this run are marked as failed in the journal.
+                if (analyzer.hasInCache(version) || (!timeouts.containsKey(version)
+                        && !Collector.isPending(journal, retryFailed, analyzer, version))) {
+                    continue;
+                }
+
+                logger.info("Processing {} ({}) on worker {}", version, processed.incrementAndGet(), id);
+                if (journal != null) {
+                    journal.started(version);
+                }
+                final long beginning = System.nanoTime();
+                try {
+                    final String key = cache == null ? null
+                            : cache.computeKey(vcs, version, (CacheableAnalyzer) analyzer, filter);
+                    if (key == null || !cache.reuse(key, version, (CacheableAnalyzer) analyzer)) {
+                        collector.analyzeVersion(version, vcs, folder);
+                        publish(analyzer, collector, version);
+
+                        if (key != null) {
+                            cache.put(key, version, (CacheableAnalyzer) analyzer);
+                        }
+                    }
+
+                    if (journal != null) {
+                        journal.finished(version, System.nanoTime() - beginning);
+                    }
+                } catch (VcsOperationException | IOException | RuntimeException e) {
+                    if (journal != null) {
+                        journal.failed(version, System.nanoTime() - beginning, e.toString());
+                    }
+                    if (e instanceof AnalysisTimeoutException && timeouts.merge(version, 1, Integer::sum) <= timeoutRetries) {
+                        logger.warn("Version {} timed out and will be analyzed again at the end", version);
+                        queue.add(version);
+                        continue;
+                    }
+                    failures.incrementAndGet();
+                    logger.error("Worker {} failed to analyze version {}", id, version, e);
+                }
+            }
+        }
+
+        void close() {
+            try {
+                vcs.close();
+            } catch (VcsCleanupException e) {
+                logger.warn("Failed to free the working copy of worker {}", id, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.metrichistory.mining;
+
+import org.apache.commons.io.FileUtils;
+import org.metrichistory.analyzer.Analyzer;
+import org.metrichistory.analyzer.AnalyzerFactory;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.versioncontrol.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Predicate;
+
+/**
+ * Analyzes versions of a project one at a time while the next versions are checked out. A preparation thread checks
+ * out the upcoming versions in separate working copies of the repository and hands them over to the analysis through
+ * a bounded queue, so the checkout of a version overlaps with the analysis of the previous one. When the queue is
+ * full, the preparation waits for the analysis.
+ */
+public class PipelinedCollector {
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedCollector.class);
+
+    private final Analyzer analyzer;
+    private final AnalyzerFactory factory;
+    private final int depth;
+    private final File workspace;
+
+    private FileFilter filter = FileFilter.noFilter();
+    private Predicate<String> sparse;
+    private AnalysisCache cache;
+    private ProgressJournal journal;
+    private boolean retryFailed;
+
+    /**
+     * @param analyzer the analyzer defining which versions are cached and where the results are stored
+     * @param factory creates the analyzer of each working copy
+     * @param depth the number of versions checked out ahead of the analysis
+     * @param workspace the folder where the working copies and their intermediate results are stored
+     */
+    public PipelinedCollector(Analyzer analyzer, AnalyzerFactory factory, int depth, String workspace) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("At least one version must be prepared ahead");
+        }
+
+        this.analyzer = analyzer;
+        this.factory = factory;
+        this.depth = depth;
+        this.workspace = new File(workspace);
+    }
+
+    /**
+     * @see Collector#setSparse(Predicate)
+     */
+    public void setSparse(Predicate<String> sparse) {
+        this.sparse = sparse;
+    }
+
+    /**
+     * @see Collector#setFilter(FileFilter)
+     */
+    public void setFilter(FileFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @see Collector#setCache(AnalysisCache)
+     */
+    public void setCache(AnalysisCache cache) {
+        if (cache != null && !(analyzer instanceof CacheableAnalyzer)) {
+            throw new IllegalStateException("The analyzer cannot reuse the results of previous versions");
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * @see Collector#setJournal(ProgressJournal, boolean)
+     */
+    public void setJournal(ProgressJournal journal, boolean retryFailed) {
+        this.journal = journal;
+        this.retryFailed = retryFailed;
+    }
+
+    /**
+     * Runs the analysis on each of the versions contained in <code>versionsToAnalyze</code>.
+     * @param versionsToAnalyze the list of versions to analyze.
+     * @param repositoryPath the root of the directory under version control.
+     * @param folder the folder to analyze, inside <code>repositoryPath</code>.
+     * @throws VcsNotFound when <code>repositoryPath</code> cannot be resolved to VCS system.
+     * @throws VcsOperationException when a working copy cannot be created.
+     */
+    public void analyzeVersions(List<String> versionsToAnalyze, String repositoryPath, String folder)
+            throws VcsNotFound, VcsOperationException {
+        final long beginning = System.nanoTime();
+        final Path relativeFolder = Paths.get(repositoryPath).relativize(Paths.get(folder));
+
+        // One working copy is being analyzed while the others are prepared.
+        final BlockingQueue<Slot> free = new ArrayBlockingQueue<>(depth + 1);
+        final BlockingQueue<Prepared> ready = new ArrayBlockingQueue<>(depth);
+        final List<Slot> slots = new ArrayList<>(depth + 1);
+
+        try {
+            for (int i = 0; i <= depth; i++) {
+                slots.add(createSlot(i, repositoryPath, relativeFolder));
+            }
+            free.addAll(slots);
+
+            final Preparation preparation = new Preparation(versionsToAnalyze, free, ready);
+            final Thread thread = new Thread(preparation, "metric-history-preparation");
+            thread.start();
+
+            final long analysisTime = analyze(free, ready);
+            joinPreparation(thread);
+
+            final long elapsed = System.nanoTime() - beginning;
+            logger.info("Analysis completed in {}", Duration.ofNanos(elapsed));
+            logger.info("Utilisation: preparation {}%, analysis {}%",
+                    100 * preparation.busyTime / elapsed, 100 * analysisTime / elapsed);
+        } finally {
+            slots.forEach(Slot::close);
+            deleteWorkspace();
+        }
+    }
+
+    private Slot createSlot(int id, String repositoryPath, Path relativeFolder) throws VcsNotFound,
+            VcsOperationException {
+        final File directory = new File(workspace, "worker-" + id);
+        final File results = new File(workspace, "results-" + id);
+
+        final Vcs vcs = VcsBuilder.createWorkingCopy(repositoryPath, directory.getAbsolutePath());
+        vcs.setSparse(sparse);
+        final String folder = directory.toPath().resolve(relativeFolder).toString();
+        final Collector collector = new Collector(factory.create(folder, results.getAbsolutePath()));
+        collector.setFilter(filter);
+
+        return new Slot(id, vcs, collector, folder);
+    }
+
+    /**
+     * Analyzes the versions as they are prepared.
+     * @return the time spent analyzing, in nanoseconds.
+     */
+    private long analyze(BlockingQueue<Slot> free, BlockingQueue<Prepared> ready) {
+        long busyTime = 0;
+        int processed = 0;
+
+        try {
+            Prepared prepared;
+            while ((prepared = ready.take()) != Prepared.END) {
+                final long beginning = System.nanoTime();
+                final String version = prepared.version;
+                logger.info("Processing {} ({})", version, ++processed);
+
+                try {
+                    if (prepared.error != null) {
+                        recordFailure(prepared, prepared.error);
+                        continue;
+                    }
+
+                    final Slot slot = prepared.slot;
+                    slot.collector.analyzeVersion(version, slot.folder);
+                    ParallelCollector.publish(analyzer, slot.collector, version);
+
+                    if (prepared.key != null) {
+                        cache.put(prepared.key, version, (CacheableAnalyzer) analyzer);
+                    }
+                    if (journal != null) {
+                        journal.finished(version, System.nanoTime() - prepared.beginning);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    recordFailure(prepared, e);
+                } finally {
+                    if (prepared.slot != null) {
+                        free.put(prepared.slot);
+                    }
+                    busyTime += System.nanoTime() - beginning;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return busyTime;
+    }
+
+    private void recordFailure(Prepared prepared, Exception e) {
+        if (journal != null) {
+            journal.failed(prepared.version, System.nanoTime() - prepared.beginning, e.toString());
+        }
+        logger.error("Failed to analyze version {}", prepared.version, e);
+    }
+
+    private void joinPreparation(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deletes the working copies and intermediate results. The workspace itself is only deleted if it's empty.
+     */
+    private void deleteWorkspace() {
+        for (int i = 0; i <= depth; i++) {
+            try {
+                FileUtils.deleteDirectory(new File(workspace, "worker-" + i));
+                FileUtils.deleteDirectory(new File(workspace, "results-" + i));
+            } catch (IOException e) {
+                logger.warn("The working copy {} could not be deleted", i, e);
+            }
+        }
+        workspace.delete();
+    }
+
+    /**
+     * Checks out the versions in the free working copies.
+     */
+    private final class Preparation implements Runnable {
+        private final List<String> versions;
+        private final BlockingQueue<Slot> free;
+        private final BlockingQueue<Prepared> ready;
+
+        private volatile long busyTime;
+
+        Preparation(List<String> versions, BlockingQueue<Slot> free, BlockingQueue<Prepared> ready) {
+            this.versions = versions;
+            this.free = free;
+            this.ready = ready;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (String version : versions) {
+                    if (analyzer.hasInCache(version) || !Collector.isPending(journal, retryFailed, analyzer, version)) {
+                        continue;
+                    }
+
+                    final Slot slot = free.take();
+                    final long beginning = System.nanoTime();
+                    final Prepared prepared = prepare(version, slot);
+                    busyTime += System.nanoTime() - beginning;
+
+                    if (prepared == null) {
+                        free.put(slot);
+                    } else {
+                        ready.put(prepared);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.error("The preparation of the versions stopped unexpectedly", e);
+            } finally {
+                putEnd();
+            }
+        }
+
+        /**
+         * Checks out a version in a working copy.
+         * @return the prepared version or <code>null</code> if the results of another version have been reused.
+         */
+        private Prepared prepare(String version, Slot slot) {
+            final long beginning = System.nanoTime();
+            if (journal != null) {
+                journal.started(version);
+            }
+
+            try {
+                final String key = cache == null ? null
+                        : cache.computeKey(slot.vcs, version, (CacheableAnalyzer) analyzer, filter);
+                if (key != null && cache.reuse(key, version, (CacheableAnalyzer) analyzer)) {
+                    if (journal != null) {
+                        journal.finished(version, System.nanoTime() - beginning);
+                    }
+                    return null;
+                }
+
+                slot.vcs.clean();
+                slot.vcs.checkout(version);
+                return new Prepared(version, slot, key, beginning, null);
+            } catch (VcsOperationException | IOException e) {
+                return new Prepared(version, slot, null, beginning, e);
+            }
+        }
+
+        /**
+         * Signals the end of the versions. The preparation is only interrupted once the analysis stopped, so
+         * the end doesn't need to be received in this case.
+         */
+        private void putEnd() {
+            try {
+                ready.put(Prepared.END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Slot {
+        private final int id;
+        private final Vcs vcs;
+        private final Collector collector;
+        private final String folder;
+
+        Slot(int id, Vcs vcs, Collector collector, String folder) {
+            this.id = id;
+            this.vcs = vcs;
+            this.collector = collector;
+            this.folder = folder;
+        }
+
+        void close() {
+            try {
+                vcs.close();
+            } catch (VcsCleanupException e) {
+                logger.warn("Failed to free the working copy {}", id, e);
+            }
+        }
+    }
+
+    /**
+     * A version checked out in a working copy, or the error preventing its checkout.
+     */
+    private static final class Prepared {
+        static final Prepared END = new Prepared(null, null, null, 0, null);
+
+        private final String version;
+        private final Slot slot;
+        private final String key;
+        private final long beginning;
+        private final Exception error;
+
+        Prepared(String version, Slot slot, String key, long beginning, Exception error) {
+            this.version = version;
+            this.slot = slot;
+            this.key = key;
+            this.beginning = beginning;
+            this.error = error;
+        }
+    }
+}
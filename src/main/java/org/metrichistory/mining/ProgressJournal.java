@@ -0,0 +1,139 @@
+package org.metrichistory.mining;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the progress of an analysis in an append-only file, so an interrupted analysis can be resumed. Each line
+ * records a state of a version: <code>STARTED;version;timestamp</code>,
+ * <code>FINISHED;version;timestamp;duration</code> or <code>FAILED;version;timestamp;duration;reason</code>, where
+ * the timestamp is in milliseconds since the epoch and the duration in milliseconds. Every line is flushed to the
+ * disk before the method recording it returns.
+ * This class is thread safe.
+ */
+public class ProgressJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressJournal.class);
+
+    public static final String FILE_NAME = "journal.log";
+
+    private static final String SEPARATOR = ";";
+
+    public enum State {STARTED, FINISHED, FAILED}
+
+    private final FileChannel channel;
+    private final Map<String, State> states;
+
+    /**
+     * Opens the journal of a folder, reading the states recorded by the previous runs.
+     * @param folder the folder of the journal, specific to the project and the analyzer
+     * @throws IOException when the journal cannot be read or created
+     */
+    public ProgressJournal(String folder) throws IOException {
+        final Path file = Paths.get(folder, FILE_NAME);
+        states = new HashMap<>();
+
+        if (Files.exists(file)) {
+            read(file);
+        }
+
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(SEPARATOR, 3);
+                if (fields.length < 3) {
+                    // The last line may be truncated if the previous run was killed while writing it.
+                    continue;
+                }
+
+                try {
+                    states.put(fields[1], State.valueOf(fields[0]));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring the malformed line '{}' of the journal", line);
+                }
+            }
+        }
+        logger.info("Resuming from a journal with {} versions", states.size());
+    }
+
+    /**
+     * Returns the last state recorded for a version.
+     * @return the state or <code>null</code> if the version has never been analyzed.
+     */
+    public synchronized State getState(String version) {
+        return states.get(version);
+    }
+
+    /**
+     * Records that the analysis of a version started.
+     * @throws UncheckedIOException when the journal cannot be written
+     */
+    public synchronized void started(String version) {
+        write(State.STARTED, version);
+    }
+
+    /**
+     * Records that a version has been analyzed.
+     * @param duration the duration of the analysis in nanoseconds
+     * @throws UncheckedIOException when the journal cannot be written
+     */
+    public synchronized void finished(String version, long duration) {
+        write(State.FINISHED, version, String.valueOf(duration / 1_000_000));
+    }
+
+    /**
+     * Records that the analysis of a version failed.
+     * @param duration the duration of the analysis in nanoseconds
+     * @param reason a description of the failure
+     * @throws UncheckedIOException when the journal cannot be written
+     */
+    public synchronized void failed(String version, long duration, String reason) {
+        final String description = String.valueOf(reason).replaceAll("[\\r\\n]+", " ");
+        write(State.FAILED, version, String.valueOf(duration / 1_000_000), description);
+    }
+
+    private void write(State state, String version, String... details) {
+        final StringBuilder line = new StringBuilder()
+                .append(state).append(SEPARATOR)
+                .append(version).append(SEPARATOR)
+                .append(System.currentTimeMillis());
+        for (String detail : details) {
+            line.append(SEPARATOR).append(detail);
+        }
+        line.append(System.lineSeparator());
+
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write in the journal", e);
+        }
+        states.put(version, state);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
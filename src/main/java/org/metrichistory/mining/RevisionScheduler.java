@@ -0,0 +1,118 @@
+package org.metrichistory.mining;
+
+import org.metrichistory.versioncontrol.Vcs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Orders revisions so that consecutive checkouts rewrite as few files as possible.
+ * The revisions are first sorted by commit date, which puts most parents before their children. Then, starting from
+ * the oldest revision, the next revision is greedily chosen as the nearest (in number of changed files) among the
+ * next unvisited revisions in date order. Limiting the search to a window keeps the number of tree comparisons linear.
+ */
+public class RevisionScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RevisionScheduler.class);
+
+    private static final int DEFAULT_WINDOW = 16;
+
+    private final Vcs vcs;
+    private final int window;
+
+    private long costBefore;
+    private long costAfter;
+
+    public RevisionScheduler(Vcs vcs) {
+        this(vcs, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param vcs the version control system containing the revisions
+     * @param window the number of candidates compared to the current revision at each step
+     */
+    public RevisionScheduler(Vcs vcs, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must contain at least one revision");
+        }
+        this.vcs = vcs;
+        this.window = window;
+    }
+
+    /**
+     * Returns a new list containing the revisions in the order they should be checked out.
+     * @param revisions the revisions to order
+     * @throws IOException when a revision cannot be read
+     */
+    public List<String> schedule(List<String> revisions) throws IOException {
+        costBefore = estimateCost(revisions);
+
+        final LinkedList<String> remaining = new LinkedList<>(sortByDate(revisions));
+        final List<String> result = new ArrayList<>(revisions.size());
+        costAfter = 0;
+
+        String current = remaining.pollFirst();
+        while (current != null) {
+            result.add(current);
+
+            String nearest = null;
+            int nearestDistance = Integer.MAX_VALUE;
+
+            final Iterator<String> candidates = remaining.iterator();
+            for (int i = 0; i < window && candidates.hasNext() && nearestDistance > 0; i++) {
+                final String candidate = candidates.next();
+                final int distance = vcs.countChangedFiles(current, candidate);
+
+                if (distance < nearestDistance) {
+                    nearest = candidate;
+                    nearestDistance = distance;
+                }
+            }
+
+            if (nearest != null) {
+                remaining.remove(nearest);
+                costAfter += nearestDistance;
+            }
+            current = nearest;
+        }
+
+        logger.info("Estimated files rewritten by checkouts: {} before scheduling, {} after", costBefore, costAfter);
+        return result;
+    }
+
+    /**
+     * Returns the estimated number of files rewritten when checking out the revisions in their original order.
+     * Available after {@link #schedule(List)}.
+     */
+    public long getCostBefore() {
+        return costBefore;
+    }
+
+    /**
+     * Returns the estimated number of files rewritten when checking out the revisions in the scheduled order.
+     * Available after {@link #schedule(List)}.
+     */
+    public long getCostAfter() {
+        return costAfter;
+    }
+
+    private List<String> sortByDate(List<String> revisions) throws IOException {
+        final Map<String, Long> times = new HashMap<>();
+        for (String revision : revisions) {
+            times.put(revision, vcs.getCommitTime(revision));
+        }
+
+        final List<String> sorted = new ArrayList<>(new LinkedHashSet<>(revisions));
+        sorted.sort(Comparator.comparing(times::get)); // Stable: revisions committed at the same time keep their order.
+        return sorted;
+    }
+
+    private long estimateCost(List<String> revisions) throws IOException {
+        long cost = 0;
+        for (int i = 1; i < revisions.size(); i++) {
+            cost += vcs.countChangedFiles(revisions.get(i - 1), revisions.get(i));
+        }
+        return cost;
+    }
+}
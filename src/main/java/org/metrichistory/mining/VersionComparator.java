@@ -6,8 +6,6 @@ import org.metrichistory.model.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
-
 /**
  * Compare the artifacts of two version of a project.
  */
@@ -28,12 +26,13 @@ public final class VersionComparator {
      * @return a new instance containing the fluctuations for <code>version</code>
      */
     public MeasureStore fluctuations(String version, String other, MeasureStore data) {
-        final MeasureStore results = new MeasureStore();
+        // The results share the symbols of the data, since they are added with the symbols of the data.
+        final MeasureStore results = new MeasureStore(data.symbols());
 
-        final Collection<String> artifacts = data.artifacts(version);
+        final int[] artifacts = data.artifactSymbols(version);
         if(artifacts == null) return results;
 
-        for (String artifact : artifacts) {
+        for (int artifact : artifacts) {
             final Metrics referenceMeasures = data.get(version, artifact);
             if (referenceMeasures == null) {
                 logger.warn("No data for revision {}", version);
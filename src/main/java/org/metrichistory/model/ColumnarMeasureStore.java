@@ -0,0 +1,420 @@
+package org.metrichistory.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Holds the measures by columns. Each version is a block containing the symbols of its artifacts, from the
+ * {@link #symbols() symbol table} of the store, and one array per metric.
+ * Once a version is complete, which is assumed when another version is added or when the store is read, every column
+ * is stored in the smallest type holding its values: most metrics are small integers taking one or two bytes.
+ * <p>
+ * The instances of {@link Metrics} returned are copies, modifying them doesn't change the store. All the metrics of a
+ * version must have the same size.
+ * This class is not thread safe.
+ */
+public class ColumnarMeasureStore extends MeasureStore {
+    private final Map<String, Block> blocks = new LinkedHashMap<>();
+    private Block current;
+
+    @Override
+    public void add(String version, String artifact, Metrics measure) {
+        if(measure == null || artifact == null) return;
+        add(version, symbols.intern(artifact), measure);
+    }
+
+    @Override
+    public void add(String version, int artifact, Metrics measure) {
+        if(measure == null) return;
+        Block block = blocks.get(version);
+        if (block == null) {
+            block = new Block();
+            blocks.put(symbols.canonical(version), block);
+        }
+        if (block != current) {
+            if (current != null) {
+                current.seal();
+            }
+            current = block;
+        }
+        block.add(artifact, measure);
+    }
+
+
+    @Override
+    public Metrics get(String version, String artifact) {
+        final int symbol = symbols.lookup(artifact);
+        return symbol == SymbolTable.NONE ? null : get(version, symbol);
+    }
+
+    @Override
+    public Metrics get(String version, int artifact) {
+        final Block block = blocks.get(version);
+        if (block == null) {
+            return null;
+        }
+        block.seal();
+
+        final int row = block.find(artifact);
+        return row < 0 ? null : block.get(row);
+    }
+
+    @Override
+    public Collection<String> versions() {
+        return blocks.keySet();
+    }
+
+    @Override
+    public Collection<String> artifacts(String version) {
+        final Block block = blocks.get(version);
+        if (block == null) {
+            return null;
+        }
+        block.seal();
+
+        return new Artifacts(block);
+    }
+
+    @Override
+    public int[] artifactSymbols(String version) {
+        final Block block = blocks.get(version);
+        if (block == null) {
+            return null;
+        }
+        block.seal();
+
+        return Arrays.copyOf(block.artifacts, block.size);
+    }
+
+    @Override
+    public long instances() {
+        long instances = 0;
+        for (Block block : blocks.values()) {
+            block.seal();
+            instances += block.size;
+        }
+        return instances;
+    }
+
+    private final class Artifacts extends AbstractList<String> implements RandomAccess {
+        private final Block block;
+
+        private Artifacts(Block block) {
+            this.block = block;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= block.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + block.size);
+            }
+            return symbols.get(block.artifacts[index]);
+        }
+
+        @Override
+        public boolean contains(Object artifact) {
+            final int symbol = artifact instanceof String ? symbols.lookup((String) artifact) : SymbolTable.NONE;
+            if (symbol == SymbolTable.NONE) {
+                return false;
+            }
+            block.seal();
+            return block.find(symbol) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return block.size;
+        }
+    }
+
+    /**
+     * The measures of one version. The rows are in the order of insertion, like the artifacts of
+     * {@link MeasureStore}. While the version is being built, the columns are arrays of doubles with spare capacity.
+     */
+    private static final class Block {
+        private int size;
+        private int width = -1;
+        private int[] artifacts = new int[16];
+        private double[][] building;
+        private Column[] columns;
+        /**
+         * The rows sorted by artifact, when the block is sealed.
+         */
+        private int[] sorted;
+
+        void add(int artifact, Metrics measure) {
+            if (width < 0) {
+                width = measure.size();
+                building = new double[width][artifacts.length];
+            } else if (measure.size() != width) {
+                throw new IllegalArgumentException(String.format("%d metrics expected, got %d", width, measure.size()));
+            }
+            if (building == null) {
+                unseal();
+            }
+            if (size == artifacts.length) {
+                artifacts = Arrays.copyOf(artifacts, size * 2);
+                for (int i = 0; i < width; i++) {
+                    building[i] = Arrays.copyOf(building[i], size * 2);
+                }
+            }
+
+            artifacts[size] = artifact;
+            for (int i = 0; i < width; i++) {
+                building[i][size] = measure.getDouble(i);
+            }
+            size++;
+        }
+
+        Metrics get(int row) {
+            final double[] values = new double[width];
+            for (int i = 0; i < width; i++) {
+                values[i] = columns[i].get(row);
+            }
+            return Metrics.wrap(values);
+        }
+
+        /**
+         * @return the row of the artifact or a negative value if it's absent.
+         */
+        int find(int artifact) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int candidate = artifacts[sorted[middle]];
+                if (candidate < artifact) {
+                    low = middle + 1;
+                } else if (candidate > artifact) {
+                    high = middle - 1;
+                } else {
+                    return sorted[middle];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Resolves the duplicated artifacts, indexes the rows and compresses the columns.
+         */
+        void seal() {
+            if (building == null) {
+                return;
+            }
+            long[] keys = sortRows();
+            if (removeDuplicates(keys)) {
+                keys = sortRows();
+            }
+
+            sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = (int) keys[i];
+            }
+            artifacts = Arrays.copyOf(artifacts, size);
+            columns = new Column[Math.max(0, width)];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Column.encode(building[i], size);
+            }
+            building = null;
+        }
+
+        private void unseal() {
+            final int capacity = Math.max(16, size * 2);
+            artifacts = Arrays.copyOf(artifacts, capacity);
+            building = new double[width][];
+            for (int i = 0; i < width; i++) {
+                building[i] = columns[i].decode(size, capacity);
+            }
+            columns = null;
+            sorted = null;
+        }
+
+        /**
+         * @return the rows sorted by artifact then by position, as the artifact in the high bits and the row in the
+         * low bits.
+         */
+        private long[] sortRows() {
+            final long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) artifacts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            return keys;
+        }
+
+        /**
+         * Keeps the measures added last for an artifact at the position where it was first added, like a
+         * {@link LinkedHashMap}.
+         * @return <code>true</code> if some rows were removed.
+         */
+        private boolean removeDuplicates(long[] keys) {
+            boolean[] removed = null;
+            for (int i = 1; i < size; i++) {
+                if ((keys[i] >>> 32) != (keys[i - 1] >>> 32)) {
+                    continue;
+                }
+                if (removed == null) {
+                    removed = new boolean[size];
+                }
+                int first = i - 1;
+                while (first > 0 && (keys[first - 1] >>> 32) == (keys[i] >>> 32)) {
+                    first--;
+                }
+                final int kept = (int) keys[first];
+                final int duplicate = (int) keys[i];
+                for (int column = 0; column < width; column++) {
+                    building[column][kept] = building[column][duplicate];
+                }
+                removed[duplicate] = true;
+            }
+            if (removed == null) {
+                return false;
+            }
+
+            int kept = 0;
+            for (int row = 0; row < size; row++) {
+                if (removed[row]) {
+                    continue;
+                }
+                artifacts[kept] = artifacts[row];
+                for (int column = 0; column < width; column++) {
+                    building[column][kept] = building[column][row];
+                }
+                kept++;
+            }
+            size = kept;
+            return true;
+        }
+    }
+
+    /**
+     * The values of a metric in a sealed block.
+     */
+    private abstract static class Column {
+        abstract double get(int row);
+
+        double[] decode(int size, int capacity) {
+            final double[] values = new double[capacity];
+            for (int i = 0; i < size; i++) {
+                values[i] = get(i);
+            }
+            return values;
+        }
+
+        /**
+         * Stores the values in the smallest type holding all of them exactly.
+         */
+        static Column encode(double[] values, int size) {
+            boolean constant = true;
+            boolean integral = true;
+            long min = 0;
+            long max = 0;
+            for (int i = 0; i < size && (constant || integral); i++) {
+                final long bits = Double.doubleToRawLongBits(values[i]);
+                constant &= bits == Double.doubleToRawLongBits(values[0]);
+                if (integral) {
+                    final long value = (long) values[i];
+                    // Excludes the fractions, -0.0, NaN and the values out of range.
+                    integral = bits == Double.doubleToRawLongBits((double) value);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+
+            if (constant) {
+                return new ConstantColumn(size == 0 ? 0 : values[0]);
+            }
+            if (integral && min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+                final byte[] column = new byte[size];
+                for (int i = 0; i < size; i++) {
+                    column[i] = (byte) values[i];
+                }
+                return new ByteColumn(column);
+            }
+            if (integral && min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+                final short[] column = new short[size];
+                for (int i = 0; i < size; i++) {
+                    column[i] = (short) values[i];
+                }
+                return new ShortColumn(column);
+            }
+            if (integral && min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE) {
+                final int[] column = new int[size];
+                for (int i = 0; i < size; i++) {
+                    column[i] = (int) values[i];
+                }
+                return new IntColumn(column);
+            }
+            return new DoubleColumn(Arrays.copyOf(values, size));
+        }
+    }
+
+    private static final class ConstantColumn extends Column {
+        private final double value;
+
+        ConstantColumn(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double get(int row) {
+            return value;
+        }
+    }
+
+    private static final class ByteColumn extends Column {
+        private final byte[] values;
+
+        ByteColumn(byte[] values) {
+            this.values = values;
+        }
+
+        @Override
+        double get(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class ShortColumn extends Column {
+        private final short[] values;
+
+        ShortColumn(short[] values) {
+            this.values = values;
+        }
+
+        @Override
+        double get(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private final int[] values;
+
+        IntColumn(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        double get(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        double get(int row) {
+            return values[row];
+        }
+    }
+}
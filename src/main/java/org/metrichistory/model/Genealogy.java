@@ -15,14 +15,24 @@ public class Genealogy {
 
     private final Vcs vcs;
 
-    private final Map<String, String> model; // The key is the revision, the value is its first parent.
-    private final Set<String> ignored;
+    private final Map<RevisionId, RevisionId> model; // The key is the revision, the value is its first parent.
+    private final Set<RevisionId> ignored;
+
+    private int threads;
 
     public Genealogy(Vcs vcs) {
         this.vcs = vcs;
 
         model = new LinkedHashMap<>();
         ignored = new HashSet<>();
+        threads = 1;
+    }
+
+    /**
+     * Sets the number of threads retrieving the parents of the revisions.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
     }
 
     /**
@@ -33,19 +43,25 @@ public class Genealogy {
         Objects.requireNonNull(revisions);
         logger.info("Retrieving parents of {} versions", revisions.size());
 
+        final Map<String, String> parents;
+        try {
+            parents = vcs.getParents(revisions, threads);
+        } catch (IOException e) {
+            final String message = String.format("The parents were not retrieved: '%s'.", e.getMessage());
+            System.err.println(message);
+            logger.error(message, e);
+            return;
+        }
+
         for (String revision : revisions) {
-            try {
-                final String parent = vcs.getParent(revision);
-
-                if (parent == null) {
-                    ignored.add(revision);
-                } else {
-                    model.put(revision, parent);
-                }
-            } catch (IOException e) {
-                final String message = String.format("Version '%s''s parent was not retrieved: '%s'.", revision, e.getMessage());
+            if (!parents.containsKey(revision)) {
+                final String message = String.format("Version '%s''s parent was not retrieved: the version cannot be found.", revision);
                 System.err.println(message);
-                logger.error(message, e);
+                logger.error(message);
+            } else if (parents.get(revision) == null) {
+                ignored.add(RevisionId.of(revision));
+            } else {
+                model.put(RevisionId.of(revision), RevisionId.of(parents.get(revision)));
             }
         }
 
@@ -66,14 +82,14 @@ public class Genealogy {
      * Returns the revisions that do not have a parent.
      */
     public List<String> getIgnoredRevisions() {
-        return new ArrayList<>(ignored);
+        return toStrings(ignored);
     }
 
     /**
      * Returns the genealogical map. Every revision in the map has a parent.
      * @return an unmodifiable view of the genealogy
      */
-    public Map<Object, Object> getMap() {
+    public Map<RevisionId, RevisionId> getMap() {
         return Collections.unmodifiableMap(model);
     }
 
@@ -82,9 +98,17 @@ public class Genealogy {
      * @return a list containing the unique revisions of the genealogy.
      */
     public List<String> getUniqueRevisions() {
-        final Set<String> uniques = new HashSet<>();
+        final Set<RevisionId> uniques = new LinkedHashSet<>();
         uniques.addAll(model.keySet());
         uniques.addAll(model.values());
-        return new ArrayList<>(uniques);
+        return toStrings(uniques);
+    }
+
+    private static List<String> toStrings(Collection<RevisionId> revisions) {
+        final List<String> names = new ArrayList<>(revisions.size());
+        for (RevisionId revision : revisions) {
+            names.add(revision.toString());
+        }
+        return names;
     }
 }
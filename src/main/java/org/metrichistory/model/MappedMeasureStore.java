@@ -0,0 +1,397 @@
+package org.metrichistory.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Holds the measures in a temporary file, so the size of the store isn't limited by the heap. The file is split in
+ * segments, which are mapped in memory when they are accessed. Only the segments used last are kept mapped, within
+ * the memory budget, and the system pages their content in and out on demand. The other segments are unmapped
+ * explicitly, or by the garbage collector on the JVMs which don't give access to their cleaner. The heap only contains
+ * an index: the symbol and the position of the measures of each artifact in each version, about 16 bytes per instance.
+ * <p>
+ * The file is deleted when the store is closed. The instances of {@link Metrics} returned are copies, modifying them
+ * doesn't change the store.
+ * This class is not thread safe.
+ */
+public class MappedMeasureStore extends MeasureStore implements Closeable {
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final Consumer<ByteBuffer> UNMAPPER = createUnmapper();
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final Map<Integer, MappedByteBuffer> segments;
+
+    private final Map<String, Index> indexes = new LinkedHashMap<>();
+    private long end;
+
+    /**
+     * Creates a store in the temporary folder of the system.
+     * @param memoryBudget the size of the measures mapped in memory at the same time, in bytes
+     * @throws IOException when the temporary file cannot be created
+     */
+    public MappedMeasureStore(long memoryBudget) throws IOException {
+        this(Paths.get(System.getProperty("java.io.tmpdir")), memoryBudget,
+                (int) Math.min(MAX_SEGMENT_SIZE, Math.max(MIN_SEGMENT_SIZE, memoryBudget)));
+    }
+
+    /**
+     * @param folder the folder of the temporary file
+     * @param memoryBudget the size of the measures mapped in memory at the same time, in bytes
+     * @param segmentSize the size of the part of the file mapped at once, in bytes. At least one segment is mapped,
+     *                    even if it exceeds the budget.
+     * @throws IOException when the temporary file cannot be created
+     * @throws IllegalArgumentException when the budget isn't positive or a segment cannot hold a measure
+     */
+    public MappedMeasureStore(Path folder, long memoryBudget, int segmentSize) throws IOException {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive");
+        }
+        if (segmentSize < Double.BYTES) {
+            throw new IllegalArgumentException(String.format("A segment must hold at least %d bytes", Double.BYTES));
+        }
+
+        final Path file = Files.createTempFile(folder, "measures-", ".bin");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        this.segmentSize = segmentSize & ~(Double.BYTES - 1);
+
+        final int mapped = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / this.segmentSize));
+        // The buffers never leave this class, so a segment can be unmapped as soon as it's evicted.
+        this.segments = new LinkedHashMap<Integer, MappedByteBuffer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+                if (size() > mapped) {
+                    UNMAPPER.accept(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void add(String version, String artifact, Metrics measure) {
+        if(measure == null || artifact == null) return;
+        add(version, symbols.intern(artifact), measure);
+    }
+
+    @Override
+    public void add(String version, int artifact, Metrics measure) {
+        if(measure == null) return;
+        Index index = indexes.get(version);
+        if (index == null) {
+            index = new Index();
+            indexes.put(symbols.canonical(version), index);
+        }
+        index.checkWidth(measure.size());
+
+        final long position = write(measure);
+        index.add(artifact, position);
+    }
+
+    /**
+     * Appends the measures to the file. The measures of an artifact are never split between two segments.
+     * @return the position of the measures in the file
+     */
+    private long write(Metrics measure) {
+        final int length = measure.size() * Double.BYTES;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException(String.format("%d metrics exceed the size of a segment", measure.size()));
+        }
+        if (end % segmentSize + length > segmentSize) {
+            end += segmentSize - end % segmentSize;
+        }
+
+        final long position = end;
+        final MappedByteBuffer segment = segment(position);
+        final int offset = (int) (position % segmentSize);
+        for (int i = 0; i < measure.size(); i++) {
+            segment.putDouble(offset + i * Double.BYTES, measure.getDouble(i));
+        }
+        end += length;
+        return position;
+    }
+
+    private Metrics read(long position, int width) {
+        final MappedByteBuffer segment = segment(position);
+        final int offset = (int) (position % segmentSize);
+        final double[] values = new double[width];
+        for (int i = 0; i < width; i++) {
+            values[i] = segment.getDouble(offset + i * Double.BYTES);
+        }
+        return Metrics.wrap(values);
+    }
+
+    private MappedByteBuffer segment(long position) {
+        final int number = (int) (position / segmentSize);
+        MappedByteBuffer segment = segments.get(number);
+        if (segment == null) {
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) number * segmentSize, segmentSize);
+            } catch (IOException e) {
+                throw new IllegalStateException("The segment " + number + " of the store cannot be mapped", e);
+            }
+            segments.put(number, segment);
+        }
+        return segment;
+    }
+
+    @Override
+    public Metrics get(String version, String artifact) {
+        final int symbol = symbols.lookup(artifact);
+        return symbol == SymbolTable.NONE ? null : get(version, symbol);
+    }
+
+    @Override
+    public Metrics get(String version, int artifact) {
+        final Index index = indexes.get(version);
+        if (index == null) {
+            return null;
+        }
+        index.seal();
+
+        final int row = index.find(artifact);
+        return row < 0 ? null : read(index.positions[row], index.width);
+    }
+
+    @Override
+    public Collection<String> versions() {
+        return indexes.keySet();
+    }
+
+    @Override
+    public Collection<String> artifacts(String version) {
+        final Index index = indexes.get(version);
+        if (index == null) {
+            return null;
+        }
+        index.seal();
+
+        return new Artifacts(index);
+    }
+
+    @Override
+    public int[] artifactSymbols(String version) {
+        final Index index = indexes.get(version);
+        if (index == null) {
+            return null;
+        }
+        index.seal();
+
+        return Arrays.copyOf(index.artifacts, index.size);
+    }
+
+    @Override
+    public long instances() {
+        long instances = 0;
+        for (Index index : indexes.values()) {
+            index.seal();
+            instances += index.size;
+        }
+        return instances;
+    }
+
+    /**
+     * Unmaps the segments and deletes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        segments.values().forEach(UNMAPPER);
+        segments.clear();
+        channel.close();
+    }
+
+    /**
+     * Creates the function releasing the memory mapping of a buffer without waiting for the garbage collector, with
+     * the internal API of the JVM. The buffer must not be used afterwards: accessing it would crash the JVM.
+     * @return the function, which does nothing when the JVM doesn't give access to the cleaner of the buffers.
+     */
+    private static Consumer<ByteBuffer> createUnmapper() {
+        try {
+            // Java 9 and later.
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8, see below.
+        }
+
+        try {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> invoke(clean, invoke(cleaner, buffer));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> { };
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... arguments) {
+        try {
+            return method.invoke(target, arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("A segment of the store cannot be unmapped", e);
+        }
+    }
+
+    private final class Artifacts extends AbstractList<String> implements RandomAccess {
+        private final Index index;
+
+        private Artifacts(Index index) {
+            this.index = index;
+        }
+
+        @Override
+        public String get(int row) {
+            if (row < 0 || row >= index.size) {
+                throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + index.size);
+            }
+            return symbols.get(index.artifacts[row]);
+        }
+
+        @Override
+        public int size() {
+            return index.size;
+        }
+    }
+
+    /**
+     * The position of the measures of each artifact of a version. The rows are in the order of insertion, like the
+     * artifacts of {@link MeasureStore}.
+     */
+    private static final class Index {
+        private int size;
+        private int width = -1;
+        private int[] artifacts = new int[16];
+        private long[] positions = new long[16];
+        /**
+         * The rows sorted by artifact, or null when artifacts have been added since the last lookup.
+         */
+        private int[] sorted;
+
+        void checkWidth(int width) {
+            if (this.width < 0) {
+                this.width = width;
+            } else if (this.width != width) {
+                throw new IllegalArgumentException(String.format("%d metrics expected, got %d", this.width, width));
+            }
+        }
+
+        void add(int artifact, long position) {
+            if (size == artifacts.length) {
+                artifacts = Arrays.copyOf(artifacts, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            artifacts[size] = artifact;
+            positions[size] = position;
+            size++;
+            sorted = null;
+        }
+
+        /**
+         * @return the row of the artifact or a negative value if it's absent.
+         */
+        int find(int artifact) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int candidate = artifacts[sorted[middle]];
+                if (candidate < artifact) {
+                    low = middle + 1;
+                } else if (candidate > artifact) {
+                    high = middle - 1;
+                } else {
+                    return sorted[middle];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Resolves the duplicated artifacts and sorts the rows.
+         */
+        void seal() {
+            if (sorted != null) {
+                return;
+            }
+            long[] keys = sortRows();
+            if (removeDuplicates(keys)) {
+                keys = sortRows();
+            }
+            sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = (int) keys[i];
+            }
+        }
+
+        /**
+         * @return the rows sorted by artifact then by position, as the artifact in the high bits and the row in the
+         * low bits.
+         */
+        private long[] sortRows() {
+            final long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) artifacts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            return keys;
+        }
+
+        /**
+         * Keeps the measures added last for an artifact at the position where it was first added, like a
+         * {@link LinkedHashMap}. The measures replaced remain unused in the file.
+         * @return <code>true</code> if some rows were removed.
+         */
+        private boolean removeDuplicates(long[] keys) {
+            boolean[] removed = null;
+            int first = 0;
+            for (int i = 1; i < size; i++) {
+                if ((keys[i] >>> 32) != (keys[first] >>> 32)) {
+                    first = i;
+                    continue;
+                }
+                if (removed == null) {
+                    removed = new boolean[size];
+                }
+                final int duplicate = (int) keys[i];
+                positions[(int) keys[first]] = positions[duplicate];
+                removed[duplicate] = true;
+            }
+            if (removed == null) {
+                return false;
+            }
+
+            int kept = 0;
+            for (int row = 0; row < size; row++) {
+                if (!removed[row]) {
+                    artifacts[kept] = artifacts[row];
+                    positions[kept] = positions[row];
+                    kept++;
+                }
+            }
+            size = kept;
+            return true;
+        }
+    }
+}
@@ -6,16 +6,37 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Holds in memory measures for different artifacts in multiple revisions.
+ * Holds in memory measures for different artifacts in multiple revisions. The names of the versions and the artifacts
+ * are stored once in the {@link #symbols() symbol table} of the store, which also identifies the artifacts in the
+ * methods taking an <code>int</code>.
  * This class is not thread safe.
  */
 public class MeasureStore {
+    protected final SymbolTable symbols;
+
     private final Map<String, Map<String, Metrics>> data;
 
     public MeasureStore() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Creates a store sharing the symbols of other stores, so the symbols of their artifacts can be used with this
+     * store.
+     * @param symbols the symbol table of the other stores
+     */
+    public MeasureStore(SymbolTable symbols) {
+        this.symbols = symbols;
         data = new HashMap<>();
     }
 
+    /**
+     * Returns the symbol table identifying the artifacts in the methods taking an <code>int</code>.
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
     /**
      * Store a new version of measures for the given class.
      *
@@ -25,9 +46,25 @@ public class MeasureStore {
      */
     public void add(String version, String artifact, Metrics measure) {
         if(measure == null || artifact == null) return;
-        final Map<String, Metrics> dump = data.computeIfAbsent(version, key -> new LinkedHashMap<>());
+        Map<String, Metrics> dump = data.get(version);
+        if (dump == null) {
+            dump = new LinkedHashMap<>();
+            data.put(symbols.canonical(version), dump);
+        }
+
+        dump.put(symbols.canonical(artifact), measure);
+    }
 
-        dump.put(artifact.intern(), measure);
+    /**
+     * Store a new version of measures for the given class.
+     *
+     * @param version  the version.
+     * @param artifact the symbol of the artifact.
+     * @param measure   the measures associated for the artifact at the given version.
+     * @see #symbols()
+     */
+    public void add(String version, int artifact, Metrics measure) {
+        add(version, symbols.get(artifact), measure);
     }
 
     /**
@@ -45,6 +82,17 @@ public class MeasureStore {
         return metricDump.get(artifact);
     }
 
+    /**
+     * Returns the metric for a class at a version.
+     *
+     * @param version  the version
+     * @param artifact the symbol of the class
+     * @return the metric or null if it doesn't exists.
+     */
+    public Metrics get(String version, int artifact) {
+        return get(version, symbols.get(artifact));
+    }
+
     /**
      * Returns the list of versions currently available in the store.
      */
@@ -66,6 +114,21 @@ public class MeasureStore {
         return measures.keySet();
     }
 
+    /**
+     * Returns the symbols of all the artifacts for a version, in the same order as {@link #artifacts(String)}, or
+     * null if this version is unknown.
+     * @param version the version
+     */
+    public int[] artifactSymbols(String version) {
+        final Collection<String> artifacts = artifacts(version);
+
+        if (artifacts == null) {
+            return null;
+        }
+
+        return artifacts.stream().mapToInt(symbols::intern).toArray();
+    }
+
     /**
      * Returns the sum of measures instances across all artifacts and versions.
      */
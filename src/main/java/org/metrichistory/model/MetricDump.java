@@ -2,7 +2,9 @@ package org.metrichistory.model;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Contains the metrics for a project at different granularity.
@@ -11,9 +13,11 @@ public class MetricDump {
     public static final MetricDump EMPTY = new MetricDump();
 
     private final Map<String, Metrics> map;
+    private final Map<String, String> files; // The key is the class, the value is the file declaring it.
 
     public MetricDump() {
         map = new HashMap<>();
+        files = new HashMap<>();
     }
 
     /**
@@ -44,4 +48,51 @@ public class MetricDump {
     public void add(String className, Metrics metric) {
         map.put(className, metric);
     }
+
+    /**
+     * Add or replace the metrics for a class declared in a file.
+     *
+     * @param className the class
+     * @param file      the path of the file declaring the class
+     * @param metric    the metrics
+     */
+    public void add(String className, String file, Metrics metric) {
+        add(className, metric);
+        files.put(className, file);
+    }
+
+    /**
+     * Returns the path of the file declaring a class or null if it is unknown.
+     *
+     * @param className the canonical name of the class
+     */
+    public String getFile(String className) {
+        return files.get(className);
+    }
+
+    /**
+     * Removes every class declared in one of the files.
+     *
+     * @param paths the paths of the files
+     */
+    public void removeFiles(Collection<String> paths) {
+        final Set<String> removed = paths instanceof Set ? (Set<String>) paths : new HashSet<>(paths);
+        files.entrySet().removeIf(entry -> {
+            if (removed.contains(entry.getValue())) {
+                map.remove(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Returns a copy of this instance. The metrics are shared between both instances.
+     */
+    public MetricDump copy() {
+        final MetricDump copy = new MetricDump();
+        copy.map.putAll(map);
+        copy.files.putAll(files);
+        return copy;
+    }
 }
@@ -1,19 +1,25 @@
 package org.metrichistory.model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
- * Represents an ordered collection of unlabelled metrics.
+ * Represents an ordered collection of unlabelled metrics. The metrics are stored in an array of primitive values,
+ * sized exactly when the number of metrics is known upfront.
  */
 public class Metrics {
-    private final ArrayList<Double> metrics;
+    private static final double[] EMPTY = new double[0];
 
-    private final static Double ZERO = 0.0;
+    private double[] values;
+    private int size;
 
     public Metrics(Double... metrics) {
-        this.metrics = new ArrayList<>(Arrays.asList(metrics));
+        this(metrics.length == 0 ? EMPTY : new double[metrics.length]);
+        for (int i = 0; i < metrics.length; i++) {
+            values[i] = metrics[i];
+        }
     }
 
     /**
@@ -21,10 +27,21 @@ public class Metrics {
      * @param size the number of metrics
      */
     public Metrics(int size) {
-        this.metrics = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            metrics.add(ZERO);
-        }
+        this(new double[size]);
+    }
+
+    private Metrics(double[] values) {
+        this.values = values;
+        this.size = values.length;
+    }
+
+    /**
+     * Creates an instance backed by an array, without copying it. The array must not be modified afterwards.
+     * @param values the metrics
+     * @return a new instance
+     */
+    public static Metrics wrap(double[] values) {
+        return new Metrics(values);
     }
 
     /**
@@ -33,18 +50,17 @@ public class Metrics {
      * @param metric the metric to add
      */
     public void add(double metric) {
-        if(metric == ZERO) {
-            metrics.add(ZERO);
-        } else {
-            metrics.add(metric);
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
         }
+        values[size++] = metric;
     }
 
     /**
      * Return the number of metrics in this instance.
      */
     public int size() {
-        return metrics.size();
+        return size;
     }
 
     /**
@@ -54,17 +70,65 @@ public class Metrics {
      * @return the metric
      * @throws IndexOutOfBoundsException if there is no metric at the position
      */
+    public double getDouble(int i) {
+        checkIndex(i);
+        return values[i];
+    }
+
+    /**
+     * Replaces the metric at the position.
+     * @throws IndexOutOfBoundsException if there is no metric at the position
+     */
+    public void set(int i, double metric) {
+        checkIndex(i);
+        values[i] = metric;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Return the metric at the position.
+     *
+     * @param i the position
+     * @return the metric
+     * @throws IndexOutOfBoundsException if there is no metric at the position
+     * @see #getDouble(int)
+     */
     public Double get(int i) {
-        return metrics.get(i);
+        return getDouble(i);
     }
 
+    /**
+     * Returns a view of the metrics, which boxes every value read. Prefer {@link #getDouble(int)} and
+     * {@link #copyTo(double[], int)}.
+     */
     public List<Double> get() {
-        return metrics;
+        return new View();
+    }
+
+    /**
+     * Copies the metrics in an array.
+     * @param target the array
+     * @param offset the position of the first metric in <code>target</code>
+     */
+    public void copyTo(double[] target, int offset) {
+        System.arraycopy(values, 0, target, offset, size);
+    }
+
+    /**
+     * @return a copy of the metrics.
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
     }
 
     @Override
     public String toString() {
-        return Arrays.toString(metrics.toArray());
+        return Arrays.toString(toArray());
     }
 
     public boolean hasTradeOff(int ... indices) {
@@ -72,9 +136,9 @@ public class Metrics {
         int negative = 0;
 
         for (int index : indices) {
-            if(this.metrics.get(index) > 0) {
+            if(getDouble(index) > 0) {
                 positive++;
-            } else if (this.metrics.get(index) < 0){
+            } else if (getDouble(index) < 0){
                 negative++;
             }
         }
@@ -82,10 +146,25 @@ public class Metrics {
     }
 
     public Metrics copy() {
-        final Metrics copy = new Metrics();
-        for (Double metric : metrics) {
-            copy.add(metric);
+        return new Metrics(toArray());
+    }
+
+    private final class View extends AbstractList<Double> implements RandomAccess {
+        @Override
+        public Double get(int index) {
+            return getDouble(index);
+        }
+
+        @Override
+        public Double set(int index, Double element) {
+            final double previous = getDouble(index);
+            values[index] = element;
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return size;
         }
-        return copy;
     }
 }
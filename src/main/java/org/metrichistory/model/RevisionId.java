@@ -0,0 +1,123 @@
+package org.metrichistory.model;
+
+import java.util.Objects;
+
+/**
+ * Identifies a revision. The SHA-1 hashes written in lower case, as produced by Git, are stored in binary form (two
+ * longs and an int) instead of 40 characters. The other identifiers, such as tags or the short names used by the
+ * tests, are kept as they are. {@link #toString()} returns the identifier as it was given.
+ */
+public final class RevisionId implements Comparable<RevisionId> {
+    private static final int HASH_LENGTH = 40;
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private final long first;
+    private final long second;
+    private final int third;
+    /**
+     * The identifier, when it's not a hash.
+     */
+    private final String name;
+
+    private RevisionId(long first, long second, int third, String name) {
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.name = name;
+    }
+
+    /**
+     * @param revision the identifier of the revision
+     * @return a new instance
+     */
+    public static RevisionId of(String revision) {
+        Objects.requireNonNull(revision);
+        if (!isHash(revision)) {
+            return new RevisionId(0, 0, 0, revision);
+        }
+        return new RevisionId(parse(revision, 0, 16), parse(revision, 16, 32), (int) parse(revision, 32, 40), null);
+    }
+
+    private static boolean isHash(String revision) {
+        if (revision.length() != HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            final char c = revision.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parse(String hash, int beginning, int end) {
+        long value = 0;
+        for (int i = beginning; i < end; i++) {
+            final char c = hash.charAt(i);
+            value = value << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return value;
+    }
+
+    /**
+     * @return <code>true</code> if the identifier is a SHA-1 hash stored in binary form.
+     */
+    public boolean isHash() {
+        return name == null;
+    }
+
+    @Override
+    public String toString() {
+        if (name != null) {
+            return name;
+        }
+        final char[] hash = new char[HASH_LENGTH];
+        format(first, hash, 0, 16);
+        format(second, hash, 16, 16);
+        format(third, hash, 32, 8);
+        return new String(hash);
+    }
+
+    private static void format(long value, char[] target, int offset, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            target[offset + i] = DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final RevisionId other = (RevisionId) o;
+        return first == other.first && second == other.second && third == other.third
+                && Objects.equals(name, other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        // The bits of a hash are already uniformly distributed.
+        return name != null ? name.hashCode() : (int) first;
+    }
+
+    /**
+     * Orders the hashes like their hexadecimal form, before the other identifiers.
+     */
+    @Override
+    public int compareTo(RevisionId other) {
+        if (name != null || other.name != null) {
+            if (name == null) return -1;
+            if (other.name == null) return 1;
+            return name.compareTo(other.name);
+        }
+        int comparison = Long.compareUnsigned(first, other.first);
+        if (comparison == 0) {
+            comparison = Long.compareUnsigned(second, other.second);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compareUnsigned(third, other.third);
+        }
+        return comparison;
+    }
+}
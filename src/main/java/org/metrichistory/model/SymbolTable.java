@@ -0,0 +1,82 @@
+package org.metrichistory.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Identifies the names of the artifacts and the revisions with dense integers, starting at 0, so each name is stored
+ * once and the stores can refer to it with an <code>int</code>. A name keeps its symbol for the lifetime of the table.
+ * Each {@link MeasureStore} has its own table, so the names are released with the stores using them.
+ * This class is thread safe: looking up a symbol doesn't lock.
+ */
+public final class SymbolTable {
+    /**
+     * Returned by {@link #lookup(String)} for a name without symbol.
+     */
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> symbols = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    /**
+     * Returns the symbol of a name, creating it if the name is new.
+     */
+    public int intern(String name) {
+        final Integer symbol = symbols.get(name);
+        if (symbol != null) {
+            return symbol;
+        }
+
+        synchronized (this) {
+            final Integer existing = symbols.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            // The name is published before its symbol, so whoever sees the symbol can read the name.
+            names[size] = name;
+            symbols.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the shared instance of a name, like {@link String#intern()}.
+     */
+    public String canonical(String name) {
+        return get(intern(name));
+    }
+
+    /**
+     * Returns the symbol of a name without creating it.
+     * @return the symbol or {@link #NONE} if the name has no symbol.
+     */
+    public int lookup(String name) {
+        final Integer symbol = symbols.get(name);
+        return symbol == null ? NONE : symbol;
+    }
+
+    /**
+     * Returns the name of a symbol.
+     * @throws IllegalArgumentException if the symbol doesn't exist
+     */
+    public String get(int symbol) {
+        final String[] current = names;
+        final String name = symbol >= 0 && symbol < current.length ? current[symbol] : null;
+        if (name == null) {
+            throw new IllegalArgumentException("Unknown symbol: " + symbol);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the number of symbols.
+     */
+    public int size() {
+        return symbols.size();
+    }
+}
@@ -1,11 +1,12 @@
 package org.metrichistory.storage;
 
 import org.metrichistory.model.MeasureStore;
+import org.metrichistory.model.RevisionId;
 
-import java.util.HashMap;
+import java.util.Map;
 
 public interface Database {
-    void persist(HashMap<String, String> ancestry);
+    void persist(Map<RevisionId, RevisionId> ancestry);
 
     /**
      * Imports raw data into the storage. Replaces previous metrics.
@@ -2,6 +2,8 @@ package org.metrichistory.storage;
 
 import org.metrichistory.model.MeasureStore;
 
+import java.io.IOException;
+
 /**
  * The repository is located in the memory.
  */
@@ -16,4 +18,9 @@ public class FileSource extends MeasureRepository {
     public MeasureStore get(String ... versions) {
         return model;
     }
+
+    @Override
+    public void close() throws IOException {
+        Stores.release(model);
+    }
 }
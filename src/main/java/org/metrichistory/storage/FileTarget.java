@@ -4,6 +4,7 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.metrichistory.model.MeasureStore;
 import org.metrichistory.model.Metrics;
+import org.metrichistory.model.SymbolTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +14,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 
 /**
  * Exports measures to a single file.
@@ -50,24 +50,21 @@ public class FileTarget extends SaveTarget {
     }
 
     private void exportVersion(String version, MeasureStore measureStore, CSVPrinter printer) throws IOException {
-        for (String artifact : measureStore.artifacts(version)) {
+        final SymbolTable symbols = measureStore.symbols();
+        for (int artifact : measureStore.artifactSymbols(version)) {
             final Metrics metrics = measureStore.get(version, artifact);
 
             if(metrics == null) {
-                logger.warn("There is no metric for class {} at revision {}", artifact, version);
+                logger.warn("There is no metric for class {} at revision {}", symbols.get(artifact), version);
                 continue;
             }
 
-            printer.printRecord(format(version, artifact, metrics));
+            printer.print(version);
+            printer.print(symbols.get(artifact));
+            for (int i = 0; i < metrics.size(); i++) {
+                printer.print(Double.toString(metrics.getDouble(i)));
+            }
+            printer.println();
         }
     }
-
-    private Object[] format(String version, String artifact, Metrics metrics) {
-        final ArrayList<Object> result = new ArrayList<>();
-        result.add(version);
-        result.add(artifact);
-        result.addAll(metrics.get());
-
-        return result.toArray();
-    }
 }
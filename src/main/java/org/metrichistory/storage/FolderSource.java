@@ -6,7 +6,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 
+import org.metrichistory.model.ColumnarMeasureStore;
 import org.metrichistory.model.MeasureStore;
+import org.metrichistory.util.ResidentCache;
 
 /**
  * Reads the contents of a directory. Each file in the folder represents a revision.
@@ -22,12 +24,28 @@ public class FolderSource extends MeasureRepository {
 
     @Override
     public MeasureStore get(String ... versions) throws IOException{
-        final MeasureStore model = new MeasureStore();
+        final MeasureStore model = new ColumnarMeasureStore();
 
         for (String version : versions) {
-            final File file = new File(directory, version + ".csv");
-            Stores.loadClasses(file.getPath(), model);
+            File file = new File(directory, version + ".csv");
+            if (!file.exists()) {
+                file = new File(directory, version + ".csv" + Stores.COMPRESSED_EXTENSION);
+            }
+            if (ResidentCache.isEnabled()) {
+                final File versionFile = file;
+                copy(ResidentCache.get(file, () -> Stores.loadClasses(versionFile.getPath())), model);
+            } else {
+                Stores.loadClasses(file.getPath(), model);
+            }
         }
         return model;
     }
+
+    private static void copy(MeasureStore source, MeasureStore target) {
+        for (String version : source.versions()) {
+            for (String artifact : source.artifacts(version)) {
+                target.add(version, artifact, source.get(version, artifact));
+            }
+        }
+    }
 }
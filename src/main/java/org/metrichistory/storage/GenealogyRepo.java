@@ -5,6 +5,8 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import org.metrichistory.model.Genealogy;
+import org.metrichistory.model.RevisionId;
+import org.metrichistory.versioncontrol.Vcs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,20 +16,23 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class GenealogyRepo {
     private static final Logger logger = LoggerFactory.getLogger(GenealogyRepo.class);
 
-    public HashMap<String, String> load(String ancestryFile) throws IOException {
-        final HashMap<String, String> ancestry = new LinkedHashMap<>();
+    /**
+     * Loads the parent of each revision, in the order of the file.
+     */
+    public Map<RevisionId, RevisionId> load(String ancestryFile) throws IOException {
+        final Map<RevisionId, RevisionId> ancestry = new LinkedHashMap<>();
 
         logger.info("Loading ancestry (" + ancestryFile + ")...");
 
         try (CSVParser parser = getParser(ancestryFile)) {
             for (CSVRecord record : parser) {
-                ancestry.put(record.get(0), record.get(1));
+                ancestry.put(RevisionId.of(record.get(0)), RevisionId.of(record.get(1)));
             }
         }
         return ancestry;
@@ -40,6 +45,32 @@ public class GenealogyRepo {
         }
     }
 
+    /**
+     * Exports the parent of every revision reachable from <code>revision</code> in a file. The revisions are written
+     * as they are read from the version control system, so the history is never kept in memory. The revisions
+     * without a parent are not exported.
+     *
+     * @param vcs the version control system
+     * @param revision the revision or the branch where the history starts
+     * @param outputFile the file where the pairs are written
+     * @return the number of revisions exported
+     */
+    public long exportHistory(Vcs vcs, String revision, String outputFile) throws IOException {
+        Files.createDirectories(Paths.get(outputFile).getParent());
+        final long[] count = {0};
+
+        logger.info("Saving the history of {}...", revision);
+        try (CSVPrinter writer = getPrinter(outputFile)) {
+            vcs.walkHistory(revision, (child, parent) -> {
+                if (parent != null) {
+                    writer.printRecord(child, parent);
+                    count[0]++;
+                }
+            });
+        }
+        return count[0];
+    }
+
     /**
      * Exports a {@link Genealogy} in a file.
      * The order of revisions is the same as the output of the {@link CommitReader}.
@@ -3,32 +3,52 @@ package org.metrichistory.storage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 
+import org.metrichistory.model.ColumnarMeasureStore;
 import org.metrichistory.model.MeasureStore;
+import org.metrichistory.util.ResidentCache;
 
 /**
  * Encapsulate measures for a project from the file system.
  */
-public abstract class MeasureRepository {
+public abstract class MeasureRepository implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(MeasureRepository.class);
 
     /**
-     * Builds a new instance of {@link MeasureRepository} depending of the source.
+     * Builds a new instance of {@link MeasureRepository} depending of the source. A file is only loaded once by a
+     * long-running process, as long as it's not modified.
      * @param sourcePath the path on disk of the file or folder
      * @return the instance containing the data
      * @throws IOException if the data cannot be accessed
      */
     public static MeasureRepository build(String sourcePath) throws IOException {
-        final File source = new File(sourcePath);
+        return build(sourcePath, 0);
+    }
 
-        if(source.isFile()) {
-            final MeasureStore model = new MeasureStore();
+    /**
+     * Builds a new instance of {@link MeasureRepository} depending of the source. With a memory budget, a file is
+     * loaded in memory-mapped files and isn't kept by a long-running process.
+     * @param sourcePath the path on disk of the file or folder
+     * @param memoryBudget the memory given to the measures of a file, in MB, or 0 to keep them on the heap
+     * @return the instance containing the data, to close once it's no longer used
+     * @throws IOException if the data cannot be accessed
+     * @see Stores#createStore(long)
+     */
+    public static MeasureRepository build(String sourcePath, long memoryBudget) throws IOException {
+        final File source = new File(sourcePath);
 
-            logger.info("Loading {}...", source.getPath());
-            Stores.loadClasses(source, model);
+        if(source.isFile() && memoryBudget > 0) {
+            logger.info("Loading {} in memory-mapped files...", source.getPath());
+            return new FileSource(Stores.loadClasses(source.getPath(), memoryBudget));
+        } else if(source.isFile()) {
+            final MeasureStore model = ResidentCache.get(source, () -> {
+                logger.info("Loading {}...", source.getPath());
+                return Stores.loadClasses(source, new ColumnarMeasureStore());
+            });
             return new FileSource(model);
         } else {
             return new FolderSource(source);
@@ -42,4 +62,12 @@ public abstract class MeasureRepository {
      * @throws IOException when the underlying data container fails
      */
     public abstract MeasureStore get(String ... versions) throws IOException;
+
+    /**
+     * Releases the resources held by the repository.
+     * @throws IOException when the resources cannot be released
+     */
+    @Override
+    public void close() throws IOException {
+    }
 }
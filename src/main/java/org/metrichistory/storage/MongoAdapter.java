@@ -10,11 +10,12 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.metrichistory.model.MeasureStore;
 import org.metrichistory.model.Metrics;
+import org.metrichistory.model.RevisionId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +35,9 @@ public class MongoAdapter implements Database{
     private static final String FIELD_REVISION = "revision";
     private static final String FIELD_CLASS_NAME = "name";
     private static final String INDEX_NAME = "compound_revision_name_1";
+    private static final String[] METRIC_NAMES = Arrays.stream(Stores.getLabels())
+            .map(String::toLowerCase)
+            .toArray(String[]::new);
 
     private final MongoDatabase database;
 
@@ -46,7 +50,7 @@ public class MongoAdapter implements Database{
     }
 
     @Override
-    public void persist(HashMap<String, String> ancestry) {
+    public void persist(Map<RevisionId, RevisionId> ancestry) {
         final MongoCollection<Document> revisions = database.getCollection(COLLECTION_REVISION);
         final List<Document> documents = createDocuments(ancestry);
         revisions.insertMany(documents);
@@ -116,17 +120,22 @@ public class MongoAdapter implements Database{
         return result;
     }
 
-    private Document createDocument(Metrics metric) {
-        final Map<String, Double> metrics = Stores.convertToSourceMeterFormat(metric);
+    private Document createDocument(Metrics metrics) {
+        if (metrics.size() != METRIC_NAMES.length) {
+            throw new IllegalStateException("These metrics are not compatible with the SourceMeter's format");
+        }
 
         final Document result = new Document();
-        metrics.forEach(result::append);
+        for (int i = 0; i < METRIC_NAMES.length; i++) {
+            result.append(METRIC_NAMES[i], metrics.getDouble(i));
+        }
         return result;
     }
 
-    private List<Document> createDocuments(HashMap<String, String> ancestry) {
+    private List<Document> createDocuments(Map<RevisionId, RevisionId> ancestry) {
         final ArrayList<Document> documents = new ArrayList<>(ancestry.size());
-        ancestry.forEach((s, s2) -> documents.add(new Document(FIELD_REVISION, s).append("parent", s2)));
+        ancestry.forEach((revision, parent) -> documents.add(new Document(FIELD_REVISION, revision.toString())
+                .append("parent", parent.toString())));
         return documents;
     }
 }
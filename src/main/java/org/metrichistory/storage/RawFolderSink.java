@@ -0,0 +1,146 @@
+package org.metrichistory.storage;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.metrichistory.model.MetricDump;
+import org.metrichistory.model.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the results of each version in RAW format in its own file, named after the version. The file of a version
+ * is written at once, so it is either complete or absent.
+ * <p>
+ * The file declaring each class, which the RAW format doesn't have, is written beforehand in the folder
+ * {@value #FILES_FOLDER}, so the results can be read back to analyze the children of the version incrementally.
+ */
+public class RawFolderSink implements ResultSink {
+    public static final String FILES_FOLDER = "files";
+
+    private static final String[] FILES_HEADER = {"class", "file"};
+
+    private final File folder;
+    private final String[] header;
+
+    /**
+     * @param folder the folder containing the files
+     * @param labels the labels of the metrics, in the order they are stored in {@link Metrics}.
+     */
+    public RawFolderSink(String folder, String... labels) {
+        this.folder = new File(folder);
+        this.header = new String[labels.length + 2];
+        header[0] = "revision";
+        header[1] = "class";
+        System.arraycopy(labels, 0, header, 2, labels.length);
+    }
+
+    @Override
+    public void write(String revision, MetricDump dump) throws IOException {
+        final List<List<Object>> files = new ArrayList<>();
+        final List<List<Object>> records = new ArrayList<>();
+        for (String className : dump.getClasses()) {
+            final String file = dump.getFile(className);
+            if (file != null) {
+                final List<Object> record = new ArrayList<>();
+                record.add(className);
+                record.add(file);
+                files.add(record);
+            }
+
+            final List<Object> record = new ArrayList<>();
+            record.add(revision);
+            record.add(className);
+            record.addAll(dump.getMetric(className).get());
+            records.add(record);
+        }
+
+        // The results are written last, so the files are present whenever the results are.
+        write(getFilesFile(revision), FILES_HEADER, files);
+        write(getFile(revision), header, records);
+    }
+
+    private void write(File target, String[] header, List<List<Object>> records) throws IOException {
+        final Path parent = target.getParentFile().toPath();
+        Files.createDirectories(parent);
+        final Path temporary = Files.createTempFile(parent, target.getName(), ".tmp");
+
+        try (CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8), getFormat(header))) {
+            printer.printRecords(records);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean contains(String revision) {
+        return getFile(revision).isFile();
+    }
+
+    @Override
+    public MetricDump read(String revision) throws IOException {
+        final File file = getFile(revision);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        final Map<String, String> files = new HashMap<>();
+        final File filesFile = getFilesFile(revision);
+        if (filesFile.isFile()) {
+            try (Reader reader = Files.newBufferedReader(filesFile.toPath(), StandardCharsets.UTF_8);
+                 CSVParser parser = new CSVParser(reader, getFormat(FILES_HEADER).withSkipHeaderRecord())) {
+                for (CSVRecord record : parser) {
+                    files.put(record.get(0), record.get(1));
+                }
+            }
+        }
+
+        final MetricDump dump = new MetricDump();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, getFormat(header).withSkipHeaderRecord())) {
+            for (CSVRecord record : parser) {
+                final double[] values = new double[record.size() - 2];
+                for (int i = 2; i < record.size(); i++) {
+                    values[i - 2] = Double.parseDouble(record.get(i));
+                }
+
+                final String className = record.get(1);
+                final String declaringFile = files.get(className);
+                if (declaringFile == null) {
+                    dump.add(className, Metrics.wrap(values));
+                } else {
+                    dump.add(className, declaringFile, Metrics.wrap(values));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupted data in " + file + ". Please verify the file.", e);
+        }
+        return dump;
+    }
+
+    private File getFile(String revision) {
+        return new File(folder, revision + ".csv");
+    }
+
+    private File getFilesFile(String revision) {
+        return new File(new File(folder, FILES_FOLDER), revision + ".csv");
+    }
+
+    private CSVFormat getFormat(String[] header) {
+        return Stores.getFormat(false).withHeader(header);
+    }
+}
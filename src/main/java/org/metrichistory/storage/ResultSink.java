@@ -0,0 +1,34 @@
+package org.metrichistory.storage;
+
+import org.metrichistory.model.MetricDump;
+
+import java.io.IOException;
+
+/**
+ * Receives the results of an analyzer as soon as a version has been analyzed, so they don't need to be kept in
+ * memory. Implementations must be thread safe.
+ */
+public interface ResultSink {
+
+    /**
+     * Saves the results of a version.
+     * @param revision the version
+     * @param dump the metrics of each class of the version
+     * @throws IOException when the results cannot be saved
+     */
+    void write(String revision, MetricDump dump) throws IOException;
+
+    /**
+     * @return <code>true</code> if the results of the version have already been saved.
+     */
+    boolean contains(String revision);
+
+    /**
+     * Reads the results of a version saved earlier, possibly by another process or run. The file declaring each class
+     * is only known if it was saved with the results.
+     * @param revision the version
+     * @return the results or <code>null</code> if the version hasn't been saved
+     * @throws IOException when the results cannot be read
+     */
+    MetricDump read(String revision) throws IOException;
+}
@@ -3,19 +3,29 @@ package org.metrichistory.storage;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.metrichistory.model.ColumnarMeasureStore;
+import org.metrichistory.model.MappedMeasureStore;
 import org.metrichistory.model.MeasureStore;
 import org.metrichistory.model.Metrics;
+import org.metrichistory.model.SymbolTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Loads CSV files
@@ -25,6 +35,11 @@ public final class Stores {
 
     private static final int NUMBER_OF_SOURCEMETER_METRICS = 52;
 
+    /**
+     * The extension of the compressed CSV files.
+     */
+    public static final String COMPRESSED_EXTENSION = ".gz";
+
     private static final String[] HEADER_SOURCEMETER = {"revision", "class", "LCOM5", "NL", "NLE", "WMC", "CBO", "CBOI",
             "NII", "NOI", "RFC", "AD", "CD", "CLOC", "DLOC", "PDA", "PUA", "TCD", "TCLOC", "DIT", "NOA", "NOC", "NOD",
             "NOP", "LLOC", "LOC", "NA", "NG", "NLA", "NLG", "NLM", "NLPA", "NLPM", "NLS", "NM", "NOS", "NPA", "NPM",
@@ -47,11 +62,17 @@ public final class Stores {
     public static MeasureStore loadClasses(String filePath, MeasureStore model) throws IOException {
         Objects.requireNonNull(model);
 
-        final CSVParser parser = new CSVParser(new FileReader(filePath), getFormat().withSkipHeaderRecord());
+        final CSVParser parser = new CSVParser(openReader(filePath), getFormat().withSkipHeaderRecord());
 
         try {
+            final SymbolTable symbols = model.symbols();
+            String version = null;
             for (CSVRecord record : parser) {
-                model.add(record.get(0), record.get(1), convertMetrics(record));
+                // The rows of a version are usually contiguous: its name is only looked up when it changes.
+                if (version == null || !version.equals(record.get(0))) {
+                    version = symbols.canonical(record.get(0));
+                }
+                model.add(version, symbols.intern(record.get(1)), convertMetrics(record));
             }
         } catch (ArrayIndexOutOfBoundsException e) {
             throw new IOException("Corrupted data in " + filePath + ". Please verify the file.");
@@ -60,12 +81,26 @@ public final class Stores {
         return model;
     }
 
+    /**
+     * Opens a CSV file, which is decompressed if its name ends with <code>.gz</code>.
+     * @param filePath the path of the CSV file
+     * @return a new reader
+     * @throws IOException when the file cannot be opened.
+     */
+    public static Reader openReader(String filePath) throws IOException {
+        if (filePath.endsWith(COMPRESSED_EXTENSION)) {
+            return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filePath)),
+                    StandardCharsets.UTF_8));
+        }
+        return new FileReader(filePath);
+    }
+
     public static MeasureStore loadClasses(File file, MeasureStore model) throws IOException {
         return loadClasses(file.getPath(), model);
     }
 
     /**
-     * Loads a {@link MeasureStore} in CSV format from the disk.
+     * Loads a {@link MeasureStore} in CSV format from the disk, into a {@link ColumnarMeasureStore}.
      *
      * @param filePath the path of the CSV file
      * @return a new instance of {@link MeasureStore}
@@ -73,17 +108,59 @@ public final class Stores {
      * @throws IOException           when there is a reading problem with the disk.
      */
     public static MeasureStore loadClasses(String filePath) throws IOException {
-        return loadClasses(filePath, new MeasureStore());
+        return loadClasses(filePath, new ColumnarMeasureStore());
+    }
+
+    /**
+     * Loads a {@link MeasureStore} in CSV format from the disk.
+     *
+     * @param filePath the path of the CSV file
+     * @param memoryBudget the memory given to the measures, in MB, or 0 to keep them on the heap
+     * @return a new instance of {@link MeasureStore}, to release with {@link #release(MeasureStore)}
+     * @throws IOException           when there is a reading problem with the disk.
+     * @see #createStore(long)
+     */
+    public static MeasureStore loadClasses(String filePath, long memoryBudget) throws IOException {
+        final MeasureStore model = createStore(memoryBudget);
+        try {
+            return loadClasses(filePath, model);
+        } catch (IOException | RuntimeException e) {
+            release(model);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty store. With a memory budget, the measures are kept in memory-mapped files, and the size of the
+     * store is only limited by the disk.
+     * @param memoryBudget the memory given to the measures, in MB, or 0 to keep them on the heap
+     * @throws IOException when the files of the store cannot be created
+     */
+    public static MeasureStore createStore(long memoryBudget) throws IOException {
+        if (memoryBudget > 0) {
+            return new MappedMeasureStore(memoryBudget * 1024 * 1024);
+        }
+        return new ColumnarMeasureStore();
+    }
+
+    /**
+     * Releases the resources held by a store, such as its memory-mapped files.
+     * @throws IOException when the resources cannot be released
+     */
+    public static void release(MeasureStore model) throws IOException {
+        if (model instanceof Closeable) {
+            ((Closeable) model).close();
+        }
     }
 
     private static Metrics convertMetrics(CSVRecord record) {
-        final Metrics metrics = new Metrics();
+        final double[] metrics = new double[record.size() - 2];
 
         for (int i = 2; i < record.size(); i++) {
-            metrics.add(Double.parseDouble(record.get(i)));
+            metrics[i - 2] = Double.parseDouble(record.get(i));
         }
 
-        return metrics;
+        return Metrics.wrap(metrics);
     }
 
     /**
@@ -123,12 +200,15 @@ public final class Stores {
         final HashMap<String, Double> map = new HashMap<>();
         for (int i = 0; i < labels.length; i++) {
             final String label = labels[i].toLowerCase();
-            map.put(label, metrics.get(i));
+            map.put(label, metrics.getDouble(i));
         }
         return map;
     }
 
-    private static String[] getLabels() {
+    /**
+     * @return the names of the SourceMeter metrics, in the order of {@link Metrics}.
+     */
+    public static String[] getLabels() {
         return Arrays.copyOfRange(HEADER_SOURCEMETER, 2, HEADER_SOURCEMETER.length);
     }
 
@@ -0,0 +1,69 @@
+package org.metrichistory.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the objects which are costly to load in memory between the commands run by a long-running process (see the
+ * <code>serve</code> command). It's disabled by default: each command then loads its own objects. The objects are
+ * softly referenced, so they are dropped when the memory runs low.
+ * The cached objects are shared by the commands: the results loaded from the files must not be modified.
+ */
+public final class ResidentCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResidentCache.class);
+
+    private static final Map<String, SoftReference<Object>> entries = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+
+    private ResidentCache() {
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the object cached under a key, loading it if it's not cached. When the cache is disabled, the object
+     * is loaded every time.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String key, Loader<T> loader) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+
+        final SoftReference<Object> reference = entries.get(key);
+        final Object cached = reference == null ? null : reference.get();
+        if (cached != null) {
+            logger.debug("Reusing {}", key);
+            return (T) cached;
+        }
+
+        final T loaded = loader.load();
+        entries.put(key, new SoftReference<>(loaded));
+        return loaded;
+    }
+
+    /**
+     * Returns the object loaded from a file, loading it again when the file has been modified.
+     * @see #get(String, Loader)
+     */
+    public static <T> T get(File file, Loader<T> loader) throws IOException {
+        return get(file.getAbsolutePath() + '@' + file.lastModified() + ':' + file.length(), loader);
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+}
@@ -0,0 +1,20 @@
+package org.metrichistory.versioncontrol;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Receives the files of a version read by {@link Vcs#walkTree}.
+ */
+@FunctionalInterface
+public interface BlobVisitor {
+
+    /**
+     * Visits one file of the version.
+     * @param path the path of the file, relative to the root of the repository
+     * @param blobId the identifier of the file's content in the version control system
+     * @param content the content of the file. It is only valid during the call
+     * @throws IOException when the content cannot be read or processed
+     */
+    void visit(String path, String blobId, InputStream content) throws IOException;
+}
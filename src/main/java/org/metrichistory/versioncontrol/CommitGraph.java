@@ -0,0 +1,464 @@
+package org.metrichistory.versioncontrol;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the commits of a repository, stored in <code>.git/metric-history/commit-graph</code> and read through a
+ * memory-mapped file. Each commit has a position, and its parents are stored as positions along with its commit and
+ * author times and its generation number (1 for a root commit, 1 + the largest generation of its parents otherwise).
+ * Looking up a commit or its parents doesn't parse any object. When the index is opened, the commits added to the
+ * repository since it was written are appended to it.
+ * <p>
+ * The commits are stored in topological order, parents first, followed by the positions sorted by commit id and the
+ * parents of the commits having more than two parents.
+ */
+public final class CommitGraph {
+    private static final Logger logger = LoggerFactory.getLogger(CommitGraph.class);
+
+    static final String FILE_NAME = "metric-history" + File.separator + "commit-graph";
+
+    /**
+     * The position of a missing commit or parent.
+     */
+    public static final int NONE = -1;
+
+    private static final int MAGIC = 0x4d484347; // MHCG
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES; // magic, version, commits, extra parents
+    private static final int RECORD_SIZE = Constants.OBJECT_ID_LENGTH + 6 * Integer.BYTES;
+
+    // Offsets in a record.
+    private static final int COMMIT_TIME = Constants.OBJECT_ID_LENGTH;
+    private static final int AUTHOR_TIME = COMMIT_TIME + Integer.BYTES;
+    private static final int GENERATION = AUTHOR_TIME + Integer.BYTES;
+    private static final int FIRST_PARENT = GENERATION + Integer.BYTES;
+    private static final int SECOND_PARENT = FIRST_PARENT + Integer.BYTES;
+    private static final int EXTRA_PARENTS = SECOND_PARENT + Integer.BYTES;
+
+    private static final CommitGraph EMPTY = new CommitGraph(emptyBuffer(), 0);
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int lookupOffset;
+    private final int extraOffset;
+
+    private CommitGraph(ByteBuffer buffer, int count) {
+        this.buffer = buffer;
+        this.count = count;
+        this.lookupOffset = HEADER_SIZE + count * RECORD_SIZE;
+        this.extraOffset = lookupOffset + count * Integer.BYTES;
+    }
+
+    /**
+     * Opens the index of a repository, after adding the commits reachable from its references which are not indexed
+     * yet. The index is rebuilt if it cannot be read.
+     * @param repository the repository, bare or not, whose git directory holds the index
+     * @return the index
+     * @throws IOException when the repository cannot be read or the index cannot be written
+     */
+    public static CommitGraph open(Repository repository) throws IOException {
+        final File file = new File(repository.getDirectory(), FILE_NAME);
+
+        CommitGraph graph = EMPTY;
+        if (file.isFile()) {
+            try {
+                graph = read(file);
+            } catch (IOException e) {
+                logger.warn("The commit graph {} is corrupted and is rebuilt", file, e);
+            }
+        }
+
+        final List<ObjectId> tips = new ArrayList<>();
+        for (Ref ref : repository.getRefDatabase().getRefs()) {
+            final Ref peeled = repository.getRefDatabase().peel(ref);
+            final ObjectId id = peeled.getPeeledObjectId() != null ? peeled.getPeeledObjectId() : peeled.getObjectId();
+            if (id != null && graph.find(id) == NONE) {
+                tips.add(id);
+            }
+        }
+
+        if (tips.isEmpty()) {
+            return graph;
+        }
+
+        final long beginning = System.nanoTime();
+        final int previous = graph.size();
+        graph.extend(repository, tips, file);
+        graph = read(file);
+        logger.info("Indexed {} new commits in {} ms", graph.size() - previous, (System.nanoTime() - beginning) / 1_000_000);
+        return graph;
+    }
+
+    private static CommitGraph read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unknown format");
+            }
+
+            final int count = buffer.getInt(8);
+            final int extraCount = buffer.getInt(12);
+            final long expected = HEADER_SIZE + (long) count * (RECORD_SIZE + Integer.BYTES) + (long) extraCount * Integer.BYTES;
+            if (count < 0 || extraCount < 0 || channel.size() != expected) {
+                throw new IOException("Truncated file");
+            }
+            return new CommitGraph(buffer, count);
+        }
+    }
+
+    /**
+     * @return the number of commits in the index.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the position of a commit.
+     * @return the position or {@link #NONE} if the commit is not in the index.
+     */
+    public int find(AnyObjectId id) {
+        final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        id.copyRawTo(raw, 0);
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int position = buffer.getInt(lookupOffset + middle * Integer.BYTES);
+            final int comparison = compare(position, raw);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return position;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Finds the position of a commit given as a full SHA.
+     * @return the position or {@link #NONE} if the revision is not a full SHA or is not in the index.
+     */
+    public int find(String revision) {
+        return ObjectId.isId(revision) ? find(ObjectId.fromString(revision)) : NONE;
+    }
+
+    private int compare(int position, byte[] id) {
+        final int offset = HEADER_SIZE + position * RECORD_SIZE;
+        for (int i = 0; i < id.length; i++) {
+            final int comparison = Integer.compare(buffer.get(offset + i) & 0xff, id[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    public ObjectId getId(int position) {
+        final int offset = HEADER_SIZE + position * RECORD_SIZE;
+        final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = buffer.get(offset + i);
+        }
+        return ObjectId.fromRaw(raw);
+    }
+
+    /**
+     * @return the commit time, in seconds since the epoch.
+     */
+    public long getCommitTime(int position) {
+        return Integer.toUnsignedLong(getInt(position, COMMIT_TIME));
+    }
+
+    /**
+     * @return the author time, in seconds since the epoch.
+     */
+    public long getAuthorTime(int position) {
+        return Integer.toUnsignedLong(getInt(position, AUTHOR_TIME));
+    }
+
+    public int getGeneration(int position) {
+        return getInt(position, GENERATION);
+    }
+
+    /**
+     * @return the position of the first parent or {@link #NONE} for a root commit.
+     */
+    public int getFirstParent(int position) {
+        return getInt(position, FIRST_PARENT);
+    }
+
+    /**
+     * @return the positions of all the parents, in order.
+     */
+    public int[] getParents(int position) {
+        final int first = getInt(position, FIRST_PARENT);
+        final int second = getInt(position, SECOND_PARENT);
+        final int extra = getInt(position, EXTRA_PARENTS);
+        if (first == NONE) {
+            return new int[0];
+        }
+        if (second == NONE) {
+            return new int[]{first};
+        }
+        if (extra == NONE) {
+            return new int[]{first, second};
+        }
+
+        final int extraCount = buffer.getInt(extraOffset + extra * Integer.BYTES);
+        final int[] parents = new int[2 + extraCount];
+        parents[0] = first;
+        parents[1] = second;
+        for (int i = 0; i < extraCount; i++) {
+            parents[2 + i] = buffer.getInt(extraOffset + (extra + 1 + i) * Integer.BYTES);
+        }
+        return parents;
+    }
+
+    private int getInt(int position, int field) {
+        return buffer.getInt(HEADER_SIZE + position * RECORD_SIZE + field);
+    }
+
+    /**
+     * Returns the commits reachable from <code>to</code> but not from <code>from</code>, like
+     * <code>git log from..to</code>. Since a commit can only reach commits of a lower generation, the commits
+     * reachable from <code>from</code> are only explored down to the lowest generation met from <code>to</code>.
+     * @param from the position of the excluded commit or {@link #NONE} to include the whole history
+     * @param to the position of the included commit
+     * @return the positions, in no particular order.
+     */
+    public List<Integer> range(int from, int to) {
+        final BitSet reachable = new BitSet(count);
+        final List<Integer> result = new ArrayList<>();
+        final Deque<Integer> queue = new ArrayDeque<>();
+
+        queue.add(to);
+        reachable.set(to);
+        int lowestGeneration = Integer.MAX_VALUE;
+        while (!queue.isEmpty()) {
+            final int position = queue.removeFirst();
+            result.add(position);
+            lowestGeneration = Math.min(lowestGeneration, getGeneration(position));
+            for (int parent : getParents(position)) {
+                if (!reachable.get(parent)) {
+                    reachable.set(parent);
+                    queue.add(parent);
+                }
+            }
+        }
+
+        if (from == NONE) {
+            return result;
+        }
+
+        final BitSet excluded = new BitSet(count);
+        queue.add(from);
+        excluded.set(from);
+        while (!queue.isEmpty()) {
+            final int position = queue.removeFirst();
+            for (int parent : getParents(position)) {
+                if (!excluded.get(parent) && getGeneration(parent) >= lowestGeneration) {
+                    excluded.set(parent);
+                    queue.add(parent);
+                }
+            }
+        }
+
+        result.removeIf(excluded::get);
+        return result;
+    }
+
+    /**
+     * Writes a new index containing the commits of this index and the commits reachable from <code>tips</code>.
+     */
+    private void extend(Repository repository, List<ObjectId> tips, File file) throws IOException {
+        final Builder builder = new Builder(this);
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            final Deque<RevCommit> stack = new ArrayDeque<>();
+            for (ObjectId tip : tips) {
+                try {
+                    stack.push(walk.parseCommit(tip));
+                } catch (IncorrectObjectTypeException | MissingObjectException e) {
+                    // The references to trees or blobs, and the broken references, are not indexed.
+                }
+            }
+
+            // Depth-first traversal adding each commit once all its parents have been added.
+            while (!stack.isEmpty()) {
+                final RevCommit commit = stack.peek();
+                if (builder.contains(commit)) {
+                    stack.pop();
+                    continue;
+                }
+
+                boolean ready = true;
+                for (RevCommit parent : commit.getParents()) {
+                    if (!builder.contains(parent)) {
+                        walk.parseHeaders(parent);
+                        stack.push(parent);
+                        ready = false;
+                    }
+                }
+
+                if (ready) {
+                    stack.pop();
+                    builder.add(commit);
+                    commit.disposeBody();
+                }
+            }
+        }
+
+        builder.write(file);
+    }
+
+    private static ByteBuffer emptyBuffer() {
+        return ByteBuffer.allocate(HEADER_SIZE);
+    }
+
+    /**
+     * Accumulates the commits of an existing index and the new commits, then writes them in a new index.
+     */
+    private static final class Builder {
+        private final CommitGraph base;
+        private final Map<ObjectId, Integer> added = new HashMap<>();
+        private final List<int[]> records = new ArrayList<>(); // commit time, author time, generation, parents...
+        private final List<ObjectId> ids = new ArrayList<>();
+
+        Builder(CommitGraph base) {
+            this.base = base;
+        }
+
+        boolean contains(AnyObjectId id) {
+            return position(id) != NONE;
+        }
+
+        private int position(AnyObjectId id) {
+            final Integer position = added.get(id);
+            return position != null ? position : base.find(id);
+        }
+
+        private int generation(int position) {
+            return position < base.size() ? base.getGeneration(position) : records.get(position - base.size())[2];
+        }
+
+        void add(RevCommit commit) {
+            final RevCommit[] parents = commit.getParents();
+            final int[] record = new int[3 + parents.length];
+            record[0] = commit.getCommitTime();
+            record[1] = (int) (commit.getAuthorIdent().getWhen().getTime() / 1000);
+
+            int generation = 0;
+            for (int i = 0; i < parents.length; i++) {
+                record[3 + i] = position(parents[i]);
+                generation = Math.max(generation, generation(record[3 + i]));
+            }
+            record[2] = generation + 1;
+
+            added.put(commit.copy(), base.size() + records.size());
+            ids.add(commit.copy());
+            records.add(record);
+        }
+
+        void write(File file) throws IOException {
+            final int count = base.size() + records.size();
+
+            // The existing commits keep their position.
+            final ObjectId[] allIds = new ObjectId[count];
+            final int[][] allParents = new int[count][];
+            final List<Integer> extra = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                allIds[i] = i < base.size() ? base.getId(i) : ids.get(i - base.size());
+                allParents[i] = i < base.size() ? base.getParents(i)
+                        : Arrays.copyOfRange(records.get(i - base.size()), 3, records.get(i - base.size()).length);
+            }
+
+            final Integer[] lookup = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                lookup[i] = i;
+            }
+            Arrays.sort(lookup, (a, b) -> allIds[a].compareTo(allIds[b]));
+
+            for (int[] parents : allParents) {
+                if (parents.length > 2) {
+                    extra.add(parents.length - 2);
+                    for (int p = 2; p < parents.length; p++) {
+                        extra.add(parents[p]);
+                    }
+                }
+            }
+
+            Files.createDirectories(file.getParentFile().toPath());
+            // The processes indexing the same repository at the same time each write their own file.
+            final Path temporary = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(count);
+                out.writeInt(extra.size());
+
+                final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+                int extraPosition = 0;
+                for (int i = 0; i < count; i++) {
+                    final int[] parents = allParents[i];
+                    allIds[i].copyRawTo(raw, 0);
+                    out.write(raw);
+                    out.writeInt(i < base.size() ? base.getInt(i, COMMIT_TIME) : records.get(i - base.size())[0]);
+                    out.writeInt(i < base.size() ? base.getInt(i, AUTHOR_TIME) : records.get(i - base.size())[1]);
+                    out.writeInt(generation(i));
+                    out.writeInt(parents.length > 0 ? parents[0] : NONE);
+                    out.writeInt(parents.length > 1 ? parents[1] : NONE);
+                    out.writeInt(parents.length > 2 ? extraPosition : NONE);
+                    if (parents.length > 2) {
+                        extraPosition += parents.length - 1;
+                    }
+                }
+
+                for (Integer position : lookup) {
+                    out.writeInt(position);
+                }
+                for (Integer value : extra) {
+                    out.writeInt(value);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+
+            Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
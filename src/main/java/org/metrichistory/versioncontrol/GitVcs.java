@@ -5,18 +5,21 @@ import org.eclipse.jgit.api.*;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.NoWorkTreeException;
-import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.metrichistory.model.vcs.Commit;
 import org.metrichistory.model.vcs.CommitFactory;
 import org.metrichistory.model.vcs.NullTag;
@@ -26,8 +29,17 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 import static org.metrichistory.util.DateUtils.offsetDateTimeOf;
 
@@ -35,15 +47,71 @@ public class GitVcs implements Vcs {
 
     private static final Logger logger = LoggerFactory.getLogger(GitVcs.class);
 
+    private static final int MIN_PARENTS_PER_THREAD = 1_000;
+
     private final Repository repository;
     private String saved;
+    private SparseCheckout sparse;
+    private CommitGraph commitGraph;
+    private boolean commitGraphOpened;
 
     GitVcs(Repository repository) {
         this.repository = repository;
     }
 
+    /**
+     * Opens the commit-graph index on first use, adding the commits reachable from the references.
+     * @return the index or <code>null</code> if it cannot be written, in which case the commits are parsed.
+     */
+    private synchronized CommitGraph getCommitGraph() {
+        if (!commitGraphOpened) {
+            commitGraphOpened = true;
+            try {
+                commitGraph = CommitGraph.open(repository);
+            } catch (IOException e) {
+                logger.warn("The commit-graph index is not available, the commits will be parsed: {}",
+                        e.getMessage());
+            }
+        }
+        return commitGraph;
+    }
+
+    /**
+     * Finds the position of a commit in the commit-graph index.
+     * @return the position or {@link CommitGraph#NONE} if the index is not available or doesn't contain the commit.
+     */
+    private int findInGraph(AnyObjectId commitId) {
+        final CommitGraph graph = getCommitGraph();
+        return graph == null ? CommitGraph.NONE : graph.find(commitId);
+    }
+
+    private String getFirstParentInGraph(int position) {
+        final int parent = commitGraph.getFirstParent(position);
+        return parent == CommitGraph.NONE ? null : commitGraph.getId(parent).getName();
+    }
+
+    /**
+     * Reads the author date of a commit from the index, parsing the commit only if it's not indexed.
+     */
+    private Date getAuthorDate(ObjectId commitId) throws IOException {
+        final int position = findInGraph(commitId);
+        if (position != CommitGraph.NONE) {
+            return new Date(commitGraph.getAuthorTime(position) * 1000);
+        }
+        return repository.parseCommit(commitId).getAuthorIdent().getWhen();
+    }
+
     @Override
     public void checkout(String version) throws VcsOperationException {
+        if (sparse != null) {
+            try {
+                sparse.checkout(resolveExisting(version));
+            } catch (IOException e) {
+                throw new VcsOperationException("Git encountered an error while loading version" + version, e);
+            }
+            return;
+        }
+
         final CheckoutCommand command = new Git(repository).checkout().setName(version).setForceRefUpdate(true);
 
         try {
@@ -55,6 +123,15 @@ public class GitVcs implements Vcs {
 
     @Override
     public void clean() {
+        if (sparse != null) {
+            try {
+                sparse.clean();
+            } catch (IOException e) {
+                logger.error("Unable to clean the working directory", e);
+            }
+            return;
+        }
+
         try {
             final Status status = new Git(repository).status().call();
 
@@ -73,6 +150,11 @@ public class GitVcs implements Vcs {
         }
     }
 
+    @Override
+    public void setSparse(Predicate<String> filter) {
+        sparse = filter == null ? null : new SparseCheckout(repository, filter);
+    }
+
     @Override
     public void saveVersion() {
         try {
@@ -93,11 +175,16 @@ public class GitVcs implements Vcs {
             return;
         }
 
+        // The sparse checkouts only modified the working directory, which is fully restored from the index.
+        final Predicate<String> sparseFilter = sparse == null ? null : sparse.getFilter();
+        setSparse(null);
         try {
             clean();
             checkout(saved);
         } catch (VcsOperationException e) {
             unexpectedGitError(e);
+        } finally {
+            setSparse(sparseFilter);
         }
     }
 
@@ -105,11 +192,10 @@ public class GitVcs implements Vcs {
     public void getChangedFiles(String revision, Collection<File> beforeFiles, Collection<File> afterFiles)
             throws IOException {
         final Git git = new Git(repository);
-        final ObjectReader reader = repository.newObjectReader();
-
         final ObjectId revisionId = repository.resolve(revision);
 
-        try (RevWalk walk = new RevWalk(repository)) {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader)) {
             final RevCommit commit = walk.parseCommit(revisionId);
 
             final CanonicalTreeParser oldTree = new CanonicalTreeParser();
@@ -134,7 +220,7 @@ public class GitVcs implements Vcs {
             }
 
         } catch (GitAPIException e) {
-            logger.error("Unable to retrieve changed files for revision {}", revision, e);
+            throw new IOException("Unable to retrieve the changed files of revision " + revision, e);
         }
     }
 
@@ -150,8 +236,7 @@ public class GitVcs implements Vcs {
                 logger.error("Null PeeledObjectId for " + ref.getName());
                 objectId = ref.getObjectId();
             }
-            RevCommit commit = repository.parseCommit(objectId);
-            TagCommitPair tagCommitPair = new TagCommitPair(ref, commit, objectId);
+            TagCommitPair tagCommitPair = new TagCommitPair(ref, getAuthorDate(objectId), objectId);
             if (!tagList.contains(tagCommitPair)) {
                 tagList.add(tagCommitPair);
             }
@@ -173,8 +258,7 @@ public class GitVcs implements Vcs {
                 logger.error("Null PeeledObjectId for " + ref.getName());
                 objectId = ref.getObjectId();
             }
-            RevCommit commit = repository.parseCommit(objectId);
-            TagCommitPair tagCommitPair = new TagCommitPair(ref, commit, objectId);
+            TagCommitPair tagCommitPair = new TagCommitPair(ref, getAuthorDate(objectId), objectId);
             if (!tagList.contains(tagCommitPair)) {
                 tagList.add(tagCommitPair);
             }
@@ -204,8 +288,7 @@ public class GitVcs implements Vcs {
 
             // find and add the master ref
             Ref masterRef = repository.findRef(Tag.masterBranchRef);
-            RevCommit lastCommit = repository.parseCommit(masterRef.getObjectId());
-            OffsetDateTime commitDateTime = offsetDateTimeOf(lastCommit.getAuthorIdent().getWhen());
+            OffsetDateTime commitDateTime = offsetDateTimeOf(getAuthorDate(masterRef.getObjectId()));
             Tag masterRefTag = Tag.masterRef(masterRef.getObjectId().getName(), commitDateTime, previousTag);
             tagList.add(masterRefTag);
 
@@ -245,8 +328,7 @@ public class GitVcs implements Vcs {
 
             // find and add the master ref
             Ref masterRef = repository.findRef(Tag.masterBranchRef);
-            RevCommit lastCommit = repository.parseCommit(masterRef.getObjectId());
-            OffsetDateTime commitDateTime = offsetDateTimeOf(lastCommit.getAuthorIdent().getWhen());
+            OffsetDateTime commitDateTime = offsetDateTimeOf(getAuthorDate(masterRef.getObjectId()));
             Tag masterRefTag = Tag.masterRef(masterRef.getObjectId().getName(), commitDateTime, previousTag);
             tagList.add(masterRefTag);
 
@@ -271,23 +353,41 @@ public class GitVcs implements Vcs {
         try {
 
             ObjectId toTagId = repository.resolve(toTag.getId());
+            final List<Commit> indexed = listCommitsInGraph(fromTag, toTagId, toTag);
+            if (indexed != null) {
+                return indexed;
+            }
+
             if (fromTag.isNull()){
                 logCommand.add(toTagId);
             } else {
                 ObjectId fromTagId = repository.resolve(fromTag.getId());
                 logCommand.addRange(fromTagId, toTagId);
             }
-            logCommand.setRevFilter(GitUtils.noMergeFilter());
             Iterable<RevCommit> revCommitIterable = logCommand.call();
 
-            List<RevCommit> revCommits = new ArrayList<>();
+            // the merges are kept until the commits are sorted, so their parents still come first
+            Map<ObjectId, RevCommit> range = new HashMap<>();
             for(RevCommit commit: revCommitIterable){
-                revCommits.add(commit);
+                range.put(commit, commit);
+            }
+            Map<ObjectId, List<ObjectId>> parents = new HashMap<>();
+            for(RevCommit commit: range.values()){
+                List<ObjectId> parentsInRange = new ArrayList<>();
+                for(RevCommit parent: commit.getParents()){
+                    if(range.containsKey(parent)){
+                        parentsInRange.add(parent);
+                    }
+                }
+                parents.put(commit, parentsInRange);
             }
-            // process in commit creation order
-            Collections.reverse(revCommits);
+
             CommitFactory commitFactory = CommitFactory.towardsRelease(toTag);
-            for(RevCommit revCommit: revCommits){
+            for(ObjectId id: sortParentsFirst(parents, commit -> range.get(commit).getCommitTime())){
+                RevCommit revCommit = range.get(id);
+                if(revCommit.getParentCount() > 1){
+                    continue;
+                }
                 OffsetDateTime dateTime = offsetDateTimeOf(revCommit.getAuthorIdent().getWhen());
                 Commit commit = commitFactory.nextCommit(revCommit.getName(), dateTime);
                 commits.add(commit);
@@ -303,6 +403,98 @@ public class GitVcs implements Vcs {
         return commits;
     }
 
+    /**
+     * Lists the commits between two releases from the commit-graph index, without parsing them.
+     * @return the commits or <code>null</code> if one of the releases is not indexed.
+     */
+    private List<Commit> listCommitsInGraph(Tag fromTag, ObjectId toTagId, Tag toTag) throws IOException {
+        final int to = toTagId == null ? CommitGraph.NONE : findInGraph(toTagId);
+        if (to == CommitGraph.NONE) {
+            return null;
+        }
+        int from = CommitGraph.NONE;
+        if (!fromTag.isNull()) {
+            final ObjectId fromTagId = repository.resolve(fromTag.getId());
+            from = fromTagId == null ? CommitGraph.NONE : commitGraph.find(fromTagId);
+            if (from == CommitGraph.NONE) {
+                return null;
+            }
+        }
+
+        final Map<ObjectId, Integer> range = new HashMap<>();
+        for (int position : commitGraph.range(from, to)) {
+            range.put(commitGraph.getId(position), position);
+        }
+        final Map<ObjectId, List<ObjectId>> parents = new HashMap<>();
+        for (Map.Entry<ObjectId, Integer> commit : range.entrySet()) {
+            final List<ObjectId> parentsInRange = new ArrayList<>();
+            for (int parent : commitGraph.getParents(commit.getValue())) {
+                final ObjectId parentId = commitGraph.getId(parent);
+                if (range.containsKey(parentId)) {
+                    parentsInRange.add(parentId);
+                }
+            }
+            parents.put(commit.getKey(), parentsInRange);
+        }
+
+        // Same selection and order as the log: no merge, parents first.
+        final List<Commit> commits = new ArrayList<>(range.size());
+        final CommitFactory commitFactory = CommitFactory.towardsRelease(toTag);
+        for (ObjectId id : sortParentsFirst(parents, commit -> commitGraph.getCommitTime(range.get(commit)))) {
+            final int position = range.get(id);
+            if (commitGraph.getParents(position).length > 1) {
+                continue;
+            }
+            final OffsetDateTime dateTime = offsetDateTimeOf(new Date(commitGraph.getAuthorTime(position) * 1000));
+            commits.add(commitFactory.nextCommit(commitGraph.getId(position).getName(), dateTime));
+        }
+        return commits;
+    }
+
+    /**
+     * Sorts the commits of a range so that each commit comes after its parents, whatever their timestamps. The commits
+     * are sorted by their depth in the range (1 + the largest depth of their parents in the range), then by commit
+     * time and by id, so the order doesn't depend on how the range was listed.
+     * @param parents the parents of each commit of the range, restricted to the range
+     * @param commitTime the commit time of a commit of the range
+     */
+    private static List<ObjectId> sortParentsFirst(Map<ObjectId, List<ObjectId>> parents, ToLongFunction<ObjectId> commitTime) {
+        final Map<ObjectId, Integer> depths = new HashMap<>();
+        final Deque<ObjectId> pending = new ArrayDeque<>();
+        for (ObjectId id : parents.keySet()) {
+            pending.push(id);
+            while (!pending.isEmpty()) {
+                final ObjectId commit = pending.peek();
+                if (depths.containsKey(commit)) {
+                    pending.pop();
+                    continue;
+                }
+
+                int depth = 0;
+                boolean ready = true;
+                for (ObjectId parent : parents.get(commit)) {
+                    final Integer parentDepth = depths.get(parent);
+                    if (parentDepth == null) {
+                        pending.push(parent);
+                        ready = false;
+                    } else {
+                        depth = Math.max(depth, parentDepth);
+                    }
+                }
+                if (ready) {
+                    depths.put(commit, depth + 1);
+                    pending.pop();
+                }
+            }
+        }
+
+        final List<ObjectId> sorted = new ArrayList<>(parents.keySet());
+        sorted.sort(Comparator.<ObjectId>comparingInt(depths::get)
+                .thenComparingLong(commitTime)
+                .thenComparing(Comparator.naturalOrder()));
+        return sorted;
+    }
+
     /**
      * Converts a {@link DiffEntry} path to the corresponding absolute {@link File}.
      *
@@ -316,12 +508,18 @@ public class GitVcs implements Vcs {
 
     @Override
     public String getDirectory() {
-        return FilenameUtils.normalize(repository.getDirectory().getParentFile().getAbsolutePath());
+        final File directory = repository.isBare() ? repository.getDirectory() : repository.getWorkTree();
+        return FilenameUtils.normalize(directory.getAbsolutePath());
     }
 
     @Override
     public String getParent(String revision) throws IOException {
         final ObjectId revisionId = repository.resolve(revision);
+        final int position = revisionId == null ? CommitGraph.NONE : findInGraph(revisionId);
+        if (position != CommitGraph.NONE) {
+            return getFirstParentInGraph(position);
+        }
+
         try(RevWalk walk = new RevWalk(repository)){
             final RevCommit commit = walk.parseCommit(revisionId);
 
@@ -334,26 +532,232 @@ public class GitVcs implements Vcs {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * The parents are read from the commit-graph index, the commits missing from it are parsed. All the commits
+     * parsed by a thread share the same {@link RevWalk}. The revisions are split between the
+     * threads only when each one gets at least {@value #MIN_PARENTS_PER_THREAD} revisions.
+     */
+    @Override
+    public Map<String, String> getParents(Collection<String> revisions, int threads) throws IOException {
+        final List<String> list = new ArrayList<>(revisions);
+        getCommitGraph(); // Opened once, before the threads start.
+        final int shards = Math.max(1, Math.min(threads, list.size() / MIN_PARENTS_PER_THREAD));
+        if (shards == 1) {
+            return resolveParents(list);
+        }
+
+        final int shardSize = (list.size() + shards - 1) / shards;
+        final ExecutorService executor = Executors.newFixedThreadPool(shards);
+        try {
+            final List<Future<Map<String, String>>> futures = new ArrayList<>(shards);
+            for (int i = 0; i < list.size(); i += shardSize) {
+                final List<String> shard = list.subList(i, Math.min(i + shardSize, list.size()));
+                futures.add(executor.submit(() -> resolveParents(shard)));
+            }
+
+            // The shards are merged in order, so the order of the revisions is kept.
+            final Map<String, String> parents = new LinkedHashMap<>(list.size() * 2);
+            for (Future<Map<String, String>> future : futures) {
+                parents.putAll(future.get());
+            }
+            return parents;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while retrieving the parents");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to retrieve the parents", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<String, String> resolveParents(List<String> revisions) throws IOException {
+        final Map<String, String> parents = new LinkedHashMap<>(revisions.size() * 2);
+
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader)) {
+            walk.setRetainBody(false);
+
+            for (String revision : revisions) {
+                final int position = commitGraph == null ? CommitGraph.NONE : commitGraph.find(revision);
+                if (position != CommitGraph.NONE) {
+                    parents.put(revision, getFirstParentInGraph(position));
+                    continue;
+                }
+
+                final RevCommit commit = parseCommit(walk, revision);
+                if (commit != null) {
+                    parents.put(revision, commit.getParentCount() == 0 ? null : commit.getParent(0).getName());
+                }
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * Parses a commit, resolving its identifier without looking up the references when it's a full SHA.
+     * @return the commit or <code>null</code> if it cannot be found.
+     */
+    private RevCommit parseCommit(RevWalk walk, String revision) {
+        try {
+            final ObjectId revisionId = ObjectId.isId(revision) ? ObjectId.fromString(revision)
+                    : repository.resolve(revision);
+            return revisionId == null ? null : walk.parseCommit(revisionId);
+        } catch (IOException | RevisionSyntaxException e) {
+            logger.warn("Revision {} cannot be read: {}", revision, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void walkHistory(String revision, ParentVisitor visitor) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.markStart(walk.parseCommit(resolveExisting(revision)));
+
+            for (RevCommit commit : walk) {
+                visitor.visit(commit.getName(), commit.getParentCount() == 0 ? null : commit.getParent(0).getName());
+            }
+        }
+    }
+
+    @Override
+    public long getCommitTime(String revision) throws IOException {
+        final ObjectId revisionId = resolveExisting(revision);
+        final int position = findInGraph(revisionId);
+        if (position != CommitGraph.NONE) {
+            return commitGraph.getCommitTime(position);
+        }
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            return walk.parseCommit(revisionId).getCommitTime();
+        }
+    }
+
+    @Override
+    public int countChangedFiles(String revision, String other) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(walk.parseCommit(resolveExisting(revision)).getTree());
+            treeWalk.addTree(walk.parseCommit(resolveExisting(other)).getTree());
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            treeWalk.setRecursive(true);
+
+            int count = 0;
+            while (treeWalk.next()) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public String hashFiles(String revision, Predicate<String> filter) throws IOException {
+        final MessageDigest digest = Constants.newMessageDigest();
+
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(walk.parseCommit(resolveExisting(revision)).getTree());
+            treeWalk.setRecursive(true);
+
+            final byte[] blobId = new byte[Constants.OBJECT_ID_LENGTH];
+            while (treeWalk.next()) {
+                final String path = treeWalk.getPathString();
+                if (!filter.test(path)) {
+                    continue;
+                }
+
+                digest.update(Constants.encode(path));
+                digest.update((byte) 0);
+                treeWalk.getObjectId(0).copyRawTo(blobId, 0);
+                digest.update(blobId);
+            }
+        }
+
+        return ObjectId.fromRaw(digest.digest()).getName();
+    }
+
+    @Override
+    public void walkTree(String revision, Predicate<String> filter, BlobVisitor visitor) throws IOException {
+        walk(revision, TreeFilter.ALL, filter, visitor);
+    }
+
+    @Override
+    public void readFiles(String revision, Collection<String> paths, BlobVisitor visitor) throws IOException {
+        if (paths.isEmpty()) {
+            return;
+        }
+        walk(revision, PathFilterGroup.createFromStrings(paths), path -> true, visitor);
+    }
+
+    private void walk(String revision, TreeFilter treeFilter, Predicate<String> filter, BlobVisitor visitor)
+            throws IOException {
+        final ObjectId revisionId = resolveExisting(revision);
+
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            final RevCommit commit = walk.parseCommit(revisionId);
+
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setFilter(treeFilter);
+            treeWalk.setRecursive(true);
+
+            while (treeWalk.next()) {
+                // Only regular files; symbolic links and sub-modules are skipped.
+                if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue;
+                }
+
+                final String path = treeWalk.getPathString();
+                if (!filter.test(path)) {
+                    continue;
+                }
+
+                final ObjectId blobId = treeWalk.getObjectId(0);
+                try (InputStream content = reader.open(blobId, Constants.OBJ_BLOB).openStream()) {
+                    visitor.visit(path, blobId.getName(), content);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves a revision to its identifier.
+     * @throws IOException if the revision doesn't exist.
+     */
+    private ObjectId resolveExisting(String revision) throws IOException {
+        final ObjectId revisionId = repository.resolve(revision);
+        if (revisionId == null) {
+            throw new IOException("Unknown revision " + revision);
+        }
+        return revisionId;
+    }
+
     public static final class TagCommitPair implements Comparable<TagCommitPair> {
         private Ref tag;
-        private RevCommit commit;
+        private Date authorDate;
         private ObjectId targetObjectId;
 
-        public TagCommitPair(Ref tag, RevCommit commit, ObjectId targetObjectId) {
+        public TagCommitPair(Ref tag, Date authorDate, ObjectId targetObjectId) {
             this.tag = tag;
-            this.commit = commit;
+            this.authorDate = authorDate;
             this.targetObjectId = targetObjectId;
         }
 
         @Override
         public int compareTo(TagCommitPair otherPair) {
-            Date date1 = commit.getAuthorIdent().getWhen();
-            Date date2 = otherPair.commit.getAuthorIdent().getWhen();
-            return date1.compareTo(date2);
+            return authorDate.compareTo(otherPair.authorDate);
         }
 
         public OffsetDateTime getCommitDateTime(){
-            return offsetDateTimeOf(commit.getAuthorIdent().getWhen());
+            return offsetDateTimeOf(authorDate);
         }
 
         public String getTagName(){
@@ -394,21 +798,4 @@ public class GitVcs implements Vcs {
     private void unexpectedGitError(Exception e) {
         logger.error("An unexpected error occurred in git:", e);
     }
-
-    private static final class GitUtils {
-
-        static RevFilter noMergeFilter(){
-            return new RevFilter() {
-                @Override
-                public boolean include(RevWalk walker, RevCommit cmit) throws StopWalkException, MissingObjectException, IncorrectObjectTypeException, IOException {
-                    return cmit.getParentCount() <= 1;
-                }
-
-                @Override
-                public RevFilter clone() {
-                    return null;
-                }
-            };
-        }
-    }
 }
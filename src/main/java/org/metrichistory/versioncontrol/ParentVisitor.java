@@ -0,0 +1,18 @@
+package org.metrichistory.versioncontrol;
+
+import java.io.IOException;
+
+/**
+ * Receives the revisions of a history read by {@link Vcs#walkHistory}.
+ */
+@FunctionalInterface
+public interface ParentVisitor {
+
+    /**
+     * Visits one revision of the history.
+     * @param revision the full SHA of the revision
+     * @param parent the full SHA of its first parent or <code>null</code> if it has no parent
+     * @throws IOException when the revision cannot be processed
+     */
+    void visit(String revision, String parent) throws IOException;
+}
@@ -0,0 +1,212 @@
+package org.metrichistory.versioncontrol;
+
+import org.apache.commons.io.FilenameUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Writes the selected files of the versions in the working directory, without touching the index or the other files.
+ * The files written are remembered, so checking out a version only rewrites the files which differ from the previous
+ * version.
+ */
+final class SparseCheckout {
+    private static final Logger logger = LoggerFactory.getLogger(SparseCheckout.class);
+
+    private final Repository repository;
+    private final Predicate<String> filter;
+    private final Map<String, Entry> written; // The key is the path relative to the root of the repository.
+
+    private boolean scanned;
+
+    SparseCheckout(Repository repository, Predicate<String> filter) {
+        this.repository = repository;
+        this.filter = filter;
+        this.written = new HashMap<>();
+    }
+
+    Predicate<String> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Writes the selected files of a version and deletes the selected files which are not part of it.
+     */
+    void checkout(ObjectId commitId) throws IOException {
+        if (!scanned) {
+            clean();
+        }
+
+        final Path root = repository.getWorkTree().toPath();
+        final Set<String> removed = new HashSet<>(written.keySet());
+        final Map<String, ObjectId> changed = new HashMap<>();
+
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(walk.parseCommit(commitId).getTree());
+            treeWalk.setRecursive(true);
+
+            while (treeWalk.next()) {
+                // Only regular files; symbolic links and sub-modules are skipped.
+                if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue;
+                }
+
+                final String path = treeWalk.getPathString();
+                if (!filter.test(path)) {
+                    continue;
+                }
+
+                removed.remove(path);
+                final ObjectId blobId = treeWalk.getObjectId(0);
+                final Entry entry = written.get(path);
+                if (entry == null || !entry.blobId.equals(blobId)) {
+                    changed.put(path, blobId);
+                }
+            }
+
+            // The files are deleted first, in case a directory replaced one of them.
+            for (String path : removed) {
+                delete(root, path);
+            }
+            for (Map.Entry<String, ObjectId> file : changed.entrySet()) {
+                write(reader, root, file.getKey(), file.getValue());
+            }
+        }
+
+        logger.debug("Sparse checkout of {}: {} files written, {} deleted", commitId.getName(), changed.size(),
+                removed.size());
+    }
+
+    /**
+     * Deletes the selected files modified since they were written. The first time, the whole working directory is
+     * scanned to delete the selected files which were not written by this instance. Afterwards, only the written
+     * files are checked.
+     */
+    void clean() throws IOException {
+        final Path root = repository.getWorkTree().toPath();
+
+        final Iterator<Map.Entry<String, Entry>> iterator = written.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Entry> file = iterator.next();
+            final Path path = root.resolve(file.getKey());
+            if (!file.getValue().isUnchanged(path)) {
+                Files.deleteIfExists(path);
+                iterator.remove();
+            }
+        }
+
+        if (!scanned) {
+            for (String path : findSelectedFiles(root)) {
+                if (!written.containsKey(path)) {
+                    delete(root, path);
+                }
+            }
+            scanned = true;
+        }
+    }
+
+    private List<String> findSelectedFiles(Path root) throws IOException {
+        final Path gitDirectory = root.resolve(Constants.DOT_GIT);
+        final List<String> files = new ArrayList<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(gitDirectory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                final String path = FilenameUtils.separatorsToUnix(root.relativize(file).toString());
+                if (attrs.isRegularFile() && filter.test(path)) {
+                    files.add(path);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return files;
+    }
+
+    private void write(ObjectReader reader, Path root, String path, ObjectId blobId) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+
+        try (InputStream content = reader.open(blobId, Constants.OBJ_BLOB).openStream()) {
+            Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        written.put(path, new Entry(blobId, file));
+    }
+
+    /**
+     * Deletes a file and the folders left empty.
+     */
+    private void delete(Path root, String path) throws IOException {
+        written.remove(path);
+
+        Path file = root.resolve(path);
+        Files.deleteIfExists(file);
+
+        Path folder = file.getParent();
+        while (!folder.equals(root) && isEmpty(folder)) {
+            Files.delete(folder);
+            folder = folder.getParent();
+        }
+    }
+
+    private boolean isEmpty(Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return false;
+        }
+        try (Stream<Path> children = Files.list(folder)) {
+            return !children.findAny().isPresent();
+        }
+    }
+
+    /**
+     * A file written in the working directory. It's considered unchanged as long as its size and modification time
+     * are the same.
+     */
+    private static final class Entry {
+        private final ObjectId blobId;
+        private final long size;
+        private final long modified;
+
+        Entry(ObjectId blobId, Path file) throws IOException {
+            this.blobId = blobId.copy();
+            this.size = Files.size(file);
+            this.modified = Files.getLastModifiedTime(file).toMillis();
+        }
+
+        boolean isUnchanged(Path file) throws IOException {
+            return Files.isRegularFile(file) && Files.size(file) == size
+                    && Files.getLastModifiedTime(file).toMillis() == modified;
+        }
+    }
+}
@@ -8,6 +8,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Represent a generic Version Control System.
@@ -23,10 +25,22 @@ public interface Vcs extends AutoCloseable {
     void checkout(String version) throws VcsOperationException;
 
     /**
-     * Discard any modification made to tracked or un-tracked files and reset any conflicts.
+     * Discard any modification made to tracked or un-tracked files and reset any conflicts. In sparse mode, only the
+     * files selected by the sparse filter are restored or deleted.
      */
     void clean();
 
+    /**
+     * Restricts the checkouts to the files selected by <code>filter</code>: only these files are written in the
+     * working directory and only the files which differ from the previous checkout are rewritten. The other files of
+     * the working directory are left untouched, and the original version is fully restored by
+     * {@link #restoreVersion()}.
+     *
+     * @param filter selects the files using their path relative to the root of the repository, or <code>null</code>
+     *               to check out every file.
+     */
+    void setSparse(Predicate<String> filter);
+
     /**
      * Saves the current version of the repository. Erases last version saved if any.
      */
@@ -43,6 +57,7 @@ public interface Vcs extends AutoCloseable {
      * @param revision    the revision
      * @param beforeFiles a list of changed files existing before the revision
      * @param afterFiles  a list of changed files existing after the revision
+     * @throws IOException when the changes cannot be read
      */
     void getChangedFiles(
             String revision,
@@ -74,6 +89,81 @@ public interface Vcs extends AutoCloseable {
      */
     String getParent(String revision) throws IOException;
 
+    /**
+     * Returns the first parent of several revisions at once, which is much faster than calling
+     * {@link #getParent(String)} for each revision.
+     *
+     * @param revisions the revisions
+     * @param threads the number of threads resolving the parents, each one on a part of the revisions
+     * @return the first parent of each revision found, in the order of <code>revisions</code>. The revisions without a
+     * parent are mapped to <code>null</code>.
+     * @throws IOException when the repository cannot be read
+     */
+    Map<String, String> getParents(Collection<String> revisions, int threads) throws IOException;
+
+    /**
+     * Visits every revision reachable from a revision, with its first parent, without keeping them in memory.
+     *
+     * @param revision the revision or the branch where the history starts
+     * @param visitor receives each revision, the most recent first
+     * @throws IOException when the history cannot be read
+     */
+    void walkHistory(String revision, ParentVisitor visitor) throws IOException;
+
+    /**
+     * Returns the time at which a revision was committed.
+     *
+     * @param revision the revision
+     * @return the number of seconds since the epoch
+     * @throws IOException when the revision cannot be read
+     */
+    long getCommitTime(String revision) throws IOException;
+
+    /**
+     * Returns the number of files that differ between two revisions, i.e., the files rewritten when checking out one
+     * revision after the other.
+     *
+     * @param revision the first revision
+     * @param other the second revision
+     * @return the number of added, modified or deleted files
+     * @throws IOException when the revisions cannot be read
+     */
+    int countChangedFiles(String revision, String other) throws IOException;
+
+    /**
+     * Returns a hash of the selected files of a version, computed from their paths and the identifiers of their
+     * contents. Two versions have the same hash if and only if the selected files are identical. The contents of the
+     * files are not read.
+     *
+     * @param revision the full SHA of the version
+     * @param filter selects the files using their path relative to the root of the repository
+     * @return the hash in hexadecimal
+     * @throws IOException when the version cannot be read
+     */
+    String hashFiles(String revision, Predicate<String> filter) throws IOException;
+
+    /**
+     * Reads the files of a version straight from the version control system, without checking it out.
+     * The working directory is left untouched and repositories without one (bare) are supported.
+     *
+     * @param revision the full SHA of the version
+     * @param filter selects the files to read using their path relative to the root of the repository
+     * @param visitor receives each selected file
+     * @throws IOException when the version or its files cannot be read
+     */
+    void walkTree(String revision, Predicate<String> filter, BlobVisitor visitor) throws IOException;
+
+    /**
+     * Reads some files of a version straight from the version control system, without checking it out.
+     * Only the parts of the version containing the files are traversed.
+     *
+     * @param revision the full SHA of the version
+     * @param paths the paths of the files to read, relative to the root of the repository
+     * @param visitor receives each file found in the version
+     * @throws IOException when the version or its files cannot be read
+     */
+    void readFiles(String revision, Collection<String> paths, BlobVisitor visitor) throws IOException;
+
     @Override
     void close() throws VcsCleanupException;
 }
@@ -1,10 +1,17 @@
 package org.metrichistory.versioncontrol;
 
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+import org.metrichistory.util.ResidentCache;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 
 public final class VcsBuilder {
 
@@ -13,14 +20,19 @@ public final class VcsBuilder {
 
     /**
      * Creates an adapter for the version control system used by the project. Automatically calls {@link Vcs#saveVersion()}.
-     * @param path the location of the VCS on the disk
+     * When the {@link ResidentCache} is enabled, the repository stays open after {@link Vcs#close()}, so its pack
+     * indexes are only read once by a long-running process.
+     * @param path the location of the VCS on the disk. Bare repositories are supported.
      * @return a new instance of the adapter
      */
     public static Vcs create(String path) throws VcsNotFound {
-        final FileRepositoryBuilder builder = new FileRepositoryBuilder();
         final Repository repository;
         try {
-            repository = builder.setGitDir(new File(path, ".git")).setMustExist(true).build();
+            if (ResidentCache.isEnabled()) {
+                repository = RepositoryCache.open(RepositoryCache.FileKey.exact(resolveGitDirectory(path), FS.DETECTED), true);
+            } else {
+                repository = new FileRepositoryBuilder().setGitDir(resolveGitDirectory(path)).setMustExist(true).build();
+            }
         } catch (IOException e) {
             throw new VcsNotFound();
         }
@@ -29,4 +41,45 @@ public final class VcsBuilder {
         vcs.saveVersion();
         return vcs;
     }
+
+    /**
+     * Creates a separate working copy of the VCS located at <code>path</code> in <code>directory</code>.
+     * The working copy borrows the objects of the original repository (like <code>git clone --shared</code>), so
+     * creating it is cheap and any version of the original repository can be checked out in it.
+     *
+     * @param path the location of the VCS on the disk
+     * @param directory the location of the new working copy
+     * @return a new instance of the adapter for the working copy
+     * @throws VcsNotFound when there is no VCS at <code>path</code>
+     * @throws VcsOperationException when the working copy cannot be created
+     */
+    public static Vcs createWorkingCopy(String path, String directory) throws VcsNotFound, VcsOperationException {
+        final File objects = new File(resolveGitDirectory(path), "objects");
+        if (!objects.isDirectory()) {
+            throw new VcsNotFound();
+        }
+
+        try {
+            final Repository repository = FileRepositoryBuilder.create(new File(directory, ".git"));
+            if (!repository.getObjectDatabase().exists()) {
+                repository.create();
+            }
+
+            final Path alternates = repository.getDirectory().toPath().resolve("objects/info/alternates");
+            Files.createDirectories(alternates.getParent());
+            Files.write(alternates, Collections.singletonList(objects.getAbsolutePath()), StandardCharsets.UTF_8);
+
+            return new GitVcs(repository);
+        } catch (IOException e) {
+            throw new VcsOperationException("Unable to create a working copy in " + directory, e);
+        }
+    }
+
+    /**
+     * Returns the folder containing the data of the VCS, which is the folder itself for bare repositories.
+     */
+    private static File resolveGitDirectory(String path) {
+        final File gitDirectory = new File(path, ".git");
+        return gitDirectory.exists() ? gitDirectory : new File(path);
+    }
 }
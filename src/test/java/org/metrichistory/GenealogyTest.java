@@ -3,15 +3,23 @@ package org.metrichistory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.metrichistory.model.Genealogy;
+import org.metrichistory.model.RevisionId;
 import org.metrichistory.versioncontrol.Vcs;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -21,13 +29,25 @@ public class GenealogyTest {
 
     @BeforeEach
     public void setUp() throws Exception {
+        final Map<String, String> parents = new HashMap<>();
+        parents.put("a", "b");
+        parents.put("b", "c");
+        parents.put("c", "d");
+        parents.put("d", null);
+        parents.put("e", null);
+        parents.put("f", "g");
+        parents.put("h", "i");
+
         final Vcs vcs = mock(Vcs.class);
-        when(vcs.getParent("a")).thenReturn("b");
-        when(vcs.getParent("b")).thenReturn("c");
-        when(vcs.getParent("c")).thenReturn("d");
-        when(vcs.getParent("e")).thenReturn(null);
-        when(vcs.getParent("f")).thenReturn("g");
-        when(vcs.getParent("h")).thenReturn("i");
+        when(vcs.getParents(anyCollection(), anyInt())).thenAnswer(invocation -> {
+            final Map<String, String> result = new LinkedHashMap<>();
+            for (String revision : invocation.<Collection<String>>getArgument(0)) {
+                if (parents.containsKey(revision)) {
+                    result.put(revision, parents.get(revision));
+                }
+            }
+            return result;
+        });
 
         genealogy = new Genealogy(vcs);
     }
@@ -37,10 +57,11 @@ public class GenealogyTest {
         genealogy.addRevisions(Arrays.asList("a", "b", "c"));
 
         assertEquals(3, genealogy.getMap().size());
-        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(genealogy.getMap().keySet()));
-        assertEquals("b", genealogy.getMap().get("a"));
-        assertEquals("c", genealogy.getMap().get("b"));
-        assertEquals("d", genealogy.getMap().get("c"));
+        assertEquals(Arrays.asList(RevisionId.of("a"), RevisionId.of("b"), RevisionId.of("c")),
+                new ArrayList<>(genealogy.getMap().keySet()));
+        assertEquals(RevisionId.of("b"), genealogy.getMap().get(RevisionId.of("a")));
+        assertEquals(RevisionId.of("c"), genealogy.getMap().get(RevisionId.of("b")));
+        assertEquals(RevisionId.of("d"), genealogy.getMap().get(RevisionId.of("c")));
     }
 
     @Test
@@ -69,4 +90,12 @@ public class GenealogyTest {
         assertTrue(result.contains("h"));
         assertTrue(result.contains("i"));
     }
+
+    @Test
+    public void addRevisions_ShouldSkipUnknownRevisions() {
+        genealogy.addRevisions(Arrays.asList("a", "unknown"));
+
+        assertEquals(1, genealogy.getMap().size());
+        assertFalse(genealogy.hasIgnoredRevisions());
+    }
 }
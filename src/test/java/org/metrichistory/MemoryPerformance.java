@@ -2,7 +2,9 @@ package org.metrichistory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.function.Supplier;
 
+import org.metrichistory.model.ColumnarMeasureStore;
 import org.metrichistory.model.MeasureStore;
 import org.metrichistory.storage.Stores;
 
@@ -16,31 +18,48 @@ public final class MemoryPerformance {
     public static void main(String[] args) {
         try {
             System.out.println("Memory available " + bToMb(Runtime.getRuntime().maxMemory()) + "MBs.");
-            System.out.println("Loading...");
-            final long start = System.currentTimeMillis();
-            final MeasureStore store = Stores.loadClasses(baseDir.getPath() + '/' + "rxjava-raw.csv");
-            final long diff = System.currentTimeMillis() - start;
-            System.out.println("Loaded in " + diff / 1000 + " seconds.");
-
-            System.gc();
-            printMemoryUsage();
-            printStoreStatistics(store);
+            final long maps = measure("maps", MeasureStore::new);
+            final long columns = measure("columns", ColumnarMeasureStore::new);
+            System.out.println(String.format("The columnar store uses %.1f times less memory.", maps / (double) columns));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Loads the dataset in a store and prints the memory it uses.
+     * @return the memory used by the store, in bytes
+     */
+    private static long measure(String name, Supplier<MeasureStore> factory) throws IOException {
+        final long baseline = usedMemory();
+
+        System.out.println("Loading in " + name + "...");
+        final long start = System.currentTimeMillis();
+        final MeasureStore store = Stores.loadClasses(baseDir.getPath() + '/' + "rxjava-raw.csv", factory.get());
+        final long diff = System.currentTimeMillis() - start;
+        System.out.println("Loaded in " + diff / 1000 + " seconds.");
+
+        final long used = usedMemory() - baseline;
+        printMemoryUsage(used);
+        printStoreStatistics(store);
+        return used;
+    }
+
     private static void printStoreStatistics(MeasureStore store) {
         System.out.println("Revisions: " + store.versionCount());
         System.out.println("Average classes/revision: " + averageInstances(store));
         System.out.println("Total instances: " + store.instances());
     }
 
-    private static void printMemoryUsage() {
+    private static void printMemoryUsage(long used) {
+        final long totalMemoryInMb = bToMb(Runtime.getRuntime().totalMemory());
+        System.out.println(String.format("Memory used by the store %s/%s MBs", bToMb(used), totalMemoryInMb));
+    }
+
+    private static long usedMemory() {
         final Runtime runtime = Runtime.getRuntime();
-        final long usedMemoryInMb = bToMb(runtime.totalMemory() - runtime.freeMemory());
-        final long totalMemoryInMb = bToMb(runtime.totalMemory());
-        System.out.println(String.format("Memory used %s/%s MBs", usedMemoryInMb, totalMemoryInMb));
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
     }
 
     /**
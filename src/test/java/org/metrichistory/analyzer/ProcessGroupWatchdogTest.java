@@ -0,0 +1,49 @@
+package org.metrichistory.analyzer;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecuteResultHandler;
+import org.apache.commons.exec.DefaultExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProcessGroupWatchdogTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    public void testKillTheProcessesStartedByTheCommand() throws Exception {
+        final File childFile = new File(folder, "child");
+        final CommandLine command = new CommandLine("sh");
+        command.addArgument("-c");
+        command.addArgument("sleep 60 & echo $! > \"$0\"; wait", false);
+        command.addArgument(childFile.getAbsolutePath(), false);
+
+        final ProcessGroupWatchdog watchdog = new ProcessGroupWatchdog(500, new File(folder, "group"));
+        final DefaultExecutor executor = new DefaultExecutor();
+        executor.setWatchdog(watchdog);
+        final DefaultExecuteResultHandler resultHandler = new DefaultExecuteResultHandler();
+        executor.execute(watchdog.wrap(command), resultHandler);
+        resultHandler.waitFor(10_000);
+        watchdog.killGroup();
+
+        assertTrue(watchdog.killedProcess());
+        final String child = new String(Files.readAllBytes(childFile.toPath()), StandardCharsets.US_ASCII).trim();
+        // The child is reaped by init once killed.
+        final File process = new File("/proc/" + child);
+        for (int i = 0; i < 50 && process.exists(); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(process.exists());
+    }
+}
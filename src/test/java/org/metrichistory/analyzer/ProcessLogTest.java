@@ -0,0 +1,30 @@
+package org.metrichistory.analyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ProcessLogTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testWriteAllLinesAndKeepTail() throws IOException {
+        final File file = new File(folder, "a.log");
+        final ProcessLog log = new ProcessLog(file, 2);
+
+        log.write("first\nsecond\nthird\n".getBytes(StandardCharsets.UTF_8));
+        log.close();
+
+        assertEquals(Arrays.asList("first", "second", "third"), Files.readAllLines(file.toPath()));
+        assertEquals(Arrays.asList("second", "third"), log.getTail());
+    }
+}
@@ -0,0 +1,73 @@
+package org.metrichistory.analyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProcessPoolTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void testLimitProcesses() {
+        final ProcessPool pool = new ProcessPool(2, 1, 100, () -> 100L);
+
+        assertTrue(pool.tryAcquire());
+        assertTrue(pool.tryAcquire());
+        assertFalse(pool.tryAcquire());
+
+        pool.release();
+        assertTrue(pool.tryAcquire());
+    }
+
+    @Test
+    public void testLimitMemory() {
+        final ProcessPool pool = new ProcessPool(8, 40, 100, () -> 100L);
+
+        assertTrue(pool.tryAcquire());
+        assertTrue(pool.tryAcquire());
+        assertFalse(pool.tryAcquire());
+    }
+
+    @Test
+    public void testAlwaysAdmitFirstProcess() {
+        final ProcessPool pool = new ProcessPool(8, 40, 100, () -> 0L);
+
+        assertTrue(pool.tryAcquire());
+        assertFalse(pool.tryAcquire());
+    }
+
+    @Test
+    public void testAvailableMemoryIncludesPageCache() throws IOException {
+        final Path meminfo = folder.resolve("meminfo");
+        Files.write(meminfo, Arrays.asList("MemTotal:       16384 kB", "MemFree:          1024 kB",
+                "MemAvailable:    8192 kB", "Cached:          6144 kB"), StandardCharsets.US_ASCII);
+
+        final long available = ProcessPool.getAvailableMemory(meminfo, () -> 0L);
+        assertEquals(8192 * 1024L, available);
+
+        // The free memory alone would only admit the first process.
+        final ProcessPool pool = new ProcessPool(8, 4096 * 1024L, 16384 * 1024L, () -> available);
+        assertTrue(pool.tryAcquire());
+        assertTrue(pool.tryAcquire());
+    }
+
+    @Test
+    public void testAvailableMemoryFallsBackWithoutMemAvailable() throws IOException {
+        final Path meminfo = folder.resolve("meminfo");
+        Files.write(meminfo, Arrays.asList("MemTotal:       16384 kB", "MemFree:          1024 kB"), StandardCharsets.US_ASCII);
+
+        assertEquals(42L, ProcessPool.getAvailableMemory(meminfo, () -> 42L));
+        assertEquals(42L, ProcessPool.getAvailableMemory(folder.resolve("missing"), () -> 42L));
+    }
+}
@@ -0,0 +1,36 @@
+package org.metrichistory.analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TimeBudgetTest {
+
+    @Test
+    public void testUnlimitedWithoutHistory() {
+        final TimeBudget budget = TimeBudget.adaptive();
+        budget.record(1000);
+
+        assertEquals(TimeBudget.UNLIMITED, budget.getBudget("a"));
+    }
+
+    @Test
+    public void testPercentileOfPreviousDurations() {
+        final TimeBudget budget = TimeBudget.adaptive();
+        for (int i = 1; i <= 10; i++) {
+            budget.record(i * 60_000);
+        }
+
+        // The 90th percentile is the 9th duration out of 10.
+        assertEquals(4 * 9 * 60_000, budget.getBudget("a"));
+    }
+
+    @Test
+    public void testExtendAfterTimeout() {
+        final TimeBudget budget = TimeBudget.fixed(1000);
+        budget.extend("a");
+
+        assertEquals(4000, budget.getBudget("a"));
+        assertEquals(1000, budget.getBudget("b"));
+    }
+}
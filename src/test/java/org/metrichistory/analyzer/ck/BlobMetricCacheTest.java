@@ -0,0 +1,70 @@
+package org.metrichistory.analyzer.ck;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.model.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobMetricCacheTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws IOException {
+        final BlobMetricCache cache = new BlobMetricCache(cacheFile(), "CK", 2);
+        cache.put("a", Collections.emptyMap());
+        cache.put("b", Collections.emptyMap());
+        cache.get("a");
+        cache.put("c", Collections.emptyMap());
+
+        assertTrue(cache.get("a").isPresent());
+        assertFalse(cache.get("b").isPresent());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        final BlobMetricCache first = new BlobMetricCache(cacheFile(), "CK", 10);
+        first.put("a", Collections.singletonMap("org.A", new Metrics(1.0, 2.0)));
+        first.put("b", Collections.emptyMap());
+        first.save();
+
+        final BlobMetricCache second = new BlobMetricCache(cacheFile(), "CK", 10);
+        final Map<String, Metrics> classes = second.get("a").orElseThrow(AssertionError::new);
+        assertEquals(new Metrics(1.0, 2.0).get(), classes.get("org.A").get());
+        assertTrue(second.get("b").orElseThrow(AssertionError::new).isEmpty());
+    }
+
+    @Test
+    public void testIgnoreOtherConfiguration() throws IOException {
+        final BlobMetricCache first = new BlobMetricCache(cacheFile(), "CK", 10);
+        first.put("a", Collections.emptyMap());
+        first.save();
+
+        assertFalse(new BlobMetricCache(cacheFile(), "other", 10).get("a").isPresent());
+    }
+
+    @Test
+    public void testHashLikeGit() throws IOException {
+        final Path file = new File(folder, "hello.txt").toPath();
+        Files.write(file, "hello\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", BlobMetricCache.hash(file));
+    }
+
+    private String cacheFile() {
+        return new File(folder, "blobs.csv").getPath();
+    }
+}
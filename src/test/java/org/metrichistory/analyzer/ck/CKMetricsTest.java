@@ -0,0 +1,175 @@
+package org.metrichistory.analyzer.ck;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.mining.Collector;
+import org.metrichistory.mining.FileFilter;
+import org.metrichistory.model.MetricDump;
+import org.metrichistory.versioncontrol.BlobVisitor;
+import org.metrichistory.versioncontrol.Vcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class CKMetricsTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void walkFolderShouldMatchGlobsFromTheRoot() throws IOException {
+        createSource("src/main/A.java");
+        createSource("src/main/B.java");
+        createSource("module/src/main/A.java");
+
+        final FileFilter filter = new FileFilter();
+        filter.addExclusionPattern("src/?ain/A.java");
+
+        final List<String> visited = new ArrayList<>();
+        new CKMetrics().walkFolder(folder.getPath(), filter, (path, blobId, content) -> visited.add(path));
+
+        visited.sort(String::compareTo);
+        assertEquals(Arrays.asList("module/src/main/A.java", "src/main/B.java"), visited);
+    }
+
+    @Test
+    public void executeShouldOnlyReadTheFolder() throws IOException {
+        final List<String> paths = Arrays.asList("module/src/A.java", "module/test/B.java", "other/src/C.java");
+        final Vcs vcs = mock(Vcs.class);
+        doAnswer(invocation -> {
+            final Predicate<String> filter = invocation.getArgument(1);
+            final BlobVisitor visitor = invocation.getArgument(2);
+            for (String path : paths) {
+                if (filter.test(path)) {
+                    final String name = path.substring(path.lastIndexOf('/') + 1, path.length() - ".java".length());
+                    final byte[] content = ("public class " + name + " {}").getBytes(StandardCharsets.UTF_8);
+                    visitor.visit(path, null, new ByteArrayInputStream(content));
+                }
+            }
+            return null;
+        }).when(vcs).walkTree(eq("a"), any(), any());
+
+        final FileFilter filter = new FileFilter();
+        filter.addExclusionPattern("test/*");
+        final CKMetrics ck = new CKMetrics();
+        ck.execute("a", vcs, "module", filter);
+
+        final MetricDump dump = ck.getResult("a");
+        assertEquals(Collections.singleton("A"), dump.getClasses());
+        assertEquals("src/A.java", dump.getFile("A"));
+    }
+
+    @Test
+    public void executeIncrementallyShouldMatchAFullAnalysis() throws Exception {
+        final File repository = new File(folder, "repository");
+        final String parent;
+        final String child;
+        try (Git git = Git.init().setDirectory(repository).call()) {
+            writeSource(repository, "src/A.java", "public class A { int a; void m() { } }");
+            writeSource(repository, "src/B.java", "public class B { void b(int i) { if (i > 0) { i--; } } }");
+            writeSource(repository, "README", "readme");
+            git.add().addFilepattern(".").call();
+            parent = git.commit().setMessage("parent").call().getName();
+
+            writeSource(repository, "src/A.java", "public class A { int a; int b; void m() { } void n() { } }");
+            writeSource(repository, "src/C.java", "public class C { }");
+            writeSource(repository, "README", "changed");
+            git.rm().addFilepattern("src/B.java").call();
+            git.add().addFilepattern(".").call();
+            child = git.commit().setMessage("child").call().getName();
+        }
+        final String projectDir = new File(repository, "src").getPath();
+
+        final CKMetrics incremental = spy(new CKMetrics());
+        final Collector incrementalCollector = new Collector(incremental);
+        incrementalCollector.setCheckoutFree(true);
+        incrementalCollector.setIncremental(true);
+        incrementalCollector.analyzeVersions(Arrays.asList(parent, child), repository.getPath(), projectDir);
+        verify(incremental).execute(eq(child), eq(parent), any(), eq("src"), any(), any(), any());
+
+        final CKMetrics full = new CKMetrics();
+        final Collector fullCollector = new Collector(full);
+        fullCollector.setCheckoutFree(true);
+        fullCollector.analyzeVersions(Collections.singletonList(child), repository.getPath(), projectDir);
+
+        assertEquals(Arrays.asList("A", "C"), new ArrayList<>(describe(full.getResult(child)).keySet()));
+        assertEquals(describe(full.getResult(child)), describe(incremental.getResult(child)));
+    }
+
+    @Test
+    public void executeWithoutCheckoutShouldMatchACheckout() throws Exception {
+        final File repository = new File(folder, "repository");
+        final File bare = new File(folder, "bare.git");
+        final List<String> versions = new ArrayList<>();
+        try (Git git = Git.init().setDirectory(repository).call()) {
+            writeSource(repository, "src/A.java", "public class A { B b; void m() { b.n(); } }");
+            writeSource(repository, "src/B.java", "public class B extends A { void n() { } }");
+            writeSource(repository, "test/ATest.java", "public class ATest { }");
+            git.add().addFilepattern(".").call();
+            versions.add(git.commit().setMessage("first").call().getName());
+
+            writeSource(repository, "src/A.java", "public class A { void m() { if (true) { } } }");
+            git.rm().addFilepattern("src/B.java").call();
+            git.add().addFilepattern(".").call();
+            versions.add(git.commit().setMessage("second").call().getName());
+        }
+        Git.cloneRepository().setBare(true).setURI(repository.toURI().toString()).setDirectory(bare).call().close();
+
+        final CKMetrics checkout = new CKMetrics();
+        new Collector(checkout).analyzeVersions(versions, repository.getPath(), new File(repository, "src").getPath());
+
+        for (File source : Arrays.asList(repository, bare)) {
+            final CKMetrics checkoutFree = new CKMetrics();
+            final Collector collector = new Collector(checkoutFree);
+            collector.setCheckoutFree(true);
+            collector.analyzeVersions(versions, source.getPath(), new File(source, "src").getPath());
+
+            for (String version : versions) {
+                assertEquals(describe(checkout.getResult(version)), describe(checkoutFree.getResult(version)));
+            }
+        }
+    }
+
+    /**
+     * Describes the file and the metrics of each class.
+     */
+    private static Map<String, String> describe(MetricDump dump) {
+        final Map<String, String> classes = new TreeMap<>();
+        for (String className : dump.getClasses()) {
+            classes.put(className, dump.getFile(className) + " " + dump.getMetric(className));
+        }
+        return classes;
+    }
+
+    private static void writeSource(File repository, String path, String content) throws IOException {
+        final Path file = repository.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void createSource(String path) throws IOException {
+        final Path file = folder.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[0]);
+    }
+}
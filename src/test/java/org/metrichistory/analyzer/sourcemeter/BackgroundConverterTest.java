@@ -0,0 +1,66 @@
+package org.metrichistory.analyzer.sourcemeter;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.model.MeasureStore;
+import org.metrichistory.storage.Stores;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackgroundConverterTest {
+    private static final File RESULTS = new File("src/test/resources/conversion/project/java/abcdef");
+
+    @Test
+    public void convertAndDeleteResults(@TempDir Path folder) throws IOException {
+        final File results = copyResults(folder);
+        final File raw = folder.resolve("raw").toFile();
+
+        try (BackgroundConverter converter = new BackgroundConverter(raw.getPath(), false)) {
+            converter.submit("abcdef", results);
+            assertFalse(results.exists());
+        }
+
+        assertTrue(new File(raw, "abcdef.csv").isFile());
+        assertEquals(0, new File(raw, ".staging").list().length);
+    }
+
+    @Test
+    public void copyCompressedResults(@TempDir Path folder) throws IOException {
+        final File raw = folder.resolve("raw").toFile();
+
+        try (BackgroundConverter converter = new BackgroundConverter(raw.getPath(), true)) {
+            converter.submit("abcdef", copyResults(folder));
+        }
+
+        final BackgroundConverter converter = new BackgroundConverter(raw.getPath(), true);
+        assertTrue(converter.isConverted("abcdef"));
+        assertTrue(converter.copy("abcdef", "ghijk"));
+        converter.close();
+
+        final MeasureStore source = Stores.loadClasses(new File(raw, "abcdef.csv.gz").getPath());
+        final MeasureStore copy = Stores.loadClasses(new File(raw, "ghijk.csv.gz").getPath());
+        assertEquals(source.artifacts("abcdef"), copy.artifacts("ghijk"));
+        assertEquals(source.instances(), copy.instances());
+    }
+
+    @Test
+    public void recoverStagedResults(@TempDir Path folder) throws IOException {
+        final File raw = folder.resolve("raw").toFile();
+        FileUtils.copyDirectory(RESULTS, new File(raw, ".staging/abcdef"));
+
+        new BackgroundConverter(raw.getPath(), false).close();
+
+        assertTrue(new File(raw, "abcdef.csv").isFile());
+    }
+
+    private File copyResults(Path folder) throws IOException {
+        final File results = folder.resolve("java/abcdef").toFile();
+        FileUtils.copyDirectory(RESULTS, results);
+        return results;
+    }
+}
@@ -0,0 +1,106 @@
+package org.metrichistory.cmd;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServeTest {
+
+    @TempDir
+    Path folder;
+
+    private int port;
+    private Thread server;
+    private String token;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        server = new Thread(new Serve(port, folder));
+        server.start();
+
+        final Path tokenFile = Serve.tokenFile(folder, port);
+        for (int i = 0; i < 100 && !Files.exists(tokenFile); i++) {
+            Thread.sleep(50);
+        }
+        token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (server.isAlive()) {
+            send("127.0.0.1:" + port, Serve.TOKEN_HEADER + ": " + token);
+        }
+        server.join(5000);
+    }
+
+    @Test
+    public void tokenShouldOnlyBeReadableByTheUser() throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(Serve.tokenFile(folder, port))));
+        }
+    }
+
+    @Test
+    public void handleShouldRejectRequestsWithoutTheToken() throws Exception {
+        assertEquals(403, send("127.0.0.1:" + port));
+        assertEquals(403, send("127.0.0.1:" + port, Serve.TOKEN_HEADER + ": " + token.substring(1) + "0"));
+        assertTrue(server.isAlive());
+    }
+
+    @Test
+    public void handleShouldRejectRequestsFromWebPages() throws Exception {
+        assertEquals(403, send("127.0.0.1:" + port, Serve.TOKEN_HEADER + ": " + token, "Origin: http://example.com"));
+        assertEquals(403, send("example.com:" + port, Serve.TOKEN_HEADER + ": " + token));
+        assertTrue(server.isAlive());
+    }
+
+    @Test
+    public void handleShouldStopWithTheToken() throws Exception {
+        assertEquals(200, send("localhost:" + port, Serve.TOKEN_HEADER + ": " + token));
+
+        server.join(5000);
+        assertFalse(server.isAlive());
+        assertFalse(Files.exists(Serve.tokenFile(folder, port)));
+    }
+
+    /**
+     * Sends <code>POST /stop</code> with the given headers, as a web browser could.
+     * @return the status of the response
+     */
+    private int send(String host, String... headers) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final StringBuilder request = new StringBuilder("POST /stop HTTP/1.1\r\nHost: " + host + "\r\n");
+            for (String header : headers) {
+                request.append(header).append("\r\n");
+            }
+            request.append("Content-Length: 0\r\nConnection: close\r\n\r\n");
+
+            final OutputStream out = socket.getOutputStream();
+            out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            return Integer.parseInt(reader.readLine().split(" ")[1]);
+        }
+    }
+}
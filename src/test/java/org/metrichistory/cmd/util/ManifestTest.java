@@ -0,0 +1,37 @@
+package org.metrichistory.cmd.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ManifestTest {
+
+    @Test
+    public void parse_ShouldGroupStepsByProject() throws IOException {
+        final Manifest manifest = Manifest.parse(new StringReader("# comment\n"
+                + "ant ancestry versions.txt repositories/ant parents.csv\n"
+                + "\n"
+                + "xercesj convert \"results/xerces j\" raw\n"
+                + "ant collect versions.txt repositories/ant output CK\n"));
+
+        assertEquals(Arrays.asList("ant", "xercesj"), Arrays.asList(manifest.getProjects().keySet().toArray()));
+
+        final List<Manifest.Step> ant = manifest.getProjects().get("ant");
+        assertEquals("ancestry", ant.get(0).getName());
+        assertEquals("collect", ant.get(1).getName());
+        assertArrayEquals(new String[]{"versions.txt", "repositories/ant", "output", "CK"}, ant.get(1).getArguments());
+        assertArrayEquals(new String[]{"results/xerces j", "raw"}, manifest.getProjects().get("xercesj").get(0).getArguments());
+    }
+
+    @Test
+    public void parse_ShouldFail_WhenStepIsMissing() {
+        assertThrows(IOException.class, () -> Manifest.parse(new StringReader("ant\n")));
+    }
+}
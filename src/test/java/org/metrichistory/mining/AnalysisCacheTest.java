@@ -0,0 +1,98 @@
+package org.metrichistory.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.analyzer.CacheableAnalyzer;
+import org.metrichistory.versioncontrol.Vcs;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AnalysisCacheTest {
+
+    @TempDir
+    File folder;
+
+    private Vcs vcs;
+    private CacheableAnalyzer analyzer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        vcs = mock(Vcs.class);
+        when(vcs.hashFiles(eq("a"), any())).thenReturn("1");
+        when(vcs.hashFiles(eq("b"), any())).thenReturn("1");
+        when(vcs.hashFiles(eq("c"), any())).thenReturn("2");
+        when(vcs.hashFiles(eq("c2"), any())).thenReturn("1");
+
+        analyzer = mock(CacheableAnalyzer.class);
+        when(analyzer.getConfiguration()).thenReturn("analyzer");
+        when(analyzer.copyResults(anyString(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    public void testReuseIdenticalSources() throws IOException {
+        final AnalysisCache cache = new AnalysisCache(new File(folder, "cache.csv").getPath());
+        cache.put(key(cache, "a"), "a", analyzer);
+
+        assertTrue(cache.reuse(key(cache, "b"), "b", analyzer));
+        assertFalse(cache.reuse(key(cache, "c"), "c", analyzer));
+        verify(analyzer).copyResults("a", "b");
+    }
+
+    @Test
+    public void testConfigurationIsPartOfTheKey() throws IOException {
+        final AnalysisCache cache = new AnalysisCache(new File(folder, "cache.csv").getPath());
+        final String before = key(cache, "a");
+        when(analyzer.getConfiguration()).thenReturn("other");
+
+        assertNotEquals(before, key(cache, "a"));
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        final String file = new File(folder, "cache.csv").getPath();
+        final AnalysisCache first = new AnalysisCache(file);
+        first.put(key(first, "a"), "a", analyzer);
+
+        final AnalysisCache second = new AnalysisCache(file);
+        assertTrue(second.reuse(key(second, "b"), "b", analyzer));
+    }
+
+    @Test
+    public void testReplaceEntryWithoutResults() throws IOException {
+        final String file = new File(folder, "cache.csv").getPath();
+        final AnalysisCache first = new AnalysisCache(file);
+        first.put(key(first, "a"), "a", analyzer);
+
+        // The results of a were deleted, so b was analyzed.
+        when(analyzer.hasInCache("a")).thenReturn(false);
+        first.put(key(first, "b"), "b", analyzer);
+
+        final AnalysisCache second = new AnalysisCache(file);
+        assertTrue(second.reuse(key(second, "c2"), "c2", analyzer));
+        verify(analyzer).copyResults("b", "c2");
+    }
+
+    @Test
+    public void testKeepEntryWithResults() throws IOException {
+        final AnalysisCache cache = new AnalysisCache(new File(folder, "cache.csv").getPath());
+        cache.put(key(cache, "a"), "a", analyzer);
+
+        when(analyzer.hasInCache("a")).thenReturn(true);
+        cache.put(key(cache, "b"), "b", analyzer);
+
+        assertTrue(cache.reuse(key(cache, "c2"), "c2", analyzer));
+        verify(analyzer).copyResults("a", "c2");
+    }
+
+    private String key(AnalysisCache cache, String version) throws IOException {
+        return cache.computeKey(vcs, version, analyzer, FileFilter.noFilter());
+    }
+}
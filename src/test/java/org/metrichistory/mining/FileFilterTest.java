@@ -2,6 +2,10 @@ package org.metrichistory.mining;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -35,4 +39,64 @@ public class FileFilterTest {
 
         assertFalse(filter.accept("a/b/examples/A.java"));
     }
+
+    @Test
+    public void acceptShouldFindOverlappingPatterns() {
+        filter = new FileFilter();
+        filter.addExclusionPattern("abcx");
+        filter.addExclusionPattern("bcd");
+        filter.addExclusionPattern("c/e");
+
+        assertFalse(filter.accept("a/abcd"));
+        assertFalse(filter.accept("abc/e"));
+        assertTrue(filter.accept("abc/d"));
+    }
+
+    @Test
+    public void acceptShouldMatchGlobs() {
+        filter = new FileFilter();
+        filter.addExclusionPattern("**/generated/*.java");
+        filter.addExclusionPattern("src/?ain/A.java");
+
+        assertFalse(filter.accept("a/b/generated/A.java"));
+        assertTrue(filter.accept("a/b/generated/c/A.java"));
+        assertFalse(filter.accept("src/main/A.java"));
+        assertTrue(filter.accept("module/src/main/A.java"));
+    }
+
+    @Test
+    public void acceptShouldIgnoreSeparators() {
+        filter = FileFilter.production();
+
+        assertFalse(filter.accept("project\\src\\test\\A.java"));
+    }
+
+    @Test
+    public void toRegularExpressions() {
+        filter = new FileFilter();
+        filter.addExclusionPattern("src/test");
+        filter.addExclusionPattern("**/*.gen.java");
+
+        assertEquals(Arrays.asList("/project/.*src/test.*", "/project/(.*/)?[^/]*\\.gen\\.java"),
+                filter.toRegularExpressions("/project"));
+    }
+
+    @Test
+    public void toRegularExpressionsShouldAnchorGlobsAtTheRoot() {
+        filter = new FileFilter();
+        filter.addExclusionPattern("src/?ain/A.java");
+
+        final String expression = filter.toRegularExpressions("C:\\project\\").get(0);
+        assertTrue("C:/project/src/main/A.java".matches(expression));
+        assertFalse("C:/project/module/src/main/A.java".matches(expression));
+    }
+
+    @Test
+    public void matchingShouldSelectFilesAtAnyDepth() {
+        final Predicate<String> sources = FileFilter.matching("**/*.java");
+
+        assertTrue(sources.test("A.java"));
+        assertTrue(sources.test("src/main/A.java"));
+        assertFalse(sources.test("src/main/A.xml"));
+    }
 }
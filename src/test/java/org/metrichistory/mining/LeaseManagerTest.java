@@ -0,0 +1,71 @@
+package org.metrichistory.mining;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LeaseManagerTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void claim_ShouldLeaseVersionToOneProcess() throws IOException {
+        try (LeaseManager first = new LeaseManager(folder.getPath(), 60_000);
+             LeaseManager second = new LeaseManager(folder.getPath(), 60_000)) {
+            assertEquals(LeaseManager.Claim.ACQUIRED, first.claim("a"));
+            assertEquals(LeaseManager.Claim.BUSY, second.claim("a"));
+
+            first.finished("a");
+
+            assertTrue(second.isDone("a"));
+            assertEquals(LeaseManager.Claim.DONE, second.claim("a"));
+        }
+    }
+
+    @Test
+    public void claim_ShouldLeaseReleasedVersion() throws IOException {
+        try (LeaseManager first = new LeaseManager(folder.getPath(), 60_000);
+             LeaseManager second = new LeaseManager(folder.getPath(), 60_000)) {
+            first.claim("a");
+            first.release("a");
+
+            assertEquals(LeaseManager.Claim.ACQUIRED, second.claim("a"));
+        }
+    }
+
+    @Test
+    public void claim_ShouldRecoverExpiredLease() throws IOException {
+        try (LeaseManager crashed = new LeaseManager(folder.getPath(), 60_000);
+             LeaseManager other = new LeaseManager(folder.getPath(), 60_000)) {
+            crashed.claim("a");
+            final Path lease = folder.toPath().resolve(LeaseManager.FOLDER_NAME).resolve("a.lease");
+            Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+
+            assertEquals(LeaseManager.Claim.RECOVERED, other.claim("a"));
+            assertEquals(LeaseManager.Claim.BUSY, crashed.claim("a"));
+            assertTrue(other.isHeld("a"));
+            assertFalse(crashed.isHeld("a"));
+        }
+    }
+
+    @Test
+    public void close_ShouldReleaseLeases() throws IOException {
+        try (LeaseManager first = new LeaseManager(folder.getPath(), 60_000)) {
+            first.claim("a");
+        }
+
+        try (LeaseManager second = new LeaseManager(folder.getPath(), 60_000)) {
+            assertEquals(LeaseManager.Claim.ACQUIRED, second.claim("a"));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.metrichistory.mining;
+
+import org.metrichistory.analyzer.Analyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes the files of the analyzed folder and their content in <code>output/version/files.txt</code>.
+ */
+final class ListingAnalyzer implements Analyzer {
+    private final Path output;
+
+    ListingAnalyzer(Path output) {
+        this.output = output;
+    }
+
+    ListingAnalyzer(String folder, String output) {
+        this(Paths.get(output));
+    }
+
+    /**
+     * Reads every result file, by path relative to <code>output</code>.
+     */
+    static Map<String, List<String>> read(Path output) throws IOException {
+        final Map<String, List<String>> results = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(output)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                results.put(output.relativize(file).toString(), Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void execute(String revision, String folder, FileFilter filter) {
+        final Path root = Paths.get(folder);
+        try (Stream<Path> files = Files.walk(root)) {
+            final List<String> lines = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !root.relativize(file).startsWith(".git"))
+                    .map(file -> root.relativize(file) + ":" + readContent(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+            final Path result = output.resolve(revision).resolve("files.txt");
+            Files.createDirectories(result.getParent());
+            Files.write(result, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String readContent(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void postExecute(String version) {
+    }
+
+    @Override
+    public boolean hasInCache(String version) {
+        return Files.exists(output.resolve(version));
+    }
+
+    @Override
+    public Optional<String> getOutputPath(String version) {
+        return Optional.of(output.resolve(version).toString());
+    }
+}
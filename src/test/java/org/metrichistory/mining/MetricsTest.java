@@ -122,4 +122,33 @@ public class MetricsTest {
 
         assertTrue(metrics.hasTradeOff(0,1,2));
     }
+
+    @Test
+    public void getDouble_ShouldReturnPrimitiveMetrics() {
+        final Metrics metrics = Metrics.wrap(new double[]{1.0, 2.0});
+        metrics.add(3.0);
+
+        assertEquals(3, metrics.size());
+        assertEquals(3.0, metrics.getDouble(2), 0);
+        assertThrows(IndexOutOfBoundsException.class, () -> metrics.getDouble(3));
+    }
+
+    @Test
+    public void copyTo_ShouldCopyAtOffset() {
+        final Metrics metrics = new Metrics(1.0, 2.0);
+        final double[] target = new double[3];
+
+        metrics.copyTo(target, 1);
+
+        assertArrayEquals(new double[]{0.0, 1.0, 2.0}, target, 0);
+    }
+
+    @Test
+    public void get_ShouldWriteThroughTheView() {
+        final Metrics metrics = new Metrics(2);
+
+        metrics.get().set(1, 5.0);
+
+        assertEquals(5.0, metrics.getDouble(1), 0);
+    }
 }
@@ -0,0 +1,90 @@
+package org.metrichistory.mining;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCollectorTest {
+
+    @TempDir
+    Path folder;
+
+    private Path repository;
+    private Git git;
+    private List<String> versions;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository = folder.resolve("repository");
+        git = Git.init().setDirectory(repository.toFile()).call();
+        versions = Arrays.asList(
+                commit("src/A.java", "class A {}"),
+                commit("src/B.java", "class B {}"),
+                commit("src/A.java", "class A { int a; }"),
+                commit("doc/README", "readme"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void analyzeVersionsShouldMatchTheSequentialLayout() throws Exception {
+        final Path workspace = folder.resolve("workspace");
+        Files.createDirectories(workspace);
+        final Path unrelated = workspace.resolve("notes.txt");
+        Files.write(unrelated, Collections.singletonList("keep"), StandardCharsets.UTF_8);
+
+        final Path parallelOutput = folder.resolve("parallel");
+        final ParallelCollector parallel = new ParallelCollector(new ListingAnalyzer(parallelOutput),
+                ListingAnalyzer::new, 2, workspace.toString());
+        parallel.analyzeVersions(versions, repository.toString(), repository.resolve("src").toString());
+
+        final Path sequentialOutput = folder.resolve("sequential");
+        new Collector(new ListingAnalyzer(sequentialOutput))
+                .analyzeVersions(versions, repository.toString(), repository.resolve("src").toString());
+
+        assertEquals(ListingAnalyzer.read(sequentialOutput), ListingAnalyzer.read(parallelOutput));
+        assertEquals(versions.size(), ListingAnalyzer.read(parallelOutput).size());
+        assertEquals(Collections.singletonList(unrelated), list(workspace));
+    }
+
+    @Test
+    public void analyzeVersionsShouldDeleteAnEmptyWorkspace() throws Exception {
+        final Path workspace = folder.resolve("workspace");
+        final ParallelCollector parallel = new ParallelCollector(new ListingAnalyzer(folder.resolve("parallel")),
+                ListingAnalyzer::new, 2, workspace.toString());
+        parallel.analyzeVersions(versions, repository.toString(), repository.toString());
+
+        assertFalse(Files.exists(workspace));
+    }
+
+    private String commit(String path, String content) throws Exception {
+        final Path file = repository.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(path).call();
+        return git.commit().setMessage(path).call().getName();
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.metrichistory.mining;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelinedCollectorTest {
+
+    @TempDir
+    Path folder;
+
+    private Path repository;
+    private Git git;
+    private List<String> versions;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository = folder.resolve("repository");
+        git = Git.init().setDirectory(repository.toFile()).call();
+        versions = Arrays.asList(
+                commit("src/A.java", "class A {}"),
+                commit("src/B.java", "class B {}"),
+                commit("src/A.java", "class A { int a; }"),
+                commit("doc/README", "readme"),
+                commit("src/B.java", "class B { int b; }"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void analyzeVersionsShouldMatchTheSequentialResults() throws Exception {
+        final Path workspace = folder.resolve("workspace");
+        final Path pipelinedOutput = folder.resolve("pipelined");
+        final PipelinedCollector pipelined = new PipelinedCollector(new ListingAnalyzer(pipelinedOutput),
+                ListingAnalyzer::new, 2, workspace.toString());
+        pipelined.analyzeVersions(versions, repository.toString(), repository.resolve("src").toString());
+
+        final Path sequentialOutput = folder.resolve("sequential");
+        new Collector(new ListingAnalyzer(sequentialOutput))
+                .analyzeVersions(versions, repository.toString(), repository.resolve("src").toString());
+
+        assertEquals(ListingAnalyzer.read(sequentialOutput), ListingAnalyzer.read(pipelinedOutput));
+        assertEquals(versions.size(), ListingAnalyzer.read(pipelinedOutput).size());
+        assertFalse(Files.exists(workspace));
+    }
+
+    private String commit(String path, String content) throws Exception {
+        final Path file = repository.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(path).call();
+        return git.commit().setMessage(path).call().getName();
+    }
+}
@@ -0,0 +1,75 @@
+package org.metrichistory.mining;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.analyzer.Analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProgressJournalTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testResume() throws IOException {
+        try (ProgressJournal journal = new ProgressJournal(folder.getPath())) {
+            journal.started("a");
+            journal.finished("a", 1_000_000);
+            journal.started("b");
+            journal.started("c");
+            journal.failed("c", 1_000_000, "first line\nsecond line");
+        }
+
+        try (ProgressJournal journal = new ProgressJournal(folder.getPath())) {
+            assertEquals(ProgressJournal.State.FINISHED, journal.getState("a"));
+            assertEquals(ProgressJournal.State.STARTED, journal.getState("b"));
+            assertEquals(ProgressJournal.State.FAILED, journal.getState("c"));
+            assertNull(journal.getState("d"));
+        }
+    }
+
+    @Test
+    public void testIgnoreTruncatedLine() throws IOException {
+        try (ProgressJournal journal = new ProgressJournal(folder.getPath())) {
+            journal.started("a");
+        }
+        Files.write(new File(folder, ProgressJournal.FILE_NAME).toPath(), "FINISHED;a".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (ProgressJournal journal = new ProgressJournal(folder.getPath())) {
+            assertEquals(ProgressJournal.State.STARTED, journal.getState("a"));
+        }
+    }
+
+    @Test
+    public void testFinishedWithoutResultsIsPending() throws IOException {
+        final Analyzer analyzer = mock(Analyzer.class);
+        when(analyzer.hasInCache("a")).thenReturn(true);
+        when(analyzer.hasInCache("b")).thenReturn(false);
+        when(analyzer.getOutputPath("b")).thenReturn(Optional.empty());
+
+        try (ProgressJournal journal = new ProgressJournal(folder.getPath())) {
+            journal.started("a");
+            journal.finished("a", 1_000_000);
+            journal.started("b");
+            journal.finished("b", 1_000_000);
+
+            assertFalse(Collector.isPending(journal, false, analyzer, "a"));
+            assertTrue(Collector.isPending(journal, false, analyzer, "b"));
+        }
+    }
+}
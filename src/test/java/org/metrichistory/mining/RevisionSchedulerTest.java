@@ -0,0 +1,74 @@
+package org.metrichistory.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.metrichistory.versioncontrol.Vcs;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RevisionSchedulerTest {
+
+    private Vcs vcs;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        vcs = mock(Vcs.class);
+        when(vcs.getCommitTime("a")).thenReturn(1L);
+        when(vcs.getCommitTime("b")).thenReturn(2L);
+        when(vcs.getCommitTime("c")).thenReturn(3L);
+        when(vcs.getCommitTime("d")).thenReturn(4L);
+
+        // The revisions are points on a line: a=0, b=10, c=1, d=11.
+        when(vcs.countChangedFiles(anyString(), anyString())).thenAnswer(invocation -> {
+            final int first = position(invocation.getArgument(0));
+            final int second = position(invocation.getArgument(1));
+            return Math.abs(first - second);
+        });
+    }
+
+    private static int position(String revision) {
+        switch (revision) {
+            case "a": return 0;
+            case "b": return 10;
+            case "c": return 1;
+            default: return 11;
+        }
+    }
+
+    @Test
+    public void schedule_ShouldSortByDate_WhenWindowIsOne() throws IOException {
+        final RevisionScheduler scheduler = new RevisionScheduler(vcs, 1);
+
+        final List<String> result = scheduler.schedule(Arrays.asList("d", "b", "c", "a"));
+
+        assertEquals(Arrays.asList("a", "b", "c", "d"), result);
+        assertEquals(29, scheduler.getCostAfter());
+    }
+
+    @Test
+    public void schedule_ShouldChooseNearestRevision() throws IOException {
+        final RevisionScheduler scheduler = new RevisionScheduler(vcs);
+
+        final List<String> result = scheduler.schedule(Arrays.asList("a", "b", "c", "d"));
+
+        assertEquals(Arrays.asList("a", "c", "b", "d"), result);
+        assertEquals(29, scheduler.getCostBefore());
+        assertEquals(11, scheduler.getCostAfter());
+    }
+
+    @Test
+    public void schedule_ShouldIgnoreDuplicates() throws IOException {
+        final RevisionScheduler scheduler = new RevisionScheduler(vcs);
+
+        final List<String> result = scheduler.schedule(Arrays.asList("a", "a", "b"));
+
+        assertEquals(Arrays.asList("a", "b"), result);
+    }
+}
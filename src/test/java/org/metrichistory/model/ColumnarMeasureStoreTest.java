@@ -0,0 +1,97 @@
+package org.metrichistory.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarMeasureStoreTest {
+
+    private ColumnarMeasureStore instance;
+
+    @BeforeEach
+    public void setUp() {
+        instance = new ColumnarMeasureStore();
+    }
+
+    @Test
+    public void getShouldReturnTheMetricsAdded() {
+        instance.add("alpha", "A", new Metrics(1.0, 0.5, -0.0, 70000.0));
+        instance.add("alpha", "B", new Metrics(2.0, 0.25, 0.0, Double.NaN));
+        instance.add("beta", "A", new Metrics(3.0, 300.0, 1e12, 1.0));
+
+        assertArrayEquals(new double[]{1.0, 0.5, -0.0, 70000.0}, instance.get("alpha", "A").toArray());
+        assertArrayEquals(new double[]{2.0, 0.25, 0.0, Double.NaN}, instance.get("alpha", "B").toArray());
+        assertArrayEquals(new double[]{3.0, 300.0, 1e12, 1.0}, instance.get("beta", "A").toArray());
+        assertNull(instance.get("beta", "B"));
+        assertNull(instance.get("gamma", "A"));
+        assertNull(instance.get("alpha", "C"));
+    }
+
+    @Test
+    public void artifactsShouldKeepTheOrderOfInsertion() {
+        instance.add("alpha", "C", new Metrics(1.0));
+        instance.add("alpha", "A", new Metrics(2.0));
+        instance.add("alpha", "B", new Metrics(3.0));
+
+        assertEquals(Arrays.asList("C", "A", "B"), instance.artifacts("alpha"));
+        assertTrue(instance.artifacts("alpha").contains("A"));
+        assertFalse(instance.artifacts("alpha").contains("D"));
+        assertNull(instance.artifacts("beta"));
+    }
+
+    @Test
+    public void addingAnArtifactTwiceShouldReplaceItsMetrics() {
+        instance.add("alpha", "A", new Metrics(1.0));
+        instance.add("alpha", "B", new Metrics(2.0));
+        instance.add("alpha", "A", new Metrics(3.0));
+
+        assertEquals(Arrays.asList("A", "B"), instance.artifacts("alpha"));
+        assertEquals(3.0, instance.get("alpha", "A").getDouble(0));
+        assertEquals(2, instance.instances());
+    }
+
+    @Test
+    public void aVersionCanBeCompletedAfterBeingRead() {
+        instance.add("alpha", "A", new Metrics(1.0));
+        instance.add("beta", "A", new Metrics(2.0));
+        instance.add("alpha", "B", new Metrics(1.5));
+
+        assertEquals(1.5, instance.get("alpha", "B").getDouble(0));
+        assertEquals(1.0, instance.get("alpha", "A").getDouble(0));
+        assertEquals(2, instance.versionCount());
+        assertEquals(3, instance.instances());
+        assertEquals(Arrays.asList("A", "B"), instance.artifacts("alpha"));
+    }
+
+    @Test
+    public void modifyingTheMetricsReturnedShouldNotChangeTheStore() {
+        instance.add("alpha", "A", new Metrics(1.0));
+
+        instance.get("alpha", "A").set(0, 5.0);
+
+        assertEquals(1.0, instance.get("alpha", "A").getDouble(0));
+    }
+
+    @Test
+    public void metricsOfDifferentSizesShouldBeRejected() {
+        instance.add("alpha", "A", new Metrics(1.0));
+
+        assertThrows(IllegalArgumentException.class, () -> instance.add("alpha", "B", new Metrics(1.0, 2.0)));
+        assertEquals(Collections.singletonList("A"), instance.artifacts("alpha"));
+    }
+
+    @Test
+    public void symbolsShouldBelongToTheStore() {
+        instance.add("alpha", "A", new Metrics(1.0));
+        final ColumnarMeasureStore other = new ColumnarMeasureStore();
+        other.add("alpha", "B", new Metrics(2.0));
+
+        assertEquals(2, instance.symbols().size());
+        assertEquals(SymbolTable.NONE, instance.symbols().lookup("B"));
+        assertNull(instance.get("alpha", "B"));
+    }
+}
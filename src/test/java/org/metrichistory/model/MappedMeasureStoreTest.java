@@ -0,0 +1,107 @@
+package org.metrichistory.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedMeasureStoreTest {
+
+    @TempDir
+    Path folder;
+
+    private MappedMeasureStore instance;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // Segments of 4 metrics, a single one mapped at once.
+        instance = new MappedMeasureStore(folder, 32, 32);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        instance.close();
+    }
+
+    @Test
+    public void getShouldReadTheMetricsFromTheSegments() {
+        for (int i = 0; i < 10; i++) {
+            instance.add("v" + (i % 3), "A" + i, new Metrics((double) i, i + 0.5, (double) -i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(new double[]{i, i + 0.5, -i}, instance.get("v" + (i % 3), "A" + i).toArray());
+        }
+        assertNull(instance.get("v1", "A0"));
+        assertNull(instance.get("v4", "A0"));
+        assertEquals(Arrays.asList("A1", "A4", "A7"), instance.artifacts("v1"));
+        assertEquals(3, instance.versionCount());
+        assertEquals(10, instance.instances());
+    }
+
+    @Test
+    public void addingAnArtifactTwiceShouldReplaceItsMetrics() {
+        instance.add("alpha", "A", new Metrics(1.0));
+        instance.add("alpha", "B", new Metrics(2.0));
+        instance.add("alpha", "A", new Metrics(3.0));
+
+        assertEquals(Arrays.asList("A", "B"), instance.artifacts("alpha"));
+        assertEquals(3.0, instance.get("alpha", "A").getDouble(0));
+    }
+
+    @Test
+    public void metricsLargerThanASegmentShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> instance.add("alpha", "A", new Metrics(5)));
+    }
+
+    @Test
+    public void closeShouldDeleteTheFile() throws IOException {
+        instance.add("alpha", "A", new Metrics(1.0));
+
+        instance.close();
+
+        assertEquals(0, Files.list(folder).count());
+    }
+
+    @Test
+    public void invalidSizesShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new MappedMeasureStore(folder, 32, Double.BYTES - 1));
+        assertThrows(IllegalArgumentException.class, () -> new MappedMeasureStore(folder, 0, 32));
+    }
+
+    @Test
+    public void evictedSegmentsShouldBeUnmapped() throws IOException {
+        final Path maps = Paths.get("/proc/self/maps");
+        if (!Files.isReadable(maps)) {
+            return;
+        }
+        // The file may already be unlinked, but its mappings still show its path.
+        final String file = folder.resolve("measures-").toString();
+
+        for (int i = 0; i < 20; i++) {
+            instance.add("alpha", "A" + i, new Metrics((double) i, (double) i, (double) i));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, instance.get("alpha", "A" + i).getDouble(0));
+        }
+        assertTrue(countMappings(maps, file) <= 1);
+
+        instance.close();
+        assertEquals(0, countMappings(maps, file));
+    }
+
+    private static long countMappings(Path maps, String file) throws IOException {
+        try (Stream<String> lines = Files.lines(maps)) {
+            return lines.filter(line -> line.contains(file)).count();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.metrichistory.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevisionIdTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdeffedcba98";
+
+    @Test
+    public void hashesShouldBeStoredInBinaryForm() {
+        final RevisionId revision = RevisionId.of(HASH);
+
+        assertTrue(revision.isHash());
+        assertEquals(HASH, revision.toString());
+        assertEquals(RevisionId.of(new String(HASH)), revision);
+        assertEquals(RevisionId.of(HASH).hashCode(), revision.hashCode());
+    }
+
+    @Test
+    public void otherIdentifiersShouldBeKeptAsTheyAre() {
+        final RevisionId upperCase = RevisionId.of(HASH.toUpperCase());
+
+        assertFalse(upperCase.isHash());
+        assertEquals(HASH.toUpperCase(), upperCase.toString());
+        assertNotEquals(RevisionId.of(HASH), upperCase);
+        assertEquals("v1.0", RevisionId.of("v1.0").toString());
+        assertEquals(RevisionId.of("a"), RevisionId.of("a"));
+    }
+
+    @Test
+    public void compareToShouldFollowTheHexadecimalOrder() {
+        final RevisionId low = RevisionId.of("7fffffffffffffffffffffffffffffffffffffff");
+        final RevisionId high = RevisionId.of("8000000000000000000000000000000000000000");
+        final RevisionId last = RevisionId.of("800000000000000000000000000000000000000f");
+
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(last) < 0);
+        assertEquals(0, last.compareTo(RevisionId.of(last.toString())));
+        assertTrue(last.compareTo(RevisionId.of("a")) < 0);
+    }
+}
@@ -0,0 +1,48 @@
+package org.metrichistory.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTableTest {
+
+    private SymbolTable instance;
+
+    @BeforeEach
+    public void setUp() {
+        instance = new SymbolTable();
+    }
+
+    @Test
+    public void internShouldReturnDenseSymbols() {
+        assertEquals(0, instance.intern("A"));
+        assertEquals(1, instance.intern("B"));
+        assertEquals(0, instance.intern(new String("A")));
+        assertEquals(2, instance.size());
+    }
+
+    @Test
+    public void getShouldReturnTheName() {
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(i, instance.intern("C" + i));
+        }
+
+        assertEquals("C1500", instance.get(1500));
+        assertThrows(IllegalArgumentException.class, () -> instance.get(2000));
+        assertThrows(IllegalArgumentException.class, () -> instance.get(-1));
+    }
+
+    @Test
+    public void canonicalShouldReturnTheSameInstance() {
+        final String name = instance.canonical(new String("A"));
+
+        assertSame(name, instance.canonical(new String("A")));
+    }
+
+    @Test
+    public void lookupShouldNotCreateSymbols() {
+        assertEquals(SymbolTable.NONE, instance.lookup("A"));
+        assertEquals(0, instance.size());
+    }
+}
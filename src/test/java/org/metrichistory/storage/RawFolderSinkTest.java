@@ -0,0 +1,52 @@
+package org.metrichistory.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.model.MeasureStore;
+import org.metrichistory.model.MetricDump;
+import org.metrichistory.model.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RawFolderSinkTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testWriteReadableRawFile() throws IOException {
+        final RawFolderSink sink = new RawFolderSink(folder.getPath(), "A", "B");
+        final MetricDump dump = new MetricDump();
+        dump.add("org.Foo", new Metrics(1.0, 2.0));
+        dump.add("org.Bar", new Metrics(3.0, 4.0));
+
+        assertFalse(sink.contains("a"));
+        sink.write("a", dump);
+        assertTrue(sink.contains("a"));
+
+        final MeasureStore store = Stores.loadClasses(new File(folder, "a.csv"));
+        assertEquals(2, store.artifacts("a").size());
+        assertEquals(Arrays.asList(3.0, 4.0), store.get("a", "org.Bar").get());
+    }
+
+    @Test
+    public void testReadWrittenResults() throws IOException {
+        final RawFolderSink sink = new RawFolderSink(folder.getPath(), "A", "B");
+        final MetricDump dump = new MetricDump();
+        dump.add("org.Foo", "src/org/Foo.java", new Metrics(1.0, 2.0));
+        dump.add("org.Bar", new Metrics(3.0, 4.0));
+
+        assertNull(sink.read("a"));
+        sink.write("a", dump);
+
+        final MetricDump read = new RawFolderSink(folder.getPath(), "A", "B").read("a");
+        assertEquals(2, read.getClasses().size());
+        assertEquals(Arrays.asList(1.0, 2.0), read.getMetric("org.Foo").get());
+        assertEquals("src/org/Foo.java", read.getFile("org.Foo"));
+        assertNull(read.getFile("org.Bar"));
+    }
+}
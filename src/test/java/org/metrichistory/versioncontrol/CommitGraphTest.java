@@ -0,0 +1,101 @@
+package org.metrichistory.versioncontrol;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommitGraphTest {
+
+    @TempDir
+    Path folder;
+
+    private Git git;
+    private String a;
+    private String b;
+    private String c;
+    private String merge;
+
+    /**
+     * a - b - merge
+     *  \     /
+     *   - c -
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        git = Git.init().setDirectory(folder.toFile()).call();
+        a = commit("A.java", "class A {}");
+        b = commit("B.java", "class B {}");
+
+        git.checkout().setCreateBranch(true).setName("side").setStartPoint(a).call();
+        c = commit("C.java", "class C {}");
+
+        git.checkout().setName("master").call();
+        merge = git.merge().include(ObjectId.fromString(c)).setMessage("merge").call().getNewHead().getName();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void openShouldIndexTheParents() throws Exception {
+        final CommitGraph graph = CommitGraph.open(git.getRepository());
+
+        assertEquals(4, graph.size());
+        final int position = graph.find(merge);
+        assertEquals(Arrays.asList(b, c), Arrays.stream(graph.getParents(position))
+                .mapToObj(parent -> graph.getId(parent).getName())
+                .collect(Collectors.toList()));
+        assertEquals(b, graph.getId(graph.getFirstParent(position)).getName());
+        assertEquals(CommitGraph.NONE, graph.getFirstParent(graph.find(a)));
+        assertEquals(1, graph.getGeneration(graph.find(a)));
+        assertEquals(3, graph.getGeneration(position));
+    }
+
+    @Test
+    public void rangeShouldExcludeTheAncestorsOfFrom() throws Exception {
+        final CommitGraph graph = CommitGraph.open(git.getRepository());
+
+        assertEquals(new HashSet<>(Arrays.asList(merge, c)), names(graph, graph.range(graph.find(b), graph.find(merge))));
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c, merge)), names(graph, graph.range(CommitGraph.NONE, graph.find(merge))));
+    }
+
+    @Test
+    public void openShouldAddNewCommits() throws Exception {
+        final int position = CommitGraph.open(git.getRepository()).find(b);
+        final String d = commit("D.java", "class D {}");
+
+        final CommitGraph graph = CommitGraph.open(git.getRepository());
+
+        assertEquals(5, graph.size());
+        assertEquals(position, graph.find(b));
+        assertEquals(merge, graph.getId(graph.getFirstParent(graph.find(d))).getName());
+    }
+
+    private Set<String> names(CommitGraph graph, Iterable<Integer> positions) {
+        final Set<String> names = new HashSet<>();
+        positions.forEach(position -> names.add(graph.getId(position).getName()));
+        return names;
+    }
+
+    private String commit(String path, String content) throws Exception {
+        Files.write(folder.resolve(path), Collections.singletonList(content), StandardCharsets.UTF_8);
+        git.add().addFilepattern(path).call();
+        return git.commit().setMessage("commit").call().getName();
+    }
+}
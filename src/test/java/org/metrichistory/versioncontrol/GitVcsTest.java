@@ -0,0 +1,197 @@
+package org.metrichistory.versioncontrol;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.model.vcs.Commit;
+import org.metrichistory.model.vcs.NullTag;
+import org.metrichistory.model.vcs.Tag;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitVcsTest {
+
+    @TempDir
+    Path folder;
+
+    private Path repository;
+    private Git git;
+    private String a;
+    private String b;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository = folder.resolve("repository");
+        git = Git.init().setDirectory(repository.toFile()).call();
+        write("src/A.java", "class A {}");
+        write("README", "readme");
+        a = commit("a");
+
+        write("src/A.java", "class A { int a; }");
+        write("src/main/B.java", "class B {}");
+        git.rm().addFilepattern("README").call();
+        b = commit("b");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void walkTreeShouldReadTheFilesOfACheckout() throws Exception {
+        try (Vcs vcs = VcsBuilder.create(repository.toString())) {
+            for (String revision : Arrays.asList(a, b)) {
+                final Map<String, String> tree = readTree(vcs, revision);
+
+                vcs.clean();
+                vcs.checkout(revision);
+                assertEquals(readWorkingTree(repository), tree);
+            }
+        }
+    }
+
+    @Test
+    public void walkTreeShouldNotTouchTheWorkingTreeAndTheIndex() throws Exception {
+        write("src/A.java", "class A { int uncommitted; }");
+        write("src/C.java", "class C {}");
+        git.add().addFilepattern("src/C.java").call();
+        write("untracked.txt", "untracked");
+
+        final Map<String, String> workingTree = readWorkingTree(repository);
+        final byte[] index = Files.readAllBytes(repository.resolve(".git/index"));
+        final String head = git.getRepository().resolve("HEAD").getName();
+
+        try (Vcs vcs = VcsBuilder.create(repository.toString())) {
+            readTree(vcs, a);
+            vcs.readFiles(b, Arrays.asList("src/A.java", "src/main/B.java"), (path, blobId, content) -> { });
+        }
+
+        assertEquals(workingTree, readWorkingTree(repository));
+        assertArrayEquals(index, Files.readAllBytes(repository.resolve(".git/index")));
+        assertEquals(head, git.getRepository().resolve("HEAD").getName());
+    }
+
+    @Test
+    public void walkTreeShouldReadABareRepository() throws Exception {
+        final Path bare = folder.resolve("bare.git");
+        Git.cloneRepository().setBare(true).setURI(repository.toUri().toString()).setDirectory(bare.toFile()).call().close();
+        final Map<String, String> files = readWorkingTree(bare);
+
+        final Map<String, String> expected;
+        try (Vcs vcs = VcsBuilder.create(repository.toString())) {
+            expected = readTree(vcs, a);
+        }
+        try (Vcs vcs = VcsBuilder.create(bare.toString())) {
+            assertEquals(expected, readTree(vcs, a));
+        }
+        assertEquals(files, readWorkingTree(bare));
+    }
+
+    /**
+     * a - b - merge - d, with c branching from a, and timestamps going back in time along b and d.
+     */
+    @Test
+    public void listCommitsBetweenReleasesShouldListParentsFirstWithAndWithoutTheCommitGraph() throws Exception {
+        final Path skewed = folder.resolve("skewed");
+        final List<String> expected = new ArrayList<>();
+        try (Git git = Git.init().setDirectory(skewed.toFile()).call()) {
+            final String a = commitAt(git, "A.java", 1000);
+            final String b = commitAt(git, "B.java", 500);
+            git.checkout().setCreateBranch(true).setName("side").setStartPoint(a).call();
+            final String c = commitAt(git, "C.java", 2000);
+            git.checkout().setName("master").call();
+            git.merge().include(ObjectId.fromString(c)).setCommit(false).call();
+            git.commit().setMessage("merge").setCommitter(identity(3000)).setAuthor(identity(3000)).call();
+            final String d = commitAt(git, "D.java", 100);
+            expected.addAll(Arrays.asList(a, b, c, d));
+        }
+        final Tag head = Tag.tag(expected.get(3), null, "head", new NullTag());
+
+        // The commit-graph index cannot be written where a file is in the way, so the log is used.
+        final Path index = skewed.resolve(".git").resolve(CommitGraph.FILE_NAME).getParent();
+        Files.write(index, Collections.singletonList("in the way"), StandardCharsets.UTF_8);
+        final List<String> logged;
+        try (Vcs vcs = VcsBuilder.create(skewed.toString())) {
+            logged = ids(vcs.listCommitsBetweenReleases(new NullTag(), head));
+        }
+        Files.delete(index);
+
+        final List<String> indexed;
+        try (Vcs vcs = VcsBuilder.create(skewed.toString())) {
+            indexed = ids(vcs.listCommitsBetweenReleases(new NullTag(), head));
+        }
+        assertTrue(Files.isRegularFile(skewed.resolve(".git").resolve(CommitGraph.FILE_NAME)));
+
+        assertEquals(expected, logged);
+        assertEquals(expected, indexed);
+    }
+
+    private static String commitAt(Git git, String path, long seconds) throws Exception {
+        Files.write(git.getRepository().getWorkTree().toPath().resolve(path), Collections.singletonList(path), StandardCharsets.UTF_8);
+        git.add().addFilepattern(path).call();
+        return git.commit().setMessage(path).setCommitter(identity(seconds)).setAuthor(identity(seconds)).call().getName();
+    }
+
+    private static PersonIdent identity(long seconds) {
+        return new PersonIdent("author", "author@example.com", new Date(seconds * 1000), TimeZone.getTimeZone("UTC"));
+    }
+
+    private static List<String> ids(List<Commit> commits) {
+        return commits.stream().map(Commit::getId).collect(Collectors.toList());
+    }
+
+    private void write(String path, String content) throws IOException {
+        final Path file = repository.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String commit(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).call().getName();
+    }
+
+    private static Map<String, String> readTree(Vcs vcs, String revision) throws IOException {
+        final Map<String, String> files = new TreeMap<>();
+        vcs.walkTree(revision, path -> true, (path, blobId, content) ->
+                files.put(path, IOUtils.toString(content, StandardCharsets.UTF_8)));
+        return files;
+    }
+
+    /**
+     * Reads the files of a folder, except the folder of Git in a working tree.
+     */
+    private static Map<String, String> readWorkingTree(Path root) throws IOException {
+        final Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path file : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                final Path relative = root.relativize(file);
+                if (!relative.startsWith(".git")) {
+                    files.put(relative.toString().replace('\\', '/'), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return files;
+    }
+}
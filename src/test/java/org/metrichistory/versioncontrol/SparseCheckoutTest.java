@@ -0,0 +1,98 @@
+package org.metrichistory.versioncontrol;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metrichistory.mining.FileFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseCheckoutTest {
+
+    @TempDir
+    Path folder;
+
+    private Path repository;
+    private String first;
+    private String second;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository = folder.resolve("repository");
+        try (Git git = Git.init().setDirectory(repository.toFile()).call()) {
+            write("src/A.java", "class A {}");
+            write("src/B.java", "class B {}");
+            write("resources/data.bin", "data");
+            first = commit(git);
+
+            write("src/A.java", "class A { int a; }");
+            Files.delete(repository.resolve("src/B.java"));
+            write("lib/C.java", "class C {}");
+            second = commit(git);
+        }
+    }
+
+    @Test
+    public void checkoutShouldOnlyWriteSelectedFiles() throws Exception {
+        final Path copy = folder.resolve("copy");
+        try (Vcs vcs = VcsBuilder.createWorkingCopy(repository.toString(), copy.toString())) {
+            vcs.setSparse(FileFilter.matching("**/*.java"));
+
+            vcs.clean();
+            vcs.checkout(first);
+            assertEquals("class B {}", read(copy.resolve("src/B.java")));
+            assertFalse(Files.exists(copy.resolve("resources/data.bin")));
+
+            vcs.clean();
+            vcs.checkout(second);
+            assertEquals("class A { int a; }", read(copy.resolve("src/A.java")));
+            assertEquals("class C {}", read(copy.resolve("lib/C.java")));
+            assertFalse(Files.exists(copy.resolve("src/B.java")));
+        }
+    }
+
+    @Test
+    public void cleanShouldRestoreModifiedFiles() throws Exception {
+        final Path copy = folder.resolve("copy");
+        try (Vcs vcs = VcsBuilder.createWorkingCopy(repository.toString(), copy.toString())) {
+            vcs.setSparse(FileFilter.matching("**/*.java"));
+            vcs.checkout(first);
+
+            write(copy, "src/A.java", "class Modified {}");
+            write(copy, "src/Generated.java", "class Generated {}");
+            write(copy, "notes.txt", "kept");
+
+            vcs.clean();
+            vcs.checkout(first);
+
+            assertEquals("class A {}", read(copy.resolve("src/A.java")));
+            assertEquals("kept", read(copy.resolve("notes.txt")));
+        }
+    }
+
+    private void write(String path, String content) throws Exception {
+        write(repository, path, content);
+    }
+
+    private void write(Path root, String path, String content) throws Exception {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Collections.singletonList(content), StandardCharsets.UTF_8);
+    }
+
+    private String read(Path file) throws Exception {
+        return String.join("\n", Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    private String commit(Git git) throws Exception {
+        git.add().addFilepattern(".").call();
+        git.add().setUpdate(true).addFilepattern(".").call();
+        return git.commit().setMessage("commit").call().getName();
+    }
+}